@@ -0,0 +1,60 @@
+package io.jeti.matrix;
+
+import io.jeti.matrix.Metrics.Operation;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * A {@link Metrics.Listener} which emits a Java Flight Recorder event for every
+ * reported operation. The events only cost anything while a recording with the
+ * {@code io.jeti.matrix.Operation} event enabled is running. Register it with
+ * {@code Metrics.addListener(new JfrMetrics())}. This class needs the
+ * {@code jdk.jfr} module, so it must not be used on Android.
+ */
+public class JfrMetrics implements Metrics.Listener {
+
+    @Name("io.jeti.matrix.Operation")
+    @Label("Matrix Operation")
+    @Category("Matrix")
+    @Description("A construction, multiplication, or element-wise operation.")
+    static class OperationEvent extends Event {
+
+        @Label("Operation")
+        String operation;
+
+        @Label("Type")
+        Class<?> type;
+
+        @Label("Rows")
+        int rows;
+
+        @Label("Columns")
+        int cols;
+
+        @Label("Elements Allocated")
+        long elements;
+
+        @Label("Duration")
+        @Timespan(Timespan.NANOSECONDS)
+        long nanos;
+    }
+
+    @Override
+    public void onOperation(Operation operation, Class<?> type, int rows, int cols,
+            long elements, long nanos) {
+        OperationEvent event = new OperationEvent();
+        if (event.shouldCommit()) {
+            event.operation = operation.name();
+            event.type = type;
+            event.rows = rows;
+            event.cols = cols;
+            event.elements = elements;
+            event.nanos = nanos;
+            event.commit();
+        }
+    }
+}
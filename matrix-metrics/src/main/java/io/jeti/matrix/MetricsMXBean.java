@@ -0,0 +1,62 @@
+package io.jeti.matrix;
+
+/**
+ * The JMX view of a {@link MetricsRecorder}. Register it with
+ * {@link MetricsRecorder#registerMBean()}.
+ */
+public interface MetricsMXBean {
+
+    /**
+     * @return The number of constructions of new storage.
+     */
+    long getConstructCount();
+
+    /**
+     * @return The number of matrix/matrix multiplications.
+     */
+    long getTimesCount();
+
+    /**
+     * @return The number of element-wise operations with a new result.
+     */
+    long getElementwiseCount();
+
+    /**
+     * @return The number of operations which overwrote their receiver.
+     */
+    long getInPlaceCount();
+
+    /**
+     * @return The total number of bytes of element storage allocated, counting
+     *         8 bytes per element, since all storage is a primitive
+     *         {@code double[]}.
+     */
+    long getBytesAllocated();
+
+    /**
+     * @return The total time spent in constructions, in nanoseconds.
+     */
+    long getConstructNanos();
+
+    /**
+     * @return The total time spent in multiplications, in nanoseconds.
+     */
+    long getTimesNanos();
+
+    /**
+     * @return The total time spent in element-wise operations with a new
+     *         result, in nanoseconds.
+     */
+    long getElementwiseNanos();
+
+    /**
+     * @return The total time spent in operations which overwrote their
+     *         receiver, in nanoseconds.
+     */
+    long getInPlaceNanos();
+
+    /**
+     * Reset all counters and histograms to zero.
+     */
+    void reset();
+}
@@ -0,0 +1,210 @@
+package io.jeti.matrix;
+
+import io.jeti.matrix.Metrics.Operation;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * A {@link Metrics.Listener} which aggregates the reported operations into
+ * counters and histograms. Every statistic is kept per {@link Operation}:
+ * <ul>
+ * <li>the number of operations,</li>
+ * <li>the number of elements allocated,</li>
+ * <li>the total latency, and a histogram of the latency in power-of-two
+ * nanosecond buckets,</li>
+ * <li>a histogram of the result shapes, where bucket (i, j) counts the results
+ * with {@code 2^i <= rows < 2^(i+1)} and {@code 2^j <= cols < 2^(j+1)}.</li>
+ * </ul>
+ * All updates are lock-free, so a single recorder can be shared by all threads.
+ */
+public class MetricsRecorder implements Metrics.Listener, MetricsMXBean {
+
+    /*
+     * --------------------------------------------------
+     *
+     * Private Fields
+     *
+     * --------------------------------------------------
+     */
+    private static final int      OPERATIONS = Operation.values().length;
+    private static final int      BUCKETS    = 32;
+
+    private final AtomicLongArray counts     = new AtomicLongArray(OPERATIONS);
+    private final AtomicLongArray elements   = new AtomicLongArray(OPERATIONS);
+    private final AtomicLongArray nanos      = new AtomicLongArray(OPERATIONS);
+    private final AtomicLongArray latencies  = new AtomicLongArray(OPERATIONS * 64);
+    private final AtomicLongArray shapes     = new AtomicLongArray(OPERATIONS * BUCKETS * BUCKETS);
+
+    /*
+     * --------------------------------------------------
+     *
+     * Listener
+     *
+     * --------------------------------------------------
+     */
+    @Override
+    public void onOperation(Operation operation, Class<?> type, int rows, int cols,
+            long elements, long nanos) {
+        int op = operation.ordinal();
+        this.counts.incrementAndGet(op);
+        this.elements.addAndGet(op, elements);
+        this.nanos.addAndGet(op, nanos);
+        this.latencies.incrementAndGet(op * 64 + bucket(nanos));
+        this.shapes.incrementAndGet((op * BUCKETS + bucket(rows)) * BUCKETS + bucket(cols));
+    }
+
+    /**
+     * @return The index of the power-of-two bucket containing the value.
+     */
+    private static int bucket(long value) {
+        return value <= 1 ? 0 : 63 - Long.numberOfLeadingZeros(value);
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Getters
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * @return The number of times the specified operation was reported.
+     */
+    public long getCount(Operation operation) {
+        return counts.get(operation.ordinal());
+    }
+
+    /**
+     * @return The number of elements allocated by the specified operation.
+     */
+    public long getElements(Operation operation) {
+        return elements.get(operation.ordinal());
+    }
+
+    /**
+     * @return The total time spent in the specified operation, in nanoseconds.
+     */
+    public long getNanos(Operation operation) {
+        return nanos.get(operation.ordinal());
+    }
+
+    /**
+     * @return A 64-element histogram of the latency of the specified operation,
+     *         where bucket i counts the durations in [2^i, 2^(i+1))
+     *         nanoseconds.
+     */
+    public long[] getLatencyHistogram(Operation operation) {
+        long[] histogram = new long[64];
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = latencies.get(operation.ordinal() * 64 + i);
+        }
+        return histogram;
+    }
+
+    /**
+     * @return A 32x32 histogram of the result shapes of the specified
+     *         operation, where bucket [i][j] counts the results with
+     *         {@code 2^i <= rows < 2^(i+1)} and {@code 2^j <= cols < 2^(j+1)}.
+     */
+    public long[][] getShapeHistogram(Operation operation) {
+        long[][] histogram = new long[BUCKETS][BUCKETS];
+        int offset = operation.ordinal() * BUCKETS * BUCKETS;
+        for (int i = 0; i < BUCKETS; i++) {
+            for (int j = 0; j < BUCKETS; j++) {
+                histogram[i][j] = shapes.get(offset + i * BUCKETS + j);
+            }
+        }
+        return histogram;
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * MetricsMXBean
+     *
+     * --------------------------------------------------
+     */
+    @Override
+    public long getConstructCount() {
+        return getCount(Operation.CONSTRUCT);
+    }
+
+    @Override
+    public long getTimesCount() {
+        return getCount(Operation.TIMES);
+    }
+
+    @Override
+    public long getElementwiseCount() {
+        return getCount(Operation.ELEMENTWISE);
+    }
+
+    @Override
+    public long getInPlaceCount() {
+        return getCount(Operation.IN_PLACE);
+    }
+
+    @Override
+    public long getBytesAllocated() {
+        long sum = 0;
+        for (int i = 0; i < OPERATIONS; i++) {
+            sum += elements.get(i);
+        }
+        return sum * Double.BYTES;
+    }
+
+    @Override
+    public long getConstructNanos() {
+        return getNanos(Operation.CONSTRUCT);
+    }
+
+    @Override
+    public long getTimesNanos() {
+        return getNanos(Operation.TIMES);
+    }
+
+    @Override
+    public long getElementwiseNanos() {
+        return getNanos(Operation.ELEMENTWISE);
+    }
+
+    @Override
+    public long getInPlaceNanos() {
+        return getNanos(Operation.IN_PLACE);
+    }
+
+    @Override
+    public void reset() {
+        clear(counts);
+        clear(elements);
+        clear(nanos);
+        clear(latencies);
+        clear(shapes);
+    }
+
+    private static void clear(AtomicLongArray array) {
+        for (int i = 0; i < array.length(); i++) {
+            array.set(i, 0);
+        }
+    }
+
+    /**
+     * Register this recorder with the platform MBean server under the name
+     * {@code io.jeti.matrix:type=Metrics}.
+     *
+     * @throws IllegalStateException
+     *             If the registration fails, for example because another
+     *             recorder is already registered.
+     */
+    public void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this,
+                    new ObjectName("io.jeti.matrix:type=Metrics"));
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register the metrics MBean.", e);
+        }
+    }
+}
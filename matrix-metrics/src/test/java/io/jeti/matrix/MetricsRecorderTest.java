@@ -0,0 +1,43 @@
+package io.jeti.matrix;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.jeti.matrix.Metrics.Operation;
+import org.junit.Test;
+
+public class MetricsRecorderTest {
+
+    @Test
+    public void recorder() throws Exception {
+        MetricsRecorder recorder = new MetricsRecorder();
+        Metrics.addListener(recorder);
+        try {
+            assertTrue(Metrics.isEnabled());
+            Matrix A = Matrix.ones(3, 4);
+            Matrix B = Matrix.ones(4, 5);
+            A.times(B);
+            new Vector(7);
+            assertEquals(1, recorder.getCount(Operation.TIMES));
+            assertEquals(4, recorder.getCount(Operation.CONSTRUCT));
+            assertEquals(12 + 20 + 15 + 7, recorder.getElements(Operation.CONSTRUCT));
+            assertEquals((12 + 20 + 15 + 7) * 8, recorder.getBytesAllocated());
+            /* 3x5 lands in rows bucket 1 and cols bucket 2. */
+            assertEquals(1, recorder.getShapeHistogram(Operation.TIMES)[1][2]);
+
+            MutableMatrix C = MutableMatrix.ones(2, 2);
+            C.map(x -> 2 * x);
+            C.scaleInPlace(3).plusInPlace(C);
+            assertEquals(1, recorder.getElementwiseCount());
+            assertEquals(2, recorder.getInPlaceCount());
+        } finally {
+            Metrics.removeListener(recorder);
+        }
+        assertFalse(Metrics.isEnabled());
+        Matrix.ones(2, 2);
+        assertEquals(6, recorder.getCount(Operation.CONSTRUCT));
+        recorder.reset();
+        assertEquals(0, recorder.getBytesAllocated());
+    }
+}
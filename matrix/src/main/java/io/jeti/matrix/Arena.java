@@ -0,0 +1,357 @@
+package io.jeti.matrix;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * A scope inside of which the dense {@link Matrix}, {@link MutableMatrix},
+ * {@link Vector}, {@link MutableVector}, {@link Tensor}, and
+ * {@link MutableTensor} constructors (and therefore every library operation
+ * which builds its result with {@code newInstance}) draw their backing arrays
+ * from a pool instead of the heap. When the scope is closed, all of those
+ * arrays go back to the pool, so a tight loop which creates and discards
+ * same-shaped temporaries stops allocating after the first iteration:
+ *
+ * <pre>
+ * for (int i = 0; i &lt; steps; i++) {
+ *     try (Arena arena = Arena.open()) {
+ *         Matrix next = arena.keep(A.times(x).times(dt));
+ *         ...
+ *     }
+ * }
+ * </pre>
+ *
+ * <b>Everything constructed inside the scope is invalid once the scope is
+ * closed</b>, because its array will be handed out again. This includes views.
+ * Results which must outlive the scope are passed to {@link #keep(Matrix)} (or
+ * one of its overloads), which hands their array over to the garbage
+ * collector.
+ * <p>
+ * Arenas are confined to the thread which opened them, and the pools are
+ * thread-local, so neither acquiring nor releasing an array takes a lock.
+ * Arenas nest: closing an inner arena only releases what was allocated since it
+ * was opened. They must be closed in the reverse order of opening, which
+ * try-with-resources does automatically. Outside of any arena, the
+ * constructors allocate exactly as before.
+ * <p>
+ * Reading a matrix, vector, or tensor whose array went back to the pool
+ * silently returns whatever was written there since. To catch that in tests,
+ * turn on the debug mode, with {@link #setDebug(boolean)} or by setting the
+ * system property {@value #DEBUG_PROPERTY} to {@code true}. Then every matrix,
+ * vector, and tensor constructed in an arena (and every view of one)
+ * remembers which lease of its array it got, and reading it after the array
+ * has been recycled throws an {@link IllegalStateException}.
+ */
+public final class Arena implements AutoCloseable {
+
+    /**
+     * The system property which turns on the debug mode at startup.
+     */
+    public static final String DEBUG_PROPERTY = "io.jeti.matrix.arena.debug";
+
+    /*
+     * --------------------------------------------------
+     *
+     * Private Fields
+     *
+     * --------------------------------------------------
+     */
+    private static final ThreadLocal<Arena> current = new ThreadLocal<>();
+
+    private static final ThreadLocal<Pool>  pools   = new ThreadLocal<Pool>() {
+        @Override
+        protected Pool initialValue() {
+            return new Pool();
+        }
+    };
+
+    /**
+     * The maximum number of elements which each thread's pool retains after
+     * its arenas are closed. Anything beyond this is left to the garbage
+     * collector.
+     */
+    private static volatile long            maxRetained = 1L << 22;
+
+    private static volatile boolean         debug       = Boolean.getBoolean(DEBUG_PROPERTY);
+
+    /**
+     * In debug mode, the number of times each array has been handed out or
+     * recycled by an arena. A matrix is valid while the lease of its array is
+     * the one it was constructed with.
+     */
+    private static final Map<double[], Integer> leases = Collections
+            .synchronizedMap(new WeakHashMap<double[], Integer>());
+
+    private final Arena                     parent;
+    private final Thread                    owner;
+    private final ArrayList<double[]>       buffers     = new ArrayList<>();
+    private boolean                         closed      = false;
+
+    /*
+     * --------------------------------------------------
+     *
+     * Constructors
+     *
+     * --------------------------------------------------
+     */
+    private Arena(Arena parent) {
+        this.parent = parent;
+        this.owner = Thread.currentThread();
+    }
+
+    /**
+     * Open a new arena on the current thread. It stays active until it is
+     * closed.
+     */
+    public static Arena open() {
+        Arena arena = new Arena(current.get());
+        current.set(arena);
+        return arena;
+    }
+
+    /**
+     * Set the maximum number of elements that each thread's pool retains for
+     * reuse. The default is 2^22 elements (32 MiB) per thread.
+     */
+    public static void setMaxRetained(long elements) {
+        if (elements < 0) {
+            throw new IllegalArgumentException(
+                    "The number of elements must be nonnegative, but was " + elements);
+        }
+        maxRetained = elements;
+    }
+
+    /**
+     * Turn the debug mode on or off. It only applies to matrices, vectors, and
+     * tensors constructed afterwards.
+     */
+    public static void setDebug(boolean enabled) {
+        debug = enabled;
+        if (!enabled) {
+            leases.clear();
+        }
+    }
+
+    /**
+     * @return {@code true} if reads of recycled storage are detected.
+     */
+    public static boolean isDebug() {
+        return debug;
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Allocation
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * @return An array of the specified length. Inside of an arena, it comes
+     *         from the pool and its contents are arbitrary. Otherwise, it is a
+     *         fresh array.
+     */
+    static double[] allocate(int length) {
+        Arena arena = current.get();
+        if (arena == null) {
+            return new double[length];
+        }
+        double[] buffer = pools.get().take(length);
+        arena.buffers.add(buffer);
+        if (debug) {
+            renew(buffer);
+        }
+        return buffer;
+    }
+
+    /**
+     * @return The current lease of the array, or 0 if it did not come from an
+     *         arena in debug mode, in which case it is never checked.
+     */
+    static int lease(double[] buffer) {
+        if (!debug) {
+            return 0;
+        }
+        Integer lease = leases.get(buffer);
+        return lease == null ? 0 : lease;
+    }
+
+    /**
+     * @throws IllegalStateException
+     *             If the array has been recycled since the specified lease.
+     */
+    static void check(double[] buffer, int lease) {
+        Integer current = leases.get(buffer);
+        if (current != null && current != lease) {
+            throw new IllegalStateException("The storage was recycled when the arena it was "
+                    + "allocated in closed. Pass results which outlive an arena to keep().");
+        }
+    }
+
+    private static void renew(double[] buffer) {
+        synchronized (leases) {
+            Integer lease = leases.get(buffer);
+            leases.put(buffer, lease == null ? 1 : lease + 1);
+        }
+    }
+
+    /**
+     * @return {@code true} if an arena is open on the current thread, so that
+     *         {@link #allocate(int)} returns recycled storage.
+     */
+    static boolean isActive() {
+        return current.get() != null;
+    }
+
+    /**
+     * Exempt the storage of the specified matrix from being recycled when this
+     * arena (or any arena opened inside of it) closes, so the matrix remains
+     * valid afterwards.
+     *
+     * @return The input, for chaining.
+     */
+    public Matrix keep(Matrix matrix) {
+        release(matrix.buffer());
+        return matrix;
+    }
+
+    /**
+     * See {@link #keep(Matrix)}.
+     */
+    public MutableMatrix keep(MutableMatrix matrix) {
+        release(matrix.buffer());
+        return matrix;
+    }
+
+    /**
+     * See {@link #keep(Matrix)}.
+     */
+    public Vector keep(Vector vector) {
+        release(vector.buffer());
+        return vector;
+    }
+
+    /**
+     * See {@link #keep(Matrix)}.
+     */
+    public MutableVector keep(MutableVector vector) {
+        release(vector.buffer());
+        return vector;
+    }
+
+    /**
+     * See {@link #keep(Matrix)}. Views share the storage of the tensor they
+     * were taken from, so keeping either keeps both.
+     */
+    public Tensor keep(Tensor tensor) {
+        release(tensor.buffer());
+        return tensor;
+    }
+
+    /**
+     * See {@link #keep(Tensor)}.
+     */
+    public MutableTensor keep(MutableTensor tensor) {
+        release(tensor.buffer());
+        return tensor;
+    }
+
+    private void release(double[] buffer) {
+        checkOpen();
+        /*
+         * The array may have come from this arena or from any arena nested
+         * inside of it. The newest allocations are the most likely to be kept.
+         */
+        for (Arena arena = current.get(); arena != null; arena = arena.parent) {
+            for (int i = arena.buffers.size() - 1; i >= 0; i--) {
+                if (arena.buffers.get(i) == buffer) {
+                    arena.buffers.remove(i);
+                    return;
+                }
+            }
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("The arena is already closed.");
+        }
+        if (owner != Thread.currentThread()) {
+            throw new IllegalStateException("The arena belongs to another thread.");
+        }
+    }
+
+    /**
+     * Return every array allocated in this arena to the pool. All matrices and
+     * vectors constructed in this arena (and not kept) are invalid afterwards.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        checkOpen();
+        if (current.get() != this) {
+            throw new IllegalStateException(
+                    "Arenas must be closed in the reverse order of opening.");
+        }
+        Pool pool = pools.get();
+        for (double[] buffer : buffers) {
+            if (debug) {
+                renew(buffer);
+            }
+            pool.give(buffer);
+        }
+        buffers.clear();
+        closed = true;
+        if (parent == null) {
+            current.remove();
+        } else {
+            current.set(parent);
+        }
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Pool
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * The free arrays of one thread, keyed by length.
+     */
+    private static final class Pool {
+
+        private final Map<Integer, ArrayDeque<double[]>> free     = new HashMap<>();
+        private long                                     retained = 0;
+
+        double[] take(int length) {
+            ArrayDeque<double[]> deque = free.get(length);
+            if (deque == null || deque.isEmpty()) {
+                return new double[length];
+            }
+            retained -= length;
+            return deque.pop();
+        }
+
+        void give(double[] buffer) {
+            if (retained + buffer.length > maxRetained) {
+                return;
+            }
+            ArrayDeque<double[]> deque = free.get(buffer.length);
+            if (deque == null) {
+                deque = new ArrayDeque<>();
+                free.put(buffer.length, deque);
+            }
+            deque.push(buffer);
+            retained += buffer.length;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package io.jeti.matrix;
+
+import io.jeti.linalg.matrix.utils.Check;
+import io.jeti.matrix.Gettable.Footprint;
+import io.jeti.matrix.Gettable.Gettable2;
+
+/**
+ * An immutable {@link Matrix} whose nonzero entries all lie within a band
+ * around the main diagonal. That is, the entry at (row, col) is zero unless
+ * {@code -lower <= col - row <= upper}. Only the band is stored, one row of
+ * width {@code lower + upper + 1} per matrix row, so tridiagonal and other
+ * finite-difference matrices cost O(n) memory. Products with a
+ * {@link BandedMatrix} only visit the band.
+ */
+public class BandedMatrix extends Matrix {
+
+    /*
+     * --------------------------------------------------
+     *
+     * Private Fields
+     *
+     * --------------------------------------------------
+     */
+    private final Storage storage;
+
+    /*
+     * --------------------------------------------------
+     *
+     * Constructors
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * Create a (rows x cols) matrix with {@code lower} subdiagonals and
+     * {@code upper} superdiagonals. The filler is only called for entries
+     * inside the band. Everything outside of the band is zero.
+     */
+    public BandedMatrix(int rows, int cols, int lower, int upper, Filler filler) {
+        this(Metrics.start(), fill(rows, cols, lower, upper, filler));
+    }
+
+    private BandedMatrix(long start, Storage storage) {
+        super(start, storage, storage.rows, storage.cols);
+        this.storage = storage;
+    }
+
+    private static Storage fill(int rows, int cols, int lower, int upper, Filler filler) {
+        Check.positive(rows);
+        Check.positive(cols);
+        if (lower < 0 || upper < 0) {
+            throw new IllegalArgumentException(
+                    "The bandwidths must be nonnegative, but were " + lower + " and " + upper);
+        }
+        /* There is no point in storing diagonals which do not exist. */
+        lower = Math.min(lower, rows - 1);
+        upper = Math.min(upper, cols - 1);
+        Storage storage = new Storage(rows, cols, lower, upper);
+        for (int r = 0; r < rows; r++) {
+            for (int c = storage.firstCol(r); c < storage.endCol(r); c++) {
+                storage.band[storage.offset(r, c)] = filler.apply(r, c);
+            }
+        }
+        return storage;
+    }
+
+    /**
+     * @return An (rows x rows) tridiagonal matrix with the constant values
+     *         {@code sub}, {@code diag}, and {@code sup} on the subdiagonal,
+     *         diagonal, and superdiagonal, respectively.
+     */
+    public static BandedMatrix tridiagonal(int rows, final double sub, final double diag,
+            final double sup) {
+        return new BandedMatrix(rows, rows, 1, 1,
+                (row, col) -> row == col ? diag : (col < row ? sub : sup));
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Getters
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * @return The number of subdiagonals which may be nonzero.
+     */
+    public int lower() {
+        return storage.lower;
+    }
+
+    /**
+     * @return The number of superdiagonals which may be nonzero.
+     */
+    public int upper() {
+        return storage.upper;
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Matrix/Matrix Operations
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * Only the band of each row of this matrix contributes. The product of two
+     * banded matrices is banded, with the bandwidths added.
+     */
+    @Override
+    Matrix multiply(final Matrix B) {
+        final Storage a = storage;
+        if (B instanceof BandedMatrix) {
+            final Storage b = ((BandedMatrix) B).storage;
+            return new BandedMatrix(rows(), B.cols(), a.lower + b.lower, a.upper + b.upper,
+                    (row, col) -> {
+                        int from = Math.max(a.firstCol(row), b.firstRow(col));
+                        int to = Math.min(a.endCol(row), b.endRow(col));
+                        double sum = 0.0;
+                        for (int i = from; i < to; i++) {
+                            sum += a.band[a.offset(row, i)] * b.band[b.offset(i, col)];
+                        }
+                        return sum;
+                    });
+        }
+        return B.newInstance(rows(), B.cols(), (row, col) -> {
+            double sum = 0.0;
+            for (int i = a.firstCol(row); i < a.endCol(row); i++) {
+                sum += a.band[a.offset(row, i)] * B.get(i, col);
+            }
+            return sum;
+        });
+    }
+
+    /**
+     * Only the band of each column of this matrix contributes.
+     */
+    @Override
+    Matrix premultiply(final Matrix A) {
+        final Storage b = storage;
+        return A.newInstance(A.rows(), cols(), (row, col) -> {
+            double sum = 0.0;
+            for (int i = b.firstRow(col); i < b.endRow(col); i++) {
+                sum += A.get(row, i) * b.band[b.offset(i, col)];
+            }
+            return sum;
+        });
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Storage
+     *
+     * --------------------------------------------------
+     */
+    private static final class Storage implements Gettable2<Double>, Footprint {
+
+        private final int      rows;
+        private final int      cols;
+        private final int      lower;
+        private final int      upper;
+        private final int      width;
+        private final double[] band;
+
+        Storage(int rows, int cols, int lower, int upper) {
+            this.rows = rows;
+            this.cols = cols;
+            this.lower = lower;
+            this.upper = upper;
+            this.width = lower + upper + 1;
+            this.band = new double[rows * width];
+        }
+
+        /** @return The first column of the band in the specified row. */
+        int firstCol(int row) {
+            return Math.max(0, row - lower);
+        }
+
+        /** @return One past the last column of the band in the specified row. */
+        int endCol(int row) {
+            return Math.min(cols, row + upper + 1);
+        }
+
+        /** @return The first row of the band in the specified column. */
+        int firstRow(int col) {
+            return Math.max(0, col - upper);
+        }
+
+        /** @return One past the last row of the band in the specified column. */
+        int endRow(int col) {
+            return Math.min(rows, col + lower + 1);
+        }
+
+        /** @return The index into {@link #band} of an entry inside the band. */
+        int offset(int row, int col) {
+            return row * width + col - row + lower;
+        }
+
+        @Override
+        public Double get(int row, int col) {
+            int diagonal = col - row;
+            return -lower <= diagonal && diagonal <= upper ? band[offset(row, col)] : 0d;
+        }
+
+        @Override
+        public int size() {
+            return rows;
+        }
+
+        @Override
+        public long footprint() {
+            return band.length;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package io.jeti.matrix;
+
+import io.jeti.linalg.matrix.Mat;
+import io.jeti.linalg.matrix.Vec;
+import io.jeti.linalg.matrix.utils.Check;
+
+/**
+ * A mutable Cholesky factorization {@code A = L L^T} of a symmetric positive
+ * definite matrix, where {@code L} is lower triangular. Factoring costs O(n^3),
+ * but afterwards the factor can follow rank-1 modifications
+ * {@code A + x x^T} ({@link #update}) and {@code A - x x^T}
+ * ({@link #downdate}) in O(n^2) each, which is what online least-squares and
+ * Kalman-style models need when observations arrive or expire one at a time.
+ * <p>
+ * {@code L} is kept in the same packed, row-by-row lower triangle as
+ * {@link SymmetricPackedMatrix}.
+ */
+public class Cholesky {
+
+    /*
+     * --------------------------------------------------
+     *
+     * Private Fields
+     *
+     * --------------------------------------------------
+     */
+    private final int n;
+    private double[]  factor;
+    /** Scratch space, so that a failed downdate leaves the factor unchanged. */
+    private double[]  scratch;
+    private double[]  work;
+
+    /*
+     * --------------------------------------------------
+     *
+     * Constructors
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * Factor the specified symmetric positive definite matrix. Only its lower
+     * triangle is read.
+     *
+     * @throws IllegalArgumentException
+     *             If the matrix is not positive definite.
+     */
+    public Cholesky(Mat<?> A) {
+        Check.zero(A.rows() - A.cols());
+        this.n = A.rows();
+        this.factor = new double[n * (n + 1) / 2];
+        this.scratch = new double[factor.length];
+        this.work = new double[n];
+        for (int i = 0; i < n; i++) {
+            int rowI = offset(i, 0);
+            for (int j = 0; j <= i; j++) {
+                int rowJ = offset(j, 0);
+                double sum = A.get(i, j);
+                for (int k = 0; k < j; k++) {
+                    sum -= factor[rowI + k] * factor[rowJ + k];
+                }
+                if (i == j) {
+                    if (!(sum > 0)) {
+                        throw new IllegalArgumentException(
+                                "The matrix is not positive definite.");
+                    }
+                    factor[rowI + i] = Math.sqrt(sum);
+                } else {
+                    factor[rowI + j] = sum / factor[rowJ + j];
+                }
+            }
+        }
+    }
+
+    /**
+     * Copy another factorization, so that the two can be updated
+     * independently.
+     */
+    Cholesky(Cholesky other) {
+        this.n = other.n;
+        this.factor = other.factor.clone();
+        this.scratch = new double[factor.length];
+        this.work = new double[n];
+    }
+
+    private static int offset(int row, int col) {
+        return SymmetricPackedMatrix.offset(row, col);
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Updates
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * Replace the factored matrix {@code A} by {@code A + x x^T} in O(n^2).
+     */
+    public void update(Vec<?> x) {
+        modify(x, 1);
+    }
+
+    /**
+     * Replace the factored matrix {@code A} by {@code A - x x^T} in O(n^2).
+     *
+     * @throws IllegalArgumentException
+     *             If the result would not be positive definite. The
+     *             factorization is unchanged in that case.
+     */
+    public void downdate(Vec<?> x) {
+        modify(x, -1);
+    }
+
+    /**
+     * The classical sequence of rotations (hyperbolic ones for a downdate)
+     * which zero out x against the diagonal of L, one column at a time.
+     */
+    private void modify(Vec<?> x, double sign) {
+        Check.zero(x.size() - n);
+        for (int i = 0; i < n; i++) {
+            work[i] = x.get(i);
+        }
+        double[] L = scratch;
+        System.arraycopy(factor, 0, L, 0, factor.length);
+        for (int k = 0; k < n; k++) {
+            int kk = offset(k, k);
+            double diagonal = L[kk];
+            double squared = diagonal * diagonal + sign * work[k] * work[k];
+            if (!(squared > 0)) {
+                throw new IllegalArgumentException(
+                        "The downdated matrix is not positive definite.");
+            }
+            double r = Math.sqrt(squared);
+            double c = r / diagonal;
+            double s = work[k] / diagonal;
+            L[kk] = r;
+            for (int i = k + 1; i < n; i++) {
+                int ik = offset(i, k);
+                L[ik] = (L[ik] + sign * s * work[i]) / c;
+                work[i] = c * work[i] - s * L[ik];
+            }
+        }
+        scratch = factor;
+        factor = L;
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Getters
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * @return A copy of the lower triangular factor {@code L}.
+     */
+    public TriangularMatrix factor() {
+        final double[] L = factor;
+        return new TriangularMatrix(n, false, (row, col) -> L[offset(row, col)]);
+    }
+
+    /**
+     * @return The solution {@code y} of {@code A y = b}, by forward and back
+     *         substitution with the factor.
+     */
+    public Vector solve(Vec<?> b) {
+        Check.zero(b.size() - n);
+        final double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            double sum = b.get(i);
+            int row = offset(i, 0);
+            for (int k = 0; k < i; k++) {
+                sum -= factor[row + k] * y[k];
+            }
+            y[i] = sum / factor[row + i];
+        }
+        for (int i = n - 1; i >= 0; i--) {
+            double sum = y[i];
+            for (int k = i + 1; k < n; k++) {
+                sum -= factor[offset(k, i)] * y[k];
+            }
+            y[i] = sum / factor[offset(i, i)];
+        }
+        return new Vector(n, index -> y[index]);
+    }
+}
@@ -0,0 +1,207 @@
+package io.jeti.matrix;
+
+import io.jeti.linalg.matrix.Mat;
+import io.jeti.linalg.matrix.Vec;
+
+/**
+ * Bulk equality, hashing, and approximate comparison for {@link Matrix},
+ * {@link MutableMatrix}, {@link Vector}, and {@link MutableVector}. The
+ * elements are read straight out of the primitive storage of each operand
+ * (including its views), and contiguous operands are compared in one flat
+ * loop. Vectors are treated as (n x 1) matrices.
+ * <p>
+ * Two elements are equal if they have the same bits, as in
+ * {@link java.util.Arrays#equals(double[], double[])}, so that NaN equals
+ * itself and 0.0 does not equal -0.0. This keeps {@code equals} consistent
+ * with {@code hashCode}.
+ */
+final class Comparison {
+
+    private Comparison() {
+    }
+
+    /**
+     * @return The hash code of the elements in row-major order, after the
+     *         shape. Matrices and vectors with equal shapes and elements have
+     *         equal hash codes, whatever their type or storage.
+     */
+    static int hashCode(Reader a, int rows, int cols) {
+        int hash = 31 * (31 + rows) + cols;
+        if (a.rowOffsets == null) {
+            int end = a.base + rows * cols;
+            for (int i = a.base; i < end; i++) {
+                hash = 31 * hash + hash(a.data[i]);
+            }
+            return hash;
+        }
+        for (int r = 0; r < rows; r++) {
+            int ar = a.rowOffsets[r];
+            for (int c = 0; c < cols; c++) {
+                hash = 31 * hash + hash(a.data[ar + a.colOffsets[c]]);
+            }
+        }
+        return hash;
+    }
+
+    private static int hash(double value) {
+        long bits = Double.doubleToLongBits(value);
+        return (int) (bits ^ (bits >>> 32));
+    }
+
+    /**
+     * @return {@code true} if the two (rows x cols) operands have the same
+     *         elements. This stops at the first difference.
+     */
+    static boolean equals(Reader a, Reader b, int rows, int cols) {
+        if (a.rowOffsets == null && b.rowOffsets == null) {
+            int n = rows * cols;
+            for (int i = 0; i < n; i++) {
+                if (Double.doubleToLongBits(a.data[a.base + i]) != Double
+                        .doubleToLongBits(b.data[b.base + i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                if (Double.doubleToLongBits(a.get(r, c, cols)) != Double
+                        .doubleToLongBits(b.get(r, c, cols))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return {@code true} if every pair of elements x and y of the two
+     *         (rows x cols) operands is equal, or satisfies
+     *         {@code |x - y| <= max(absTol, relTol * max(|x|, |y|))}. This
+     *         stops at the first pair which does not.
+     */
+    static boolean approxEquals(Reader a, Reader b, int rows, int cols, double absTol,
+            double relTol) {
+        if (!(absTol >= 0) || !(relTol >= 0)) {
+            throw new IllegalArgumentException("The tolerances must be nonnegative, but were "
+                    + absTol + " and " + relTol);
+        }
+        if (a.rowOffsets == null && b.rowOffsets == null) {
+            int n = rows * cols;
+            for (int i = 0; i < n; i++) {
+                if (!close(a.data[a.base + i], b.data[b.base + i], absTol, relTol)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                if (!close(a.get(r, c, cols), b.get(r, c, cols), absTol, relTol)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean close(double x, double y, double absTol, double relTol) {
+        double difference = Math.abs(x - y);
+        if (difference <= absTol) {
+            return true;
+        }
+        if (difference <= relTol * Math.max(Math.abs(x), Math.abs(y))) {
+            return true;
+        }
+        /* Infinities of the same sign, and NaNs, have an undefined difference. */
+        return Double.doubleToLongBits(x) == Double.doubleToLongBits(y);
+    }
+
+    /**
+     * Element access for a comparison: either {@code rows * cols} contiguous
+     * elements from {@code base}, or the gather offsets of a view.
+     */
+    static final class Reader {
+
+        private final double[] data;
+        private final int      base;
+        private final int[]    rowOffsets;
+        private final int[]    colOffsets;
+
+        private Reader(double[] data, int base, int[] rowOffsets, int[] colOffsets) {
+            this.data = data;
+            this.base = base;
+            this.rowOffsets = rowOffsets;
+            this.colOffsets = colOffsets;
+        }
+
+        private double get(int row, int col, int cols) {
+            return rowOffsets == null ? data[base + row * cols + col]
+                    : data[rowOffsets[row] + colOffsets[col]];
+        }
+
+        /**
+         * @return A reader of the matrix, which copies it only if it is not
+         *         stored in a flat array.
+         */
+        static Reader of(Mat<?> A) {
+            double[] buffer = null;
+            int base = -1;
+            int[][] offsets = null;
+            if (A instanceof Matrix) {
+                Matrix matrix = (Matrix) A;
+                buffer = matrix.buffer();
+                base = matrix.contiguous();
+                offsets = base < 0 ? matrix.gather() : null;
+            } else if (A instanceof MutableMatrix) {
+                MutableMatrix matrix = (MutableMatrix) A;
+                buffer = matrix.buffer();
+                base = matrix.contiguous();
+                offsets = base < 0 ? matrix.gather() : null;
+            }
+            if (buffer != null && base >= 0) {
+                return new Reader(buffer, base, null, null);
+            } else if (buffer != null && offsets != null) {
+                return new Reader(buffer, 0, offsets[0], offsets[1]);
+            }
+            double[] copy = new double[A.rows() * A.cols()];
+            for (int r = 0; r < A.rows(); r++) {
+                for (int c = 0; c < A.cols(); c++) {
+                    copy[r * A.cols() + c] = A.get(r, c).doubleValue();
+                }
+            }
+            return new Reader(copy, 0, null, null);
+        }
+
+        /**
+         * @return A reader of the vector as an (n x 1) matrix, which copies
+         *         it only if it is not stored in a flat array.
+         */
+        static Reader of(Vec<?> x) {
+            double[] buffer = null;
+            int base = -1;
+            int[] offsets = null;
+            if (x instanceof Vector) {
+                Vector vector = (Vector) x;
+                buffer = vector.buffer();
+                base = vector.contiguous();
+                offsets = base < 0 ? vector.gather() : null;
+            } else if (x instanceof MutableVector) {
+                MutableVector vector = (MutableVector) x;
+                buffer = vector.buffer();
+                base = vector.contiguous();
+                offsets = base < 0 ? vector.gather() : null;
+            }
+            if (buffer != null && base >= 0) {
+                return new Reader(buffer, base, null, null);
+            } else if (buffer != null && offsets != null) {
+                return new Reader(buffer, 0, offsets, new int[] { 0 });
+            }
+            double[] copy = new double[x.size()];
+            for (int i = 0; i < copy.length; i++) {
+                copy[i] = x.get(i).doubleValue();
+            }
+            return new Reader(copy, 0, null, null);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package io.jeti.matrix;
+
+import io.jeti.linalg.matrix.Vec;
+import io.jeti.linalg.matrix.utils.Check;
+import io.jeti.matrix.Gettable.Footprint;
+import io.jeti.matrix.Gettable.Gettable2;
+import java.util.List;
+
+/**
+ * An immutable, square {@link Matrix} which is zero everywhere except on the
+ * main diagonal. Only the diagonal is stored, so an (n x n) instance needs n
+ * doubles instead of n^2. Products with a {@link DiagonalMatrix} reduce to row
+ * scalings (from the left) and column scalings (from the right).
+ */
+public class DiagonalMatrix extends Matrix {
+
+    /*
+     * --------------------------------------------------
+     *
+     * Private Fields
+     *
+     * --------------------------------------------------
+     */
+    private final Storage storage;
+
+    /*
+     * --------------------------------------------------
+     *
+     * Constructors
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * Create a (rows x rows) diagonal matrix, where the diagonal entry at
+     * {@code index} is {@code filler.apply(index)}.
+     */
+    public DiagonalMatrix(int rows, Vec.Filler filler) {
+        this(Metrics.start(), fill(rows, filler));
+    }
+
+    /**
+     * Create a diagonal matrix with the specified diagonal.
+     */
+    public DiagonalMatrix(final List<Number> diagonal) {
+        this(diagonal.size(), index -> diagonal.get(index).doubleValue());
+    }
+
+    /**
+     * Create a diagonal matrix with the specified diagonal.
+     */
+    public DiagonalMatrix(final Number[] diagonal) {
+        this(diagonal.length, index -> diagonal[index].doubleValue());
+    }
+
+    /**
+     * Create a diagonal matrix with the specified diagonal.
+     */
+    public DiagonalMatrix(final Vec<?> diagonal) {
+        this(diagonal.size(), index -> diagonal.get(index));
+    }
+
+    private DiagonalMatrix(long start, Storage storage) {
+        super(start, storage, storage.diagonal.length, storage.diagonal.length);
+        this.storage = storage;
+    }
+
+    private static Storage fill(int rows, Vec.Filler filler) {
+        Check.positive(rows);
+        double[] diagonal = new double[rows];
+        for (int i = 0; i < rows; i++) {
+            diagonal[i] = filler.apply(i);
+        }
+        return new Storage(diagonal);
+    }
+
+    /**
+     * @return A (rows x rows) identity matrix.
+     */
+    public static DiagonalMatrix eye(int rows) {
+        return new DiagonalMatrix(rows, index -> 1d);
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Getters
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * @return The entry at ({@code index}, {@code index}).
+     */
+    public double diagonal(int index) {
+        return storage.diagonal[index];
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Matrix/Matrix Operations
+     *
+     * --------------------------------------------------
+     */
+    @Override
+    public Matrix T() {
+        return this;
+    }
+
+    /**
+     * Diagonal times anything is a row scaling of the right operand. Diagonal
+     * times diagonal stays diagonal.
+     */
+    @Override
+    Matrix multiply(final Matrix B) {
+        final double[] d = storage.diagonal;
+        if (B instanceof DiagonalMatrix) {
+            final double[] e = ((DiagonalMatrix) B).storage.diagonal;
+            return new DiagonalMatrix(d.length, index -> d[index] * e[index]);
+        }
+        return B.newInstance(rows(), B.cols(), (row, col) -> d[row] * B.get(row, col));
+    }
+
+    /**
+     * Anything times diagonal is a column scaling of the left operand.
+     */
+    @Override
+    Matrix premultiply(final Matrix A) {
+        final double[] d = storage.diagonal;
+        return A.newInstance(A.rows(), cols(), (row, col) -> A.get(row, col) * d[col]);
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Storage
+     *
+     * --------------------------------------------------
+     */
+    private static final class Storage implements Gettable2<Double>, Footprint {
+
+        private final double[] diagonal;
+
+        Storage(double[] diagonal) {
+            this.diagonal = diagonal;
+        }
+
+        @Override
+        public Double get(int row, int col) {
+            return row == col ? diagonal[row] : 0d;
+        }
+
+        @Override
+        public int size() {
+            return diagonal.length;
+        }
+
+        @Override
+        public long footprint() {
+            return diagonal.length;
+        }
+    }
+}
@@ -0,0 +1,361 @@
+package io.jeti.matrix;
+
+import io.jeti.linalg.matrix.utils.Check;
+import java.io.IOException;
+
+/**
+ * An immutable matrix which is split into a (gridRows x gridCols) grid of
+ * blocks, one per node of a {@link Transport}. Node {@code i * gridCols + j}
+ * owns block (i, j), and the row and column boundaries of the blocks are as
+ * even as possible. Each node only stores its own block, so unlike the other
+ * matrices in this package, this does not offer access to arbitrary elements,
+ * which would take a round trip to the owner. Instead, every operation is
+ * collective: all of the nodes must call it, in the same order, each with its
+ * own instance.
+ * <p>
+ * Products use SUMMA (van de Geijn and Watts, 1997). For every panel of the
+ * inner dimension, the nodes owning that panel of A send it along their grid
+ * row, the nodes owning that panel of B send it down their grid column, and
+ * every node adds the product of the two panels it received to its block of
+ * the result. The nodes exchange panels directly, without a coordinator, and
+ * no node ever holds more than its own blocks plus one panel of each operand.
+ */
+public final class DistributedMatrix {
+
+    /*
+     * --------------------------------------------------
+     *
+     * Private Fields
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * The maximum width of a SUMMA panel.
+     */
+    static final int          PANEL      = 256;
+
+    private static final int  TAG_REDUCE = 1;
+    private static final int  TAG_GATHER = 2;
+    private static final int  TAG_PANEL  = 16;
+
+    private final Transport   transport;
+    private final int         rows;
+    private final int         cols;
+    private final int[]       rowBounds;
+    private final int[]       colBounds;
+    private final int         gridRow;
+    private final int         gridCol;
+    private final double[]    block;
+    private final Matrix      local;
+
+    /*
+     * --------------------------------------------------
+     *
+     * Constructors
+     *
+     * --------------------------------------------------
+     */
+    private DistributedMatrix(Transport transport, int rows, int cols, int gridRows,
+            int gridCols, double[] block) {
+        this.transport = transport;
+        this.rows = rows;
+        this.cols = cols;
+        this.rowBounds = bounds(rows, gridRows);
+        this.colBounds = bounds(cols, gridCols);
+        this.gridRow = transport.rank() / gridCols;
+        this.gridCol = transport.rank() % gridCols;
+        this.block = block;
+        this.local = new Matrix(new Gettable.Array2(block, localCols()), localRows(), localCols());
+    }
+
+    /**
+     * @return This node's share of the matrix A, which every node can read.
+     *         Each node only reads its own block, through a view of A.
+     */
+    public static DistributedMatrix partition(Transport transport, Matrix A, int gridRows,
+            int gridCols) {
+        checkGrid(transport, A.rows(), A.cols(), gridRows, gridCols);
+        int[] rowBounds = bounds(A.rows(), gridRows);
+        int[] colBounds = bounds(A.cols(), gridCols);
+        int i = transport.rank() / gridCols;
+        int j = transport.rank() % gridCols;
+        Matrix view = A.get(rowBounds[i], rowBounds[i + 1] - 1, 1, colBounds[j],
+                colBounds[j + 1] - 1, 1);
+        return new DistributedMatrix(transport, A.rows(), A.cols(), gridRows, gridCols,
+                view.toArray());
+    }
+
+    /**
+     * @return A (rows x cols) distributed matrix, where this node's block is
+     *         {@code local}, which must have the shape given by
+     *         {@link #localRows()} and {@link #localCols()}.
+     */
+    public static DistributedMatrix of(Transport transport, int rows, int cols, int gridRows,
+            int gridCols, Matrix local) {
+        checkGrid(transport, rows, cols, gridRows, gridCols);
+        DistributedMatrix result = new DistributedMatrix(transport, rows, cols, gridRows,
+                gridCols, local.toArray());
+        Check.zero(local.rows() - result.localRows());
+        Check.zero(local.cols() - result.localCols());
+        return result;
+    }
+
+    private static void checkGrid(Transport transport, int rows, int cols, int gridRows,
+            int gridCols) {
+        Check.positive(gridRows);
+        Check.positive(gridCols);
+        if (transport.size() != gridRows * gridCols) {
+            throw new IllegalArgumentException("A (" + gridRows + " x " + gridCols
+                    + ") grid needs " + gridRows * gridCols + " nodes, but the transport has "
+                    + transport.size());
+        }
+        if (rows < gridRows || cols < gridCols) {
+            throw new IllegalArgumentException("A (" + rows + " x " + cols
+                    + ") matrix cannot be split into a (" + gridRows + " x " + gridCols
+                    + ") grid of nonempty blocks.");
+        }
+    }
+
+    /**
+     * @return The n + 1 boundaries which split [0, size) into n nearly equal
+     *         parts.
+     */
+    static int[] bounds(int size, int n) {
+        int[] bounds = new int[n + 1];
+        for (int i = 0; i <= n; i++) {
+            bounds[i] = (int) ((long) size * i / n);
+        }
+        return bounds;
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Getters
+     *
+     * --------------------------------------------------
+     */
+    public int rows() {
+        return rows;
+    }
+
+    public int cols() {
+        return cols;
+    }
+
+    public int gridRows() {
+        return rowBounds.length - 1;
+    }
+
+    public int gridCols() {
+        return colBounds.length - 1;
+    }
+
+    /**
+     * @return The block owned by this node.
+     */
+    public Matrix local() {
+        return local;
+    }
+
+    /**
+     * @return The row of the full matrix at which this node's block starts.
+     */
+    public int localRowOffset() {
+        return rowBounds[gridRow];
+    }
+
+    /**
+     * @return The column of the full matrix at which this node's block starts.
+     */
+    public int localColOffset() {
+        return colBounds[gridCol];
+    }
+
+    public int localRows() {
+        return rowBounds[gridRow + 1] - rowBounds[gridRow];
+    }
+
+    public int localCols() {
+        return colBounds[gridCol + 1] - colBounds[gridCol];
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Matrix/Matrix Operations
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * @return {@code this * B}, computed with SUMMA and distributed over the
+     *         same grid. This is collective.
+     */
+    public DistributedMatrix times(DistributedMatrix B) throws IOException {
+        Check.zero(cols - B.rows);
+        checkSameGrid(B);
+        long start = Metrics.start();
+        int m = localRows();
+        int n = B.localCols();
+        double[] c = new double[m * n];
+
+        /* The panels never straddle a block boundary of either operand. */
+        int from = 0;
+        int owner = 0;
+        int ownerRow = 0;
+        int panel = 0;
+        while (from < cols) {
+            while (colBounds[owner + 1] <= from) {
+                owner++;
+            }
+            while (B.rowBounds[ownerRow + 1] <= from) {
+                ownerRow++;
+            }
+            int to = Math.min(from + PANEL,
+                    Math.min(colBounds[owner + 1], B.rowBounds[ownerRow + 1]));
+            int width = to - from;
+            int tag = TAG_PANEL + 2 * panel;
+            double[] a = rowPanel(owner, from, width, tag);
+            double[] b = B.colPanel(ownerRow, from, width, tag + 1);
+            Kernels.gemmAdd(a, b, c, m, width, n);
+            from = to;
+            panel++;
+        }
+        Metrics.record(Metrics.Operation.TIMES, DistributedMatrix.class, m, n, 0, start);
+        return new DistributedMatrix(transport, rows, B.cols, gridRows(), gridCols(), c);
+    }
+
+    /**
+     * @return Columns [from, from + width) of this grid row, as a (localRows x
+     *         width) array, sent by the owner in grid column {@code owner} to
+     *         the rest of the grid row.
+     */
+    private double[] rowPanel(int owner, int from, int width, int tag) throws IOException {
+        int m = localRows();
+        int source = gridRow * gridCols() + owner;
+        if (gridCol != owner) {
+            return transport.receive(source, tag);
+        }
+        double[] panel = new double[m * width];
+        int offset = from - colBounds[gridCol];
+        int n = localCols();
+        for (int r = 0; r < m; r++) {
+            System.arraycopy(block, r * n + offset, panel, r * width, width);
+        }
+        for (int j = 0; j < gridCols(); j++) {
+            if (j != gridCol) {
+                transport.send(gridRow * gridCols() + j, tag, panel, 0, panel.length);
+            }
+        }
+        return panel;
+    }
+
+    /**
+     * @return Rows [from, from + width) of this grid column, as a (width x
+     *         localCols) array, sent by the owner in grid row {@code owner} to
+     *         the rest of the grid column.
+     */
+    private double[] colPanel(int owner, int from, int width, int tag) throws IOException {
+        int n = localCols();
+        int source = owner * gridCols() + gridCol;
+        if (gridRow != owner) {
+            return transport.receive(source, tag);
+        }
+        int offset = (from - rowBounds[gridRow]) * n;
+        double[] panel = new double[width * n];
+        System.arraycopy(block, offset, panel, 0, panel.length);
+        for (int i = 0; i < gridRows(); i++) {
+            if (i != gridRow) {
+                transport.send(i * gridCols() + gridCol, tag, panel, 0, panel.length);
+            }
+        }
+        return panel;
+    }
+
+    private void checkSameGrid(DistributedMatrix B) {
+        if (B.transport != transport || B.gridRows() != gridRows()
+                || B.gridCols() != gridCols()) {
+            throw new IllegalArgumentException(
+                    "Both matrices must be distributed over the same grid.");
+        }
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Reductions
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * @return The sum of all elements. This is collective, and every node
+     *         gets the same result.
+     */
+    public double sum() throws IOException {
+        double sum = 0;
+        for (double value : block) {
+            sum += value;
+        }
+        return allReduce(sum);
+    }
+
+    /**
+     * @return The Frobenius norm. This is collective, and every node gets the
+     *         same result.
+     */
+    public double norm() throws IOException {
+        double sum = 0;
+        for (double value : block) {
+            sum += value * value;
+        }
+        return Math.sqrt(allReduce(sum));
+    }
+
+    /**
+     * @return The full matrix, assembled on every node. This is collective,
+     *         and only sensible for matrices which fit on one node.
+     */
+    public Matrix gather() throws IOException {
+        int rank = transport.rank();
+        for (int node = 0; node < transport.size(); node++) {
+            if (node != rank) {
+                transport.send(node, TAG_GATHER, block, 0, block.length);
+            }
+        }
+        double[] full = new double[rows * cols];
+        for (int node = 0; node < transport.size(); node++) {
+            double[] part = node == rank ? block : transport.receive(node, TAG_GATHER);
+            int i = node / gridCols();
+            int j = node % gridCols();
+            int width = colBounds[j + 1] - colBounds[j];
+            for (int r = rowBounds[i]; r < rowBounds[i + 1]; r++) {
+                System.arraycopy(part, (r - rowBounds[i]) * width, full, r * cols + colBounds[j],
+                        width);
+            }
+        }
+        return new Matrix(new Gettable.Array2(full, cols), rows, cols);
+    }
+
+    /**
+     * @return The sum of {@code value} over all nodes. Every node sends its
+     *         value to every other node and adds them up in rank order, so the
+     *         result is bitwise identical everywhere.
+     */
+    private double allReduce(double value) throws IOException {
+        int rank = transport.rank();
+        double[] message = { value };
+        for (int node = 0; node < transport.size(); node++) {
+            if (node != rank) {
+                transport.send(node, TAG_REDUCE, message, 0, 1);
+            }
+        }
+        double sum = 0;
+        for (int node = 0; node < transport.size(); node++) {
+            sum += node == rank ? value : transport.receive(node, TAG_REDUCE)[0];
+        }
+        return sum;
+    }
+}
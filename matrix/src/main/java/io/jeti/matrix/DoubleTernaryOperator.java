@@ -0,0 +1,14 @@
+package io.jeti.matrix;
+
+import java.util.function.DoubleBinaryOperator;
+
+/**
+ * The three-argument sibling of {@link DoubleBinaryOperator}, which lets three
+ * operands be fused into a single element-wise pass, for example
+ * {@code A.zipWith(B, C, (a, b, c) -> a * b + c)}.
+ */
+@FunctionalInterface
+public interface DoubleTernaryOperator {
+
+    double applyAsDouble(double a, double b, double c);
+}
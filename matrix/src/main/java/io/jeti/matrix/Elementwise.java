@@ -0,0 +1,96 @@
+package io.jeti.matrix;
+
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * The loops behind the element-wise {@code map} and {@code zipWith} methods.
+ * Each kernel runs over contiguous runs of primitive arrays, with no boxing
+ * and no index checks beyond the array's own, so the JIT is free to unroll
+ * and vectorize it. Runs of at least {@link #PARALLEL} elements are split into
+ * blocks which run on the common fork-join pool where the platform has one
+ * (see {@link Parallel}). The operators must therefore be stateless.
+ * <p>
+ * The operators are {@code java.util.function} types, so on Android, the
+ * {@code map} and {@code zipWith} methods need API level 24. Nothing else on
+ * the default paths depends on them.
+ */
+final class Elementwise {
+
+    /**
+     * Runs with at least this many elements are split across threads.
+     */
+    static final int         PARALLEL = 1 << 15;
+
+    /**
+     * The number of elements per parallel block.
+     */
+    private static final int BLOCK    = 1 << 13;
+
+    private Elementwise() {
+    }
+
+    /**
+     * z[zo + i] = op(x[xo + i]) for i in [0, n). The arrays may alias.
+     */
+    static void map(final double[] x, final int xo, final double[] z, final int zo, int n,
+            final DoubleUnaryOperator op) {
+        if (n < PARALLEL) {
+            for (int i = 0; i < n; i++) {
+                z[zo + i] = op.applyAsDouble(x[xo + i]);
+            }
+        } else {
+            Parallel.forEach(blocks(n), true, block -> {
+                int to = Math.min(n, (block + 1) * BLOCK);
+                for (int i = block * BLOCK; i < to; i++) {
+                    z[zo + i] = op.applyAsDouble(x[xo + i]);
+                }
+            });
+        }
+    }
+
+    /**
+     * z[zo + i] = op(x[xo + i], y[yo + i]) for i in [0, n). The arrays may
+     * alias.
+     */
+    static void zip(final double[] x, final int xo, final double[] y, final int yo,
+            final double[] z, final int zo, int n, final DoubleBinaryOperator op) {
+        if (n < PARALLEL) {
+            for (int i = 0; i < n; i++) {
+                z[zo + i] = op.applyAsDouble(x[xo + i], y[yo + i]);
+            }
+        } else {
+            Parallel.forEach(blocks(n), true, block -> {
+                int to = Math.min(n, (block + 1) * BLOCK);
+                for (int i = block * BLOCK; i < to; i++) {
+                    z[zo + i] = op.applyAsDouble(x[xo + i], y[yo + i]);
+                }
+            });
+        }
+    }
+
+    /**
+     * z[zo + i] = op(x[xo + i], y[yo + i], w[wo + i]) for i in [0, n). The
+     * arrays may alias.
+     */
+    static void zip(final double[] x, final int xo, final double[] y, final int yo,
+            final double[] w, final int wo, final double[] z, final int zo, int n,
+            final DoubleTernaryOperator op) {
+        if (n < PARALLEL) {
+            for (int i = 0; i < n; i++) {
+                z[zo + i] = op.applyAsDouble(x[xo + i], y[yo + i], w[wo + i]);
+            }
+        } else {
+            Parallel.forEach(blocks(n), true, block -> {
+                int to = Math.min(n, (block + 1) * BLOCK);
+                for (int i = block * BLOCK; i < to; i++) {
+                    z[zo + i] = op.applyAsDouble(x[xo + i], y[yo + i], w[wo + i]);
+                }
+            });
+        }
+    }
+
+    private static int blocks(int n) {
+        return (n + BLOCK - 1) / BLOCK;
+    }
+}
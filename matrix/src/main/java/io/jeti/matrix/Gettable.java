@@ -5,18 +5,18 @@ import java.io.Serializable;
 
 /**
  * The sole purpose of these interfaces is to enable all of the concrete classes
- * to have either a concrete implementation of {@link Tsr} OR some List as the
- * field which holds the data. This is the simplest way of allowing the
- * {@link Tsr} implementations to permit views. Specifically, suppose we have a
- * {@link Vector} with the data {0,1,2,3,4} and we want a view of the subvector
- * {1,2,3}. So that we really return a view of the data (not just a copy), we
- * need to pass the original list {0,1,2,3,4} to the new vector and tell it to
- * "get" its elements from that original list. Now the problem comes in when we
- * try to get a view of the new vector {1,2,3}. For instance, let's suppose we
- * want to pull off the first two elements. Either we transform the indices and
- * stride to handle this, or we create a wrapper like this one. Transforming the
- * indices is preferable from a speed point of view, but more difficult to
- * compute. So we chalk that up to "future work".
+ * to have either a concrete implementation of {@link Tsr} OR some List (or a
+ * flat array) as the field which holds the data. This is the simplest way of
+ * allowing the {@link Tsr} implementations to permit views. Specifically,
+ * suppose we have a {@link Vector} with the data {0,1,2,3,4} and we want a view
+ * of the subvector {1,2,3}. So that we really return a view of the data (not
+ * just a copy), we need to pass the original list {0,1,2,3,4} to the new vector
+ * and tell it to "get" its elements from that original list. Now the problem
+ * comes in when we try to get a view of the new vector {1,2,3}. For instance,
+ * let's suppose we want to pull off the first two elements. Either we transform
+ * the indices and stride to handle this, or we create a wrapper like this one.
+ * Transforming the indices is preferable from a speed point of view, but more
+ * difficult to compute. So we chalk that up to "future work".
  */
 interface Gettable {
 
@@ -54,6 +54,23 @@ interface Gettable {
         T get(int a, int b, int c, int d, int e, int f);
     }
 
+    /**
+     * Storage which knows how many elements it allocated, which is what
+     * {@link Metrics} reports for the construction that adopted it. Any other
+     * storage, such as a view or a wrapped array, allocated nothing.
+     */
+    interface Footprint {
+
+        long footprint();
+    }
+
+    /**
+     * @return The footprint of the storage, or 0 if it does not have one.
+     */
+    static long footprint(Object storage) {
+        return storage instanceof Footprint ? ((Footprint) storage).footprint() : 0;
+    }
+
     class List<T> implements Gettable1<T> {
 
         private final java.util.List<T> list;
@@ -130,4 +147,100 @@ interface Gettable {
         }
     }
 
+    /**
+     * A flat array. It is {@code external} if the caller which supplied it
+     * can still change it (see {@link Vector#wrap}).
+     */
+    class Array implements Gettable1<Double>, Footprint {
+
+        final double[] array;
+        final boolean  external;
+        final int      lease;
+
+        public Array(double[] array) {
+            this(array, false);
+        }
+
+        public Array(double[] array, boolean external) {
+            this.array = array;
+            this.external = external;
+            this.lease = external ? 0 : Arena.lease(array);
+        }
+
+        /**
+         * @return The array, which in debug mode is checked to still belong
+         *         to this storage (see {@link Arena#setDebug(boolean)}).
+         */
+        double[] array() {
+            if (lease != 0) {
+                Arena.check(array, lease);
+            }
+            return array;
+        }
+
+        @Override
+        public Double get(int a) {
+            return array()[a];
+        }
+
+        @Override
+        public int size() {
+            return array.length;
+        }
+
+        @Override
+        public long footprint() {
+            return external ? 0 : array.length;
+        }
+    }
+
+    /**
+     * A row-major view of a flat array. It is {@code external} if the caller
+     * which supplied it can still change it (see {@link Matrix#wrap}).
+     */
+    class Array2 implements Gettable2<Double>, Footprint {
+
+        final double[] array;
+        final int      cols;
+        final boolean  external;
+        final int      lease;
+
+        public Array2(double[] array, int cols) {
+            this(array, cols, false);
+        }
+
+        public Array2(double[] array, int cols, boolean external) {
+            this.array = array;
+            this.cols = cols;
+            this.external = external;
+            this.lease = external ? 0 : Arena.lease(array);
+        }
+
+        /**
+         * @return The array, which in debug mode is checked to still belong
+         *         to this storage (see {@link Arena#setDebug(boolean)}).
+         */
+        double[] array() {
+            if (lease != 0) {
+                Arena.check(array, lease);
+            }
+            return array;
+        }
+
+        @Override
+        public Double get(int a, int b) {
+            return array()[a * cols + b];
+        }
+
+        @Override
+        public int size() {
+            return array.length / cols;
+        }
+
+        @Override
+        public long footprint() {
+            return external ? 0 : array.length;
+        }
+    }
+
 }
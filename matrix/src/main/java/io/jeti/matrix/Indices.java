@@ -0,0 +1,51 @@
+package io.jeti.matrix;
+
+import io.jeti.linalg.matrix.utils.Check;
+
+/**
+ * Validation for the index-array and mask views of {@link Matrix},
+ * {@link MutableMatrix}, {@link Vector}, and {@link MutableVector}.
+ */
+final class Indices {
+
+    private Indices() {
+    }
+
+    /**
+     * @return A copy of the indices, after checking that they are all in [0,
+     *         size).
+     */
+    static int[] check(int[] indices, int size) {
+        Check.positive(indices.length);
+        for (int i : indices) {
+            if (i < 0 || i >= size) {
+                throw new IndexOutOfBoundsException(
+                        "The index " + i + " is not in [0, " + size + ").");
+            }
+        }
+        return indices.clone();
+    }
+
+    /**
+     * @return The indices at which the mask, which must have the specified
+     *         size, is {@code true}.
+     */
+    static int[] of(boolean[] mask, int size) {
+        Check.zero(mask.length - size);
+        int count = 0;
+        for (boolean selected : mask) {
+            if (selected) {
+                count++;
+            }
+        }
+        Check.positive(count);
+        int[] indices = new int[count];
+        count = 0;
+        for (int i = 0; i < mask.length; i++) {
+            if (mask[i]) {
+                indices[count++] = i;
+            }
+        }
+        return indices;
+    }
+}
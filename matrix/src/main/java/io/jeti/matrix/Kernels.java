@@ -0,0 +1,309 @@
+package io.jeti.matrix;
+
+/**
+ * Dense kernels on row-major primitive arrays, shared by the classes which
+ * need more than element access: the matrix functions, the factorizations,
+ * and the multiplication paths. None of them allocate, except that the
+ * gather product may copy its right operand. The products never skip zero
+ * entries, so that infinities and NaNs propagate the same way on every path.
+ */
+final class Kernels {
+
+    private Kernels() {
+    }
+
+    /**
+     * c = a * b, where a is (m x k), b is (k x n), and c is (m x n). The output
+     * must not alias either input.
+     */
+    static void gemm(double[] a, double[] b, double[] c, int m, int k, int n) {
+        for (int i = 0; i < m * n; i++) {
+            c[i] = 0;
+        }
+        gemmAdd(a, b, c, m, k, n);
+    }
+
+    /**
+     * c += a * b, with the shapes of {@link #gemm}.
+     */
+    static void gemmAdd(double[] a, double[] b, double[] c, int m, int k, int n) {
+        gemmAdd(a, 0, b, 0, c, 0, m, k, n);
+    }
+
+    /**
+     * c += a * b, where the operands are contiguous row-major blocks starting
+     * at the given offsets. The i-k-j loop order streams through rows of b and
+     * c.
+     */
+    static void gemmAdd(double[] a, int ao, double[] b, int bo, double[] c, int co, int m, int k,
+            int n) {
+        for (int i = 0; i < m; i++) {
+            int ci = co + i * n;
+            int ai = ao + i * k;
+            for (int p = 0; p < k; p++) {
+                double aip = a[ai + p];
+                int bp = bo + p * n;
+                for (int j = 0; j < n; j++) {
+                    c[ci + j] += aip * b[bp + j];
+                }
+            }
+        }
+    }
+
+    /**
+     * c = a * b on contiguous row-major blocks starting at the given offsets,
+     * with the shapes of {@link #gemm}. The inner and column dimensions are
+     * split into (block x block) tiles of b, which stay in cache while every
+     * row of a passes over them. Each element of c still accumulates its terms
+     * in increasing order of the inner index, so the result is bitwise
+     * identical for every block size, and with a block of at least k and n,
+     * this is the plain i-k-j loop.
+     */
+    static void gemmBlocked(double[] a, int ao, double[] b, int bo, double[] c, int co, int m,
+            int k, int n, int block) {
+        for (int i = 0; i < m * n; i++) {
+            c[co + i] = 0;
+        }
+        for (int jj = 0; jj < n; jj += block) {
+            int jEnd = Math.min(n, jj + block);
+            for (int pp = 0; pp < k; pp += block) {
+                int pEnd = Math.min(k, pp + block);
+                for (int i = 0; i < m; i++) {
+                    int ai = ao + i * k;
+                    int ci = co + i * n;
+                    for (int p = pp; p < pEnd; p++) {
+                        double aip = a[ai + p];
+                        int bp = bo + p * n;
+                        for (int j = jj; j < jEnd; j++) {
+                            c[ci + j] += aip * b[bp + j];
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * c = a^T * b, where a is (k x m), b is (k x n), and c is (m x n), without
+     * forming the transpose. Row p of a scales row p of b into every row of c,
+     * so both inputs are read row by row. The output must not alias either
+     * input.
+     */
+    static void gemmTransposeA(double[] a, double[] b, double[] c, int m, int k, int n) {
+        for (int i = 0; i < m * n; i++) {
+            c[i] = 0;
+        }
+        for (int p = 0; p < k; p++) {
+            int ap = p * m;
+            int bp = p * n;
+            for (int i = 0; i < m; i++) {
+                double api = a[ap + i];
+                int ci = i * n;
+                for (int j = 0; j < n; j++) {
+                    c[ci + j] += api * b[bp + j];
+                }
+            }
+        }
+    }
+
+    /**
+     * c = a * b, where a and b are given by the root arrays of their storage
+     * and the row and column offsets returned by {@code gather()}, so that
+     * element (i, p) of a is {@code a[aOffsets[0][i] + aOffsets[1][p]]}. This
+     * lets index views (a row permutation, or a sampled mini-batch) go into
+     * the kernel without being copied first. Only b is copied, if its columns
+     * are not adjacent in memory.
+     */
+    static void gemm(double[] a, int[][] aOffsets, double[] b, int[][] bOffsets, double[] c,
+            int m, int k, int n) {
+        int[] aRows = aOffsets[0];
+        int[] aCols = aOffsets[1];
+        int[] bCols = bOffsets[1];
+        int[] bRows = new int[k];
+        boolean adjacent = true;
+        for (int j = 1; j < n && adjacent; j++) {
+            adjacent = bCols[j] == bCols[0] + j;
+        }
+        if (adjacent) {
+            for (int p = 0; p < k; p++) {
+                bRows[p] = bOffsets[0][p] + bCols[0];
+            }
+        } else {
+            double[] dense = new double[k * n];
+            for (int p = 0; p < k; p++) {
+                int row = bOffsets[0][p];
+                for (int j = 0; j < n; j++) {
+                    dense[p * n + j] = b[row + bCols[j]];
+                }
+                bRows[p] = p * n;
+            }
+            b = dense;
+        }
+        for (int i = 0; i < m; i++) {
+            int ci = i * n;
+            for (int j = 0; j < n; j++) {
+                c[ci + j] = 0;
+            }
+            int ai = aRows[i];
+            for (int p = 0; p < k; p++) {
+                double aip = a[ai + aCols[p]];
+                int bp = bRows[p];
+                for (int j = 0; j < n; j++) {
+                    c[ci + j] += aip * b[bp + j];
+                }
+            }
+        }
+    }
+
+    /**
+     * Factor the (n x n) matrix in place into {@code P A = L U} with partial
+     * pivoting, where L has a unit diagonal (not stored) and U is upper
+     * triangular. Row i of {@code P A} is row {@code pivots[i]} of A.
+     *
+     * @return {@code false} if the matrix is singular to working precision.
+     */
+    static boolean lu(double[] a, int[] pivots, int n) {
+        for (int i = 0; i < n; i++) {
+            pivots[i] = i;
+        }
+        for (int k = 0; k < n; k++) {
+            int p = k;
+            double max = Math.abs(a[k * n + k]);
+            for (int i = k + 1; i < n; i++) {
+                double value = Math.abs(a[i * n + k]);
+                if (value > max) {
+                    max = value;
+                    p = i;
+                }
+            }
+            if (max == 0) {
+                return false;
+            }
+            if (p != k) {
+                int rowK = k * n;
+                int rowP = p * n;
+                for (int j = 0; j < n; j++) {
+                    double tmp = a[rowK + j];
+                    a[rowK + j] = a[rowP + j];
+                    a[rowP + j] = tmp;
+                }
+                int tmp = pivots[k];
+                pivots[k] = pivots[p];
+                pivots[p] = tmp;
+            }
+            double pivot = a[k * n + k];
+            for (int i = k + 1; i < n; i++) {
+                int rowI = i * n;
+                double factor = a[rowI + k] / pivot;
+                a[rowI + k] = factor;
+                if (factor == 0) {
+                    continue;
+                }
+                int rowK = k * n;
+                for (int j = k + 1; j < n; j++) {
+                    a[rowI + j] -= factor * a[rowK + j];
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Solve {@code A X = B} given the factorization from
+     * {@link #lu(double[], int[], int)}, where B is (n x cols). The solution is
+     * written to x, which must not alias b.
+     */
+    static void luSolve(double[] lu, int[] pivots, int n, double[] b, double[] x, int cols) {
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(b, pivots[i] * cols, x, i * cols, cols);
+        }
+        /* Forward substitution with the unit lower triangle. */
+        for (int i = 0; i < n; i++) {
+            int xi = i * cols;
+            for (int k = 0; k < i; k++) {
+                double l = lu[i * n + k];
+                if (l == 0) {
+                    continue;
+                }
+                int xk = k * cols;
+                for (int j = 0; j < cols; j++) {
+                    x[xi + j] -= l * x[xk + j];
+                }
+            }
+        }
+        /* Back substitution with the upper triangle. */
+        for (int i = n - 1; i >= 0; i--) {
+            int xi = i * cols;
+            for (int k = i + 1; k < n; k++) {
+                double u = lu[i * n + k];
+                if (u == 0) {
+                    continue;
+                }
+                int xk = k * cols;
+                for (int j = 0; j < cols; j++) {
+                    x[xi + j] -= u * x[xk + j];
+                }
+            }
+            double diagonal = lu[i * n + i];
+            for (int j = 0; j < cols; j++) {
+                x[xi + j] /= diagonal;
+            }
+        }
+    }
+
+    /**
+     * @return The 1-norm (maximum absolute column sum) of an (n x n) matrix.
+     */
+    static double norm1(double[] a, int n) {
+        return norm1(a, 0, n, n);
+    }
+
+    /**
+     * @return The 1-norm (maximum absolute column sum) of the row-major
+     *         (rows x cols) matrix starting at a[offset]. The column sums are
+     *         accumulated a row at a time, so a is read sequentially.
+     */
+    static double norm1(double[] a, int offset, int rows, int cols) {
+        double[] sums = new double[cols];
+        for (int i = 0; i < rows; i++) {
+            int row = offset + i * cols;
+            for (int j = 0; j < cols; j++) {
+                sums[j] += Math.abs(a[row + j]);
+            }
+        }
+        double max = 0;
+        for (double sum : sums) {
+            max = Math.max(max, sum);
+        }
+        return max;
+    }
+
+    /**
+     * @return The infinity-norm (maximum absolute row sum) of the row-major
+     *         (rows x cols) matrix starting at a[offset].
+     */
+    static double normInf(double[] a, int offset, int rows, int cols) {
+        double max = 0;
+        for (int i = 0; i < rows; i++) {
+            int row = offset + i * cols;
+            double sum = 0;
+            for (int j = 0; j < cols; j++) {
+                sum += Math.abs(a[row + j]);
+            }
+            max = Math.max(max, sum);
+        }
+        return max;
+    }
+
+    /**
+     * Write the (n x n) identity to a.
+     */
+    static void identity(double[] a, int n) {
+        for (int i = 0; i < n * n; i++) {
+            a[i] = 0;
+        }
+        for (int i = 0; i < n; i++) {
+            a[i * n + i] = 1;
+        }
+    }
+}
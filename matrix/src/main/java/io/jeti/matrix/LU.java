@@ -0,0 +1,162 @@
+package io.jeti.matrix;
+
+import io.jeti.linalg.matrix.Mat;
+import io.jeti.linalg.matrix.Vec;
+import io.jeti.linalg.matrix.utils.Check;
+
+/**
+ * An immutable LU factorization {@code P A = L U} of a square matrix with
+ * partial pivoting, where {@code L} is unit lower triangular and {@code U} is
+ * upper triangular. Factoring costs O(n^3), after which each solve costs
+ * O(n^2) per right-hand side, so a factorization is worth keeping for as long
+ * as its matrix is (see {@link Matrix#lu()}).
+ */
+public final class LU {
+
+    /*
+     * --------------------------------------------------
+     *
+     * Private Fields
+     *
+     * --------------------------------------------------
+     */
+    private final int      n;
+    /** L (below the diagonal) and U (on and above it), row-major. */
+    private final double[] lu;
+    private final int[]    pivots;
+    private final boolean  singular;
+
+    /*
+     * --------------------------------------------------
+     *
+     * Constructors
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * Factor the specified square matrix. A singular matrix can be factored,
+     * but not solved with.
+     */
+    public LU(Mat<?> A) {
+        Check.zero(A.rows() - A.cols());
+        this.n = A.rows();
+        this.lu = new double[n * n];
+        for (int r = 0; r < n; r++) {
+            for (int c = 0; c < n; c++) {
+                lu[r * n + c] = A.get(r, c);
+            }
+        }
+        this.pivots = new int[n];
+        this.singular = !Kernels.lu(lu, pivots, n);
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Getters
+     *
+     * --------------------------------------------------
+     */
+    public int size() {
+        return n;
+    }
+
+    /**
+     * @return {@code true} if the matrix is singular to working precision.
+     */
+    public boolean isSingular() {
+        return singular;
+    }
+
+    /**
+     * @return The determinant of the factored matrix, which is the product of
+     *         the diagonal of U, negated if the pivoting permutation is odd.
+     */
+    public double determinant() {
+        if (singular) {
+            return 0;
+        }
+        double determinant = 1;
+        for (int i = 0; i < n; i++) {
+            determinant *= lu[i * n + i];
+        }
+        /* A permutation is odd when n minus its number of cycles is odd. */
+        boolean[] visited = new boolean[n];
+        int swaps = n;
+        for (int i = 0; i < n; i++) {
+            if (!visited[i]) {
+                swaps--;
+                for (int j = i; !visited[j]; j = pivots[j]) {
+                    visited[j] = true;
+                }
+            }
+        }
+        return swaps % 2 == 0 ? determinant : -determinant;
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Solutions
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * @return The solution {@code x} of {@code A x = b}.
+     * @throws IllegalArgumentException
+     *             If the matrix is singular.
+     */
+    public Vector solve(Vec<?> b) {
+        Check.zero(b.size() - n);
+        checkNonsingular();
+        double[] rhs = new double[n];
+        for (int i = 0; i < n; i++) {
+            rhs[i] = b.get(i);
+        }
+        double[] x = new double[n];
+        Kernels.luSolve(lu, pivots, n, rhs, x, 1);
+        return new Vector(new Gettable.Array(x));
+    }
+
+    /**
+     * @return The solution {@code X} of {@code A X = B}.
+     * @throws IllegalArgumentException
+     *             If the matrix is singular.
+     */
+    public Matrix solve(Mat<?> B) {
+        Check.zero(B.rows() - n);
+        checkNonsingular();
+        int cols = B.cols();
+        double[] rhs = new double[n * cols];
+        for (int r = 0; r < n; r++) {
+            for (int c = 0; c < cols; c++) {
+                rhs[r * cols + c] = B.get(r, c);
+            }
+        }
+        double[] x = new double[n * cols];
+        Kernels.luSolve(lu, pivots, n, rhs, x, cols);
+        return new Matrix(new Gettable.Array2(x, cols), n, cols);
+    }
+
+    /**
+     * @return The inverse of the factored matrix.
+     * @throws IllegalArgumentException
+     *             If the matrix is singular.
+     */
+    public Matrix inverse() {
+        checkNonsingular();
+        double[] identity = new double[n * n];
+        Kernels.identity(identity, n);
+        double[] x = new double[n * n];
+        Kernels.luSolve(lu, pivots, n, identity, x, n);
+        return new Matrix(new Gettable.Array2(x, n), n, n);
+    }
+
+    private void checkNonsingular() {
+        if (singular) {
+            throw new IllegalArgumentException("The matrix is singular.");
+        }
+    }
+}
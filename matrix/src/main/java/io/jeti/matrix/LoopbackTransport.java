@@ -0,0 +1,159 @@
+package io.jeti.matrix;
+
+import io.jeti.linalg.matrix.utils.Check;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link Transport} between threads of the same process, for tests and for
+ * running the distributed algorithms on a single machine. Every message is
+ * copied into an unbounded queue for its (source, destination, tag), so sends
+ * never block. A queue is dropped as soon as it is drained, so tags can be used
+ * freely. Each (source, tag) should be received by one thread of a node at a
+ * time.
+ * <p>
+ * A receive which waits longer than the timeout fails with an
+ * {@link IOException}, so that a node whose peer never sends (for instance
+ * because it died) does not hang forever.
+ * <p>
+ * The queues are managed with the atomic {@link ConcurrentHashMap} methods of
+ * Java 8, so on Android, this class needs API level 24.
+ */
+public final class LoopbackTransport implements Transport {
+
+    /*
+     * --------------------------------------------------
+     *
+     * Private Fields
+     *
+     * --------------------------------------------------
+     */
+    /**
+     * The default time to wait for a message.
+     */
+    public static final long                                       DEFAULT_TIMEOUT_SECONDS = 60;
+
+    private final ConcurrentHashMap<Long, BlockingQueue<double[]>> queues;
+    private final int                                             rank;
+    private final int                                             size;
+    private final long                                            timeoutNanos;
+
+    /*
+     * --------------------------------------------------
+     *
+     * Constructors
+     *
+     * --------------------------------------------------
+     */
+    private LoopbackTransport(ConcurrentHashMap<Long, BlockingQueue<double[]>> queues, int rank,
+            int size, long timeoutNanos) {
+        this.queues = queues;
+        this.rank = rank;
+        this.size = size;
+        this.timeoutNanos = timeoutNanos;
+    }
+
+    /**
+     * @return Connected endpoints for the specified number of nodes, where
+     *         element i is the endpoint of node i, which wait up to
+     *         {@link #DEFAULT_TIMEOUT_SECONDS} for each message.
+     */
+    public static LoopbackTransport[] create(int nodes) {
+        return create(nodes, DEFAULT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @return Connected endpoints for the specified number of nodes, where
+     *         element i is the endpoint of node i, which wait up to the
+     *         specified timeout for each message.
+     */
+    public static LoopbackTransport[] create(int nodes, long timeout, TimeUnit unit) {
+        Check.positive(nodes);
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("The timeout must be positive, but was " + timeout);
+        }
+        ConcurrentHashMap<Long, BlockingQueue<double[]>> queues = new ConcurrentHashMap<>();
+        LoopbackTransport[] endpoints = new LoopbackTransport[nodes];
+        for (int i = 0; i < nodes; i++) {
+            endpoints[i] = new LoopbackTransport(queues, i, nodes, unit.toNanos(timeout));
+        }
+        return endpoints;
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Transport
+     *
+     * --------------------------------------------------
+     */
+    @Override
+    public int rank() {
+        return rank;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void send(int to, int tag, double[] data, int offset, int length) {
+        final double[] message = Arrays.copyOfRange(data, offset, offset + length);
+        /* Adding inside compute keeps a drained queue from being dropped meanwhile. */
+        queues.compute(key(rank, to, tag), (key, queue) -> {
+            if (queue == null) {
+                queue = new LinkedBlockingQueue<>();
+            }
+            queue.add(message);
+            return queue;
+        });
+    }
+
+    /**
+     * @throws IOException
+     *             If no message arrives within the timeout, or the thread is
+     *             interrupted.
+     */
+    @Override
+    public double[] receive(int from, int tag) throws IOException {
+        Long key = key(from, rank, tag);
+        BlockingQueue<double[]> queue = queues.computeIfAbsent(key,
+                k -> new LinkedBlockingQueue<>());
+        double[] message;
+        try {
+            message = queue.poll(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } finally {
+            queues.computeIfPresent(key, (k, q) -> q.isEmpty() ? null : q);
+        }
+        if (message == null) {
+            throw new IOException("Node " + rank + " timed out after "
+                    + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + " ms waiting for tag " + tag
+                    + " from node " + from + ".");
+        }
+        return message;
+    }
+
+    /**
+     * @return The number of (source, destination, tag) queues which currently
+     *         hold messages or a waiting receiver.
+     */
+    int queues() {
+        return queues.size();
+    }
+
+    private Long key(int from, int to, int tag) {
+        if (from < 0 || from >= size || to < 0 || to >= size) {
+            throw new IndexOutOfBoundsException(
+                    "There is no node " + (from < 0 || from >= size ? from : to));
+        }
+        return ((long) (from * size + to) << 32) | (tag & 0xffffffffL);
+    }
+}
@@ -1,10 +1,13 @@
 package io.jeti.matrix;
 
 import io.jeti.linalg.matrix.Mat;
-import io.jeti.matrix.Gettable.List2;
 import io.jeti.linalg.matrix.utils.Check;
 import io.jeti.matrix.Gettable.Gettable2;
-import java.util.ArrayList;
+import io.jeti.matrix.Memo.Derivation;
+import io.jeti.matrix.Metrics.Operation;
+import java.nio.DoubleBuffer;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
 import java.util.List;
 
 /**
@@ -29,6 +32,13 @@ public class Matrix implements Mat<Matrix>, Gettable2<Double> {
     private final int               colFrom;
     private final int               colStride;
 
+    /* Explicit indices of the selected rows and columns, or null for a stride. */
+    private final int[]             rowIndices;
+    private final int[]             colIndices;
+
+    /* The hash code, or 0 until it is computed. */
+    private int                     hash;
+
     /*
      * --------------------------------------------------
      *
@@ -45,23 +55,7 @@ public class Matrix implements Mat<Matrix>, Gettable2<Double> {
      * See {@link #newInstance(int, int, Filler)}.
      */
     public Matrix(int rows, int cols, Filler filler) {
-        Check.positive(rows);
-        Check.positive(cols);
-        List<List<Double>> tmp = new ArrayList<>(rows);
-        for (int r = 0; r < rows; r++) {
-            List<Double> row = new ArrayList<>(cols);
-            for (int c = 0; c < cols; c++) {
-                row.add(filler.apply(r, c));
-            }
-            tmp.add(row);
-        }
-        this.data = new List2<>(tmp);
-        this.rows = rows;
-        this.rowFrom = 0;
-        this.rowStride = 1;
-        this.cols = cols;
-        this.colFrom = 0;
-        this.colStride = 1;
+        this(Metrics.start(), new Gettable.Array2(fill(rows, cols, filler), cols), rows, cols);
     }
 
     /**
@@ -99,6 +93,91 @@ public class Matrix implements Mat<Matrix>, Gettable2<Double> {
         this(data.length, data[0].length, (row, col) -> data[row][col].doubleValue());
     }
 
+    /**
+     * Copy a (rows x cols) matrix out of a row-major array with a single
+     * {@link System#arraycopy}, without calling a {@link Filler} per element.
+     */
+    public Matrix(int rows, int cols, final double[] data) {
+        this(rows, cols, data, 0);
+    }
+
+    /**
+     * Copy a (rows x cols) matrix out of a row-major array, starting at the
+     * specified offset, with a single {@link System#arraycopy}.
+     */
+    public Matrix(int rows, int cols, final double[] data, int offset) {
+        this(Metrics.start(), new Gettable.Array2(copy(rows, cols, data, offset), cols), rows,
+                cols);
+    }
+
+    /**
+     * Copy a rectangular array, with one {@link System#arraycopy} per row.
+     */
+    public Matrix(final double[][] data) {
+        this(Metrics.start(), new Gettable.Array2(copy(data), data[0].length), data.length,
+                data[0].length);
+    }
+
+    /**
+     * Copy a (rows x cols) matrix out of the remaining elements of a row-major
+     * buffer (heap or direct) with a single bulk get. The position of the
+     * buffer advances by {@code rows * cols}.
+     */
+    public Matrix(int rows, int cols, final DoubleBuffer data) {
+        this(Metrics.start(), new Gettable.Array2(copy(rows, cols, data), cols), rows, cols);
+    }
+
+    /**
+     * Copy a (rows x cols) matrix out of a row-major array of floats, widening
+     * each element in a single primitive loop.
+     */
+    public Matrix(int rows, int cols, final float[] data) {
+        this(Metrics.start(), new Gettable.Array2(copy(rows, cols, data), cols), rows, cols);
+    }
+
+    /**
+     * @return A (rows x cols) matrix which adopts the row-major array as its
+     *         storage, without copying it. Changes to the array will be visible
+     *         in the matrix, so nothing derived from it is memoized (see
+     *         {@link Memo}), and its hash code is not cached.
+     */
+    public static Matrix wrap(int rows, int cols, final double[] data) {
+        checkShape(rows, cols, data.length);
+        return new Matrix(new Gettable.Array2(data, cols, true), rows, cols);
+    }
+
+    /**
+     * A hidden constructor which adopts the given storage without copying it.
+     * This is how the structured subclasses (for example
+     * {@link DiagonalMatrix}) supply their packed storage.
+     */
+    Matrix(Gettable2<Double> data, int rows, int cols) {
+        this(Metrics.start(), data, rows, cols);
+    }
+
+    /**
+     * A hidden constructor which adopts the given storage without copying it,
+     * and reports the construction to {@link Metrics} as having started at
+     * {@code start}, with the footprint of the storage (see
+     * {@link Gettable.Footprint}). Every matrix which is not a view is
+     * reported here, and only here.
+     */
+    Matrix(long start, Gettable2<Double> data, int rows, int cols) {
+        Check.positive(rows);
+        Check.positive(cols);
+        this.data = data;
+        this.rows = rows;
+        this.rowFrom = 0;
+        this.rowStride = 1;
+        this.cols = cols;
+        this.colFrom = 0;
+        this.colStride = 1;
+        this.rowIndices = null;
+        this.colIndices = null;
+        Metrics.record(Operation.CONSTRUCT, getClass(), rows, cols, Gettable.footprint(data),
+                start);
+    }
+
     private Matrix(Matrix matrix, int fromRow, int toRow, int rowStride, int fromCol, int toCol,
             int colStride) {
 
@@ -112,6 +191,24 @@ public class Matrix implements Mat<Matrix>, Gettable2<Double> {
         this.rowStride = rowStride;
         this.colFrom = fromCol;
         this.colStride = colStride;
+        this.rowIndices = null;
+        this.colIndices = null;
+    }
+
+    /**
+     * A hidden constructor for views which select explicit rows and columns,
+     * where {@code null} selects all of them.
+     */
+    private Matrix(Matrix matrix, int[] rowIndices, int[] colIndices) {
+        this.rowIndices = rowIndices == null ? null : Indices.check(rowIndices, matrix.rows());
+        this.colIndices = colIndices == null ? null : Indices.check(colIndices, matrix.cols());
+        this.data = matrix;
+        this.rows = rowIndices == null ? matrix.rows() : rowIndices.length;
+        this.rowFrom = 0;
+        this.rowStride = 1;
+        this.cols = colIndices == null ? matrix.cols() : colIndices.length;
+        this.colFrom = 0;
+        this.colStride = 1;
     }
 
     /**
@@ -129,17 +226,29 @@ public class Matrix implements Mat<Matrix>, Gettable2<Double> {
     }
 
     /**
-     * @return A (rows x rows) identity Matrix.
+     * @return A (rows x rows) identity Matrix. Only the diagonal is stored.
      */
     public static Matrix eye(int rows) {
-        return new Matrix(rows, rows, (row, col) -> row == col ? 1d : 0d);
+        return DiagonalMatrix.eye(rows);
     }
 
     /**
      * @return A (rows x cols) Matrix of uniform random number in [0,1].
      */
     public static Matrix rand(int rows, int cols) {
-        return new Matrix(rows, cols, (row, col) -> random.nextDouble());
+        return rand(rows, cols, random.nextLong());
+    }
+
+    /**
+     * @return A (rows x cols) Matrix of uniform random number in [0,1), which
+     *         only depends on the seed. Large matrices are filled in parallel.
+     */
+    public static Matrix rand(int rows, int cols, long seed) {
+        Check.positive(rows);
+        Check.positive(cols);
+        long start = Metrics.start();
+        double[] array = Randoms.uniform(rows * cols, seed);
+        return new Matrix(start, new Gettable.Array2(array, cols), rows, cols);
     }
 
     /**
@@ -147,7 +256,94 @@ public class Matrix implements Mat<Matrix>, Gettable2<Double> {
      *         distribution with mean 0 and variance 1.
      */
     public static Matrix randn(int rows, int cols) {
-        return new Matrix(rows, cols, (row, col) -> random.nextGaussian());
+        return randn(rows, cols, random.nextLong());
+    }
+
+    /**
+     * @return A (rows x cols) Matrix of Gaussian random number drawn from a
+     *         distribution with mean 0 and variance 1, which only depends on
+     *         the seed. Large matrices are filled in parallel.
+     */
+    public static Matrix randn(int rows, int cols, long seed) {
+        Check.positive(rows);
+        Check.positive(cols);
+        long start = Metrics.start();
+        double[] array = Randoms.gaussian(rows * cols, seed);
+        return new Matrix(start, new Gettable.Array2(array, cols), rows, cols);
+    }
+
+    private static double[] fill(int rows, int cols, Filler filler) {
+        Check.positive(rows);
+        Check.positive(cols);
+        double[] array = Arena.allocate(rows * cols);
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                array[r * cols + c] = filler.apply(r, c);
+            }
+        }
+        return array;
+    }
+
+    /**
+     * Make sure that a (rows x cols) matrix can be read out of
+     * {@code available} elements. The copies check this before they allocate,
+     * so that bad input neither leases a buffer from the {@link Arena} nor
+     * fails with an obscure exception.
+     */
+    private static void checkShape(int rows, int cols, int available) {
+        Check.positive(rows);
+        Check.positive(cols);
+        if (available < (long) rows * cols) {
+            throw new IllegalArgumentException("A (" + rows + " x " + cols + ") matrix needs "
+                    + (long) rows * cols + " elements, but there were " + available);
+        }
+    }
+
+    private static double[] copy(int rows, int cols, double[] data, int offset) {
+        if (offset < 0 || offset > data.length) {
+            throw new IndexOutOfBoundsException(
+                    "The offset " + offset + " is outside of an array of " + data.length);
+        }
+        checkShape(rows, cols, data.length - offset);
+        double[] array = Arena.allocate(rows * cols);
+        System.arraycopy(data, offset, array, 0, array.length);
+        return array;
+    }
+
+    private static double[] copy(double[][] data) {
+        if (data.length == 0) {
+            throw new IllegalArgumentException("A matrix needs at least one row");
+        }
+        int rows = data.length;
+        int cols = data[0].length;
+        for (int r = 1; r < rows; r++) {
+            if (data[r].length != cols) {
+                throw new IllegalArgumentException("Row " + r + " has " + data[r].length
+                        + " elements, but row 0 has " + cols);
+            }
+        }
+        checkShape(rows, cols, rows * cols);
+        double[] array = Arena.allocate(rows * cols);
+        for (int r = 0; r < rows; r++) {
+            System.arraycopy(data[r], 0, array, r * cols, cols);
+        }
+        return array;
+    }
+
+    private static double[] copy(int rows, int cols, DoubleBuffer data) {
+        checkShape(rows, cols, data.remaining());
+        double[] array = Arena.allocate(rows * cols);
+        data.get(array);
+        return array;
+    }
+
+    private static double[] copy(int rows, int cols, float[] data) {
+        checkShape(rows, cols, data.length);
+        double[] array = Arena.allocate(rows * cols);
+        for (int i = 0; i < array.length; i++) {
+            array[i] = data[i];
+        }
+        return array;
     }
 
     /*
@@ -169,8 +365,8 @@ public class Matrix implements Mat<Matrix>, Gettable2<Double> {
 
     @Override
     public final Double get(int row, int col) {
-        int r = index(row, rowFrom, rowStride, rows());
-        int c = index(col, colFrom, colStride, cols());
+        int r = rowIndices == null ? index(row, rowFrom, rowStride, rows()) : rowIndices[row];
+        int c = colIndices == null ? index(col, colFrom, colStride, cols()) : colIndices[col];
         return data.get(r, c);
     }
 
@@ -180,6 +376,48 @@ public class Matrix implements Mat<Matrix>, Gettable2<Double> {
         return new Matrix(this, fromRow, toRow, rowStride, fromCol, toCol, colStride);
     }
 
+    /**
+     * @return A view of the specified rows and columns, in the given order,
+     *         which reads through to this matrix without copying anything.
+     *         Indices may repeat. Index views compose with each other and with
+     *         the stride views, and {@link #times} reads them in place.
+     */
+    public Matrix select(int[] rowIndices, int[] colIndices) {
+        return new Matrix(this, rowIndices, colIndices);
+    }
+
+    /**
+     * @return A view of the specified rows, such as a row permutation from
+     *         pivoting or a sampled mini-batch. See {@link #select(int[], int[])}.
+     */
+    public Matrix selectRows(int[] rowIndices) {
+        return new Matrix(this, rowIndices, null);
+    }
+
+    /**
+     * @return A view of the specified columns. See
+     *         {@link #select(int[], int[])}.
+     */
+    public Matrix selectCols(int[] colIndices) {
+        return new Matrix(this, null, colIndices);
+    }
+
+    /**
+     * @return A view of the rows for which the mask is {@code true}. See
+     *         {@link #select(int[], int[])}.
+     */
+    public Matrix selectRows(boolean[] mask) {
+        return new Matrix(this, Indices.of(mask, rows()), null);
+    }
+
+    /**
+     * @return A view of the columns for which the mask is {@code true}. See
+     *         {@link #select(int[], int[])}.
+     */
+    public Matrix selectCols(boolean[] mask) {
+        return new Matrix(this, null, Indices.of(mask, cols()));
+    }
+
     /*
      * --------------------------------------------------
      *
@@ -195,14 +433,506 @@ public class Matrix implements Mat<Matrix>, Gettable2<Double> {
             return times(B.get(0, 0));
         } else {
             Check.zero(cols() - B.rows());
-            return newInstance(rows(), B.cols(), (row, col) -> {
-                double sum = 0.0;
-                for (int i = 0; i < cols(); i++) {
-                    sum += get(row, i) * B.get(i, col);
+            long start = Metrics.start();
+            Matrix product = memo(Derivation.TIMES, B, (long) rows() * B.cols(),
+                    () -> multiply(B));
+            Metrics.record(Operation.TIMES, product.getClass(), product.rows(), product.cols(), 0,
+                    start);
+            return product;
+        }
+    }
+
+    /**
+     * @return {@code this^T * B}, without forming the transpose. With
+     *         {@code B == this}, this is the Gram matrix of the normal
+     *         equations. The result is memoized (see {@link Memo}).
+     */
+    public final Matrix transposeTimes(final Matrix B) {
+        Check.zero(rows() - B.rows());
+        long start = Metrics.start();
+        final int m = cols();
+        final int n = B.cols();
+        Matrix product = memo(Derivation.TRANSPOSE_TIMES, B, (long) m * n, () -> {
+            double[] c = Arena.allocate(m * n);
+            Kernels.gemmTransposeA(toArray(), B.toArray(), c, m, rows(), n);
+            return new Matrix(Metrics.start(), new Gettable.Array2(c, n), m, n);
+        });
+        Metrics.record(Operation.TIMES, product.getClass(), m, n, 0, start);
+        return product;
+    }
+
+    /**
+     * Computes {@code this * B} with the recursive Strassen-Winograd algorithm,
+     * running the subproducts in parallel on the common fork-join pool, and
+     * switching to the classical kernel below a size of 128. This is only
+     * worthwhile for large, roughly square products (in the thousands), and it
+     * is less accurate than {@link #times(Matrix)}. See
+     * {@link #timesStrassen(Matrix, int)} for the error bound.
+     */
+    public final Matrix timesStrassen(final Matrix B) {
+        return timesStrassen(B, Strassen.DEFAULT_CROSSOVER);
+    }
+
+    /**
+     * Computes {@code this * B} with the recursive Strassen-Winograd algorithm,
+     * switching to the classical kernel once the smallest dimension of a
+     * block is at most {@code crossover}. Each dimension is zero-padded on its
+     * own, so a product with one short dimension takes few recursion levels
+     * and mostly runs the classical kernel.
+     * <p>
+     * With unit roundoff {@code u} and {@code ||X|| = max |x_ij|}, the error
+     * satisfies {@code ||C - fl(C)|| <= c u ||A|| ||B||}, where {@code c} grows
+     * like {@code (n / crossover)^log2(18) (crossover^2 + 6 crossover)}. Unlike
+     * the classical product, this bound is normwise rather than componentwise,
+     * so small entries of the product may be inaccurate.
+     */
+    public final Matrix timesStrassen(final Matrix B, int crossover) {
+        Check.zero(cols() - B.rows());
+        long start = Metrics.start();
+        Matrix product = Strassen.multiply(this, B, crossover);
+        Metrics.record(Operation.TIMES, product.getClass(), product.rows(), product.cols(), 0,
+                start);
+        return product;
+    }
+
+    /**
+     * Computes {@code this * B}, where the dimensions are already known to
+     * agree. Structured subclasses override this to skip the entries which
+     * are known to be zero. By default, {@code B} gets the chance to exploit
+     * its own structure.
+     */
+    Matrix multiply(Matrix B) {
+        return B.premultiply(this);
+    }
+
+    /**
+     * Computes {@code A * this}, where the dimensions are already known to
+     * agree. Structured subclasses override this to skip the entries which
+     * are known to be zero. By default, this is the classical dense product,
+     * which reads dense operands and all of their views (including index
+     * views) straight out of their arrays, with the kernel variant chosen by
+     * {@link Tuning}.
+     */
+    Matrix premultiply(Matrix A) {
+        int ao = A.contiguous();
+        int bo = contiguous();
+        int m = A.rows();
+        int k = A.cols();
+        int n = cols();
+        Tuning.Variant variant = Tuning.select(m, k, n, ao >= 0 && bo >= 0, true);
+        if (variant == Tuning.Variant.STRASSEN) {
+            return Strassen.multiply(A, this, Strassen.DEFAULT_CROSSOVER);
+        }
+        boolean contiguous = variant != Tuning.Variant.GATHER;
+        int[][] a = contiguous ? null : A.gather();
+        int[][] b = contiguous ? null : gather();
+        if (contiguous || (a != null && b != null)) {
+            double[] c = Arena.allocate(m * n);
+            if (contiguous) {
+                Tuning.gemm(A.buffer(), ao, buffer(), bo, c, m, k, n);
+            } else {
+                Kernels.gemm(A.buffer(), a, buffer(), b, c, m, k, n);
+            }
+            return new Matrix(Metrics.start(), new Gettable.Array2(c, n), m, n);
+        }
+        double[] c = fill(m, n, (row, col) -> {
+            double sum = 0.0;
+            for (int i = 0; i < k; i++) {
+                sum += A.get(row, i) * get(i, col);
+            }
+            return sum;
+        });
+        return new Matrix(Metrics.start(), new Gettable.Array2(c, n), m, n);
+    }
+
+    /**
+     * @return A new row-major array holding the elements of this matrix.
+     */
+    public double[] toArray() {
+        double[] array = new double[size()];
+        copyInto(array, 0);
+        return array;
+    }
+
+    /**
+     * Copy the elements of this matrix, in row-major order, into the array
+     * starting at the specified offset. Dense matrices and views of them are
+     * copied straight out of the backing array, with one
+     * {@link System#arraycopy} for contiguous storage, one per row for views
+     * with unit column stride, and a primitive strided loop otherwise.
+     */
+    public void copyInto(double[] dest, int offset) {
+        copyInto(dest, offset, cols());
+    }
+
+    /**
+     * Like {@link #copyInto(double[], int)}, but with rows which are
+     * {@code ld} elements apart in the destination.
+     */
+    void copyInto(double[] dest, int offset, int ld) {
+        int[] layout = layout();
+        if (layout == null) {
+            int[][] offsets = gather();
+            double[] src = buffer();
+            for (int r = 0; r < rows(); r++) {
+                for (int c = 0; c < cols(); c++) {
+                    dest[offset + r * ld + c] = offsets == null ? get(r, c)
+                            : src[offsets[0][r] + offsets[1][c]];
                 }
-                return sum;
-            });
+            }
+            return;
+        }
+        double[] src = buffer();
+        int base = layout[0];
+        int rowStep = layout[1];
+        int colStep = layout[2];
+        if (colStep == 1 && rowStep == cols() && ld == cols()) {
+            System.arraycopy(src, base, dest, offset, size());
+        } else if (colStep == 1) {
+            for (int r = 0; r < rows(); r++) {
+                System.arraycopy(src, base + r * rowStep, dest, offset + r * ld, cols());
+            }
+        } else {
+            for (int r = 0; r < rows(); r++) {
+                int from = base + r * rowStep;
+                int to = offset + r * ld;
+                for (int c = 0; c < cols(); c++) {
+                    dest[to + c] = src[from + c * colStep];
+                }
+            }
+        }
+    }
+
+    /**
+     * @return {base, rowStep, colStep} such that element (r, c) of this matrix
+     *         lives at {@code base + r * rowStep + c * colStep} in
+     *         {@link #buffer()}, or {@code null} if the storage is not a flat
+     *         array.
+     */
+    int[] layout() {
+        if (rowIndices != null || colIndices != null) {
+            return null;
+        }
+        int[] parent;
+        if (data instanceof Gettable.Array2) {
+            parent = new int[] { 0, ((Gettable.Array2) data).cols, 1 };
+        } else if (data instanceof Matrix) {
+            parent = ((Matrix) data).layout();
+            if (parent == null) {
+                return null;
+            }
+        } else {
+            return null;
+        }
+        return new int[] { parent[0] + rowFrom * parent[1] + colFrom * parent[2],
+                rowStride * parent[1], colStride * parent[2] };
+    }
+
+    /**
+     * @return The flat array at the root of the storage of this matrix (or of
+     *         the matrix that this is a view of), or {@code null} if the
+     *         storage is not a flat array.
+     */
+    double[] buffer() {
+        if (data instanceof Gettable.Array2) {
+            return ((Gettable.Array2) data).array();
+        } else if (data instanceof Matrix) {
+            return ((Matrix) data).buffer();
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * @return {rowOffsets, colOffsets} such that element (r, c) of this matrix
+     *         lives at {@code rowOffsets[r] + colOffsets[c]} in
+     *         {@link #buffer()}, or {@code null} if the storage is not a flat
+     *         array. Unlike {@link #layout()}, this also covers index views,
+     *         and views of them.
+     */
+    int[][] gather() {
+        int[] rowOffsets = new int[rows()];
+        int[] colOffsets = new int[cols()];
+        int[] layout = layout();
+        if (layout != null) {
+            for (int r = 0; r < rows(); r++) {
+                rowOffsets[r] = layout[0] + r * layout[1];
+            }
+            for (int c = 0; c < cols(); c++) {
+                colOffsets[c] = c * layout[2];
+            }
+            return new int[][] { rowOffsets, colOffsets };
+        }
+        if (!(data instanceof Matrix)) {
+            return null;
+        }
+
+        /* Prefer the affine layout of the parent, which is O(1) to build. */
+        Matrix parent = (Matrix) data;
+        int[] affine = parent.layout();
+        int[][] offsets = affine == null ? parent.gather() : null;
+        if (affine == null && offsets == null) {
+            return null;
+        }
+        for (int r = 0; r < rows(); r++) {
+            int row = rowIndices == null ? rowFrom + r * rowStride : rowIndices[r];
+            rowOffsets[r] = affine == null ? offsets[0][row] : affine[0] + row * affine[1];
         }
+        for (int c = 0; c < cols(); c++) {
+            int col = colIndices == null ? colFrom + c * colStride : colIndices[c];
+            colOffsets[c] = affine == null ? offsets[1][col] : col * affine[2];
+        }
+        return new int[][] { rowOffsets, colOffsets };
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Matrix Functions
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * @return The matrix exponential of this square matrix, by scaling and
+     *         squaring with a Pade approximant of degree 3 to 13 (Higham,
+     *         2005). The intermediate matrices live in a thread-local
+     *         workspace, so repeated calls on matrices of the same size only
+     *         allocate the result.
+     */
+    public Matrix expm() {
+        Check.zero(rows() - cols());
+        long start = Metrics.start();
+        double[] a = toArray();
+        double[] out = Arena.allocate(size());
+        MatrixFunctions.expm(a, out, rows());
+        return new Matrix(start, new Gettable.Array2(out, cols()), rows(), cols());
+    }
+
+    /**
+     * @return The principal square root of this square matrix, by the
+     *         Denman-Beavers iteration with determinant scaling. See
+     *         {@link #expm()} for the workspace.
+     * @throws IllegalArgumentException
+     *             If the matrix is singular or the iteration does not
+     *             converge, which happens when there are eigenvalues on the
+     *             closed negative real axis.
+     */
+    public Matrix sqrtm() {
+        Check.zero(rows() - cols());
+        long start = Metrics.start();
+        double[] a = toArray();
+        double[] out = Arena.allocate(size());
+        MatrixFunctions.sqrtm(a, out, rows());
+        return new Matrix(start, new Gettable.Array2(out, cols()), rows(), cols());
+    }
+
+    /**
+     * @return The principal logarithm of this square matrix, by inverse
+     *         scaling and squaring with a Pade approximant. See
+     *         {@link #expm()} for the workspace.
+     * @throws IllegalArgumentException
+     *             If the matrix has eigenvalues on the closed negative real
+     *             axis, in which case there is no principal logarithm.
+     */
+    public Matrix logm() {
+        Check.zero(rows() - cols());
+        long start = Metrics.start();
+        double[] a = toArray();
+        double[] out = Arena.allocate(size());
+        MatrixFunctions.logm(a, out, rows());
+        return new Matrix(start, new Gettable.Array2(out, cols()), rows(), cols());
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Memoized Derivations
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * @return The LU factorization of this square matrix, which is memoized
+     *         (see {@link Memo}), so that repeated solves with the same system
+     *         only factor it once.
+     */
+    public final LU lu() {
+        Check.zero(rows() - cols());
+        return memo(Derivation.LU, null, size(), () -> new LU(this));
+    }
+
+    /**
+     * @return The Cholesky factorization of this symmetric positive definite
+     *         matrix. The factorization is memoized (see {@link Memo}), but
+     *         since it can be updated, each call returns its own copy of it.
+     * @throws IllegalArgumentException
+     *             If the matrix is not positive definite.
+     */
+    public final Cholesky cholesky() {
+        Check.zero(rows() - cols());
+        long weight = (long) rows() * (rows() + 1) / 2;
+        return new Cholesky(memo(Derivation.CHOLESKY, null, weight, () -> new Cholesky(this)));
+    }
+
+    /**
+     * @return The inverse of this square matrix, from its {@link #lu()}. The
+     *         result is memoized (see {@link Memo}).
+     * @throws IllegalArgumentException
+     *             If the matrix is singular.
+     */
+    public final Matrix inverse() {
+        Check.zero(rows() - cols());
+        return memo(Derivation.INVERSE, null, size(), () -> lu().inverse());
+    }
+
+    /**
+     * @return The maximum absolute column sum. The result is memoized (see
+     *         {@link Memo}).
+     */
+    public final double norm1() {
+        return memo(Derivation.NORM_1, null, 1, () -> {
+            int offset = contiguous();
+            double[] a = offset < 0 ? toArray() : buffer();
+            return Kernels.norm1(a, Math.max(offset, 0), rows(), cols());
+        });
+    }
+
+    /**
+     * @return The maximum absolute row sum. The result is memoized (see
+     *         {@link Memo}).
+     */
+    public final double normInf() {
+        return memo(Derivation.NORM_INF, null, 1, () -> {
+            int offset = contiguous();
+            double[] a = offset < 0 ? toArray() : buffer();
+            return Kernels.normInf(a, Math.max(offset, 0), rows(), cols());
+        });
+    }
+
+    /**
+     * @return The square root of the sum of the squares of all elements. The
+     *         result is memoized (see {@link Memo}).
+     */
+    public final double normFrobenius() {
+        return memo(Derivation.NORM_FROBENIUS, null, 1, () -> {
+            int offset = contiguous();
+            double[] a = offset < 0 ? toArray() : buffer();
+            double sum = 0;
+            for (int i = Math.max(offset, 0), end = i + size(); i < end; i++) {
+                sum += a[i] * a[i];
+            }
+            return Math.sqrt(sum);
+        });
+    }
+
+    /**
+     * @return The result of the computation, through the {@link Memo} cache if
+     *         both operands ({@code B} may be {@code null}) are memoizable.
+     */
+    private <T> T memo(Derivation derivation, Matrix B, long weight,
+            Memo.Computation<T> computation) {
+        if (!memoizable() || (B != null && !B.memoizable())) {
+            return computation.compute();
+        }
+        return Memo.get(derivation, this, B, weight, computation);
+    }
+
+    /**
+     * @return {@code false} if the contents of this matrix may change after
+     *         construction, as with {@link #wrap}, so that derived results
+     *         must not be cached. Views are memoizable if their parent is.
+     */
+    boolean memoizable() {
+        if (data instanceof Gettable.Array2) {
+            return !((Gettable.Array2) data).external;
+        }
+        return !(data instanceof Matrix) || ((Matrix) data).memoizable();
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Element-wise Operations
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * @return A new matrix holding {@code op} applied to every element. This
+     *         is a single primitive loop over the storage, which runs in
+     *         parallel for large matrices, so {@code op} must be stateless.
+     */
+    public Matrix map(DoubleUnaryOperator op) {
+        long start = Metrics.start();
+        int xo = contiguous();
+        double[] x = xo < 0 ? toArray() : buffer();
+        double[] z = Arena.allocate(size());
+        Elementwise.map(x, Math.max(xo, 0), z, 0, size(), op);
+        Matrix result = new Matrix(Metrics.start(), new Gettable.Array2(z, cols()), rows(), cols());
+        Metrics.record(Operation.ELEMENTWISE, result.getClass(), rows(), cols(), 0, start);
+        return result;
+    }
+
+    /**
+     * @return A new matrix holding {@code op(this(r, c), B(r, c))} for every
+     *         element, computed in a single pass. See
+     *         {@link #map(DoubleUnaryOperator)}.
+     */
+    public Matrix zipWith(Matrix B, DoubleBinaryOperator op) {
+        checkSameSize(B);
+        long start = Metrics.start();
+        int xo = contiguous();
+        double[] x = xo < 0 ? toArray() : buffer();
+        int yo = B.contiguous();
+        double[] y = yo < 0 ? B.toArray() : B.buffer();
+        double[] z = Arena.allocate(size());
+        Elementwise.zip(x, Math.max(xo, 0), y, Math.max(yo, 0), z, 0, size(), op);
+        Matrix result = new Matrix(Metrics.start(), new Gettable.Array2(z, cols()), rows(), cols());
+        Metrics.record(Operation.ELEMENTWISE, result.getClass(), rows(), cols(), 0, start);
+        return result;
+    }
+
+    /**
+     * @return A new matrix holding {@code op(this(r, c), B(r, c), C(r, c))}
+     *         for every element, computed in a single pass, so that for
+     *         instance {@code a * b + c} does not need a temporary. See
+     *         {@link #map(DoubleUnaryOperator)}.
+     */
+    public Matrix zipWith(Matrix B, Matrix C, DoubleTernaryOperator op) {
+        checkSameSize(B);
+        checkSameSize(C);
+        long start = Metrics.start();
+        int xo = contiguous();
+        double[] x = xo < 0 ? toArray() : buffer();
+        int yo = B.contiguous();
+        double[] y = yo < 0 ? B.toArray() : B.buffer();
+        int wo = C.contiguous();
+        double[] w = wo < 0 ? C.toArray() : C.buffer();
+        double[] z = Arena.allocate(size());
+        Elementwise.zip(x, Math.max(xo, 0), y, Math.max(yo, 0), w, Math.max(wo, 0), z, 0, size(),
+                op);
+        Matrix result = new Matrix(Metrics.start(), new Gettable.Array2(z, cols()), rows(), cols());
+        Metrics.record(Operation.ELEMENTWISE, result.getClass(), rows(), cols(), 0, start);
+        return result;
+    }
+
+    private void checkSameSize(Matrix B) {
+        Check.zero(rows() - B.rows());
+        Check.zero(cols() - B.cols());
+    }
+
+    /**
+     * @return The offset into {@link #buffer()} at which the elements of this
+     *         matrix are stored contiguously in row-major order, or -1 if they
+     *         are not.
+     */
+    int contiguous() {
+        int[] layout = layout();
+        if (layout != null && layout[2] == 1 && (layout[1] == cols() || rows() == 1)) {
+            return layout[0];
+        }
+        return -1;
     }
 
     /*
@@ -212,6 +942,62 @@ public class Matrix implements Mat<Matrix>, Gettable2<Double> {
      *
      * --------------------------------------------------
      */
+    /**
+     * @return {@code true} if the other object is a {@link Matrix} or a
+     *         {@link MutableMatrix} with the same shape and elements. The
+     *         elements are compared bit for bit, as by
+     *         {@link java.util.Arrays#equals(double[], double[])}, straight
+     *         out of their primitive storage, stopping at the first difference.
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof Matrix) && !(other instanceof MutableMatrix)) {
+            return false;
+        }
+        Mat<?> B = (Mat<?>) other;
+        if (B.rows() != rows() || B.cols() != cols()) {
+            return false;
+        }
+        return Comparison.equals(Comparison.Reader.of(this), Comparison.Reader.of(B), rows(),
+                cols());
+    }
+
+    /**
+     * @return A hash code of the shape and elements, which is equal for equal
+     *         matrices of either type. It is computed once, and then cached,
+     *         unless the contents may change (as with {@link #wrap}).
+     */
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            h = Comparison.hashCode(Comparison.Reader.of(this), rows(), cols());
+            if (memoizable()) {
+                hash = h;
+            }
+        }
+        return h;
+    }
+
+    /**
+     * @return {@code true} if the other matrix has the same shape, and every
+     *         pair of elements x and y is equal or satisfies
+     *         {@code |x - y| <= max(absTol, relTol * max(|x|, |y|))}. This
+     *         stops at the first pair which does not.
+     * @throws IllegalArgumentException
+     *             If either tolerance is negative.
+     */
+    public boolean approxEquals(Mat<?> B, double absTol, double relTol) {
+        if (B.rows() != rows() || B.cols() != cols()) {
+            return false;
+        }
+        return Comparison.approxEquals(Comparison.Reader.of(this), Comparison.Reader.of(B),
+                rows(), cols(), absTol, relTol);
+    }
+
     @Override
     public String toString() {
         return asString();
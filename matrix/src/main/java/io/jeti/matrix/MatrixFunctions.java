@@ -0,0 +1,342 @@
+package io.jeti.matrix;
+
+/**
+ * The matrix exponential, square root, and logarithm on (n x n) row-major
+ * arrays. All of the intermediate matrices live in a thread-local
+ * {@link Scratch}, which is only reallocated when the size changes, so
+ * repeated calls on same-sized matrices (for instance discretizing a
+ * state-space model every tick) do not allocate anything but their result.
+ * Since a scratch holds up to 20 matrices for as long as its thread lives,
+ * only small sizes are kept: larger calls get a scratch of their own, which
+ * is garbage once they return.
+ */
+final class MatrixFunctions {
+
+    private MatrixFunctions() {
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Scratch
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * The scratch matrices of one thread. Each function owns a disjoint range
+     * of slots, since logm calls sqrtm.
+     */
+    static final class Scratch {
+
+        private static final int SLOTS = 20;
+
+        private int              n     = -1;
+        private final double[][] slots = new double[SLOTS][];
+        private int[]            pivots;
+
+        double[] slot(int i) {
+            if (slots[i] == null) {
+                slots[i] = new double[n * n];
+            }
+            return slots[i];
+        }
+
+        int[] pivots() {
+            return pivots;
+        }
+
+        void ensure(int n) {
+            if (this.n != n) {
+                this.n = n;
+                for (int i = 0; i < SLOTS; i++) {
+                    slots[i] = null;
+                }
+                pivots = new int[n];
+            }
+        }
+    }
+
+    /**
+     * The maximum number of elements a thread-local scratch may hold, which
+     * is 8 MiB, or 20 matrices of size 228.
+     */
+    private static final long                 RETAINED  = 1 << 20;
+
+    private static final ThreadLocal<Scratch> scratches = new ThreadLocal<Scratch>() {
+        @Override
+        protected Scratch initialValue() {
+            return new Scratch();
+        }
+    };
+
+    private static Scratch scratch(int n) {
+        Scratch scratch = (long) Scratch.SLOTS * n * n <= RETAINED ? scratches.get()
+                : new Scratch();
+        scratch.ensure(n);
+        return scratch;
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Exponential
+     *
+     * --------------------------------------------------
+     */
+    private static final double[] THETA = { 1.495585217958292e-2, 2.539398330063230e-1,
+            9.504178996162932e-1, 2.097847961257068e0, 5.371920351148152e0 };
+
+    private static final double[][] PADE = { { 120, 60, 12, 1 },
+            { 30240, 15120, 3360, 420, 30, 1 },
+            { 17297280, 8648640, 1995840, 277200, 25200, 1512, 56, 1 },
+            { 17643225600d, 8821612800d, 2075673600, 302702400, 30270240, 2162160, 110880, 3960,
+                    90, 1 },
+            { 64764752532480000d, 32382376266240000d, 7771770303897600d, 1187353796428800d,
+                    129060195264000d, 10559470521600d, 670442572800d, 33522128640d,
+                    1323241920, 40840800, 960960, 16380, 182, 1 } };
+
+    /**
+     * out = exp(a), by the scaling and squaring algorithm of Higham (2005):
+     * the lowest-degree Pade approximant (3, 5, 7, 9, or 13) which is accurate
+     * to double precision for the 1-norm of a, after scaling a by a power of 2
+     * if even degree 13 does not suffice, followed by repeated squaring.
+     */
+    static void expm(double[] a, double[] out, int n) {
+        Scratch w = scratch(n);
+        double[] A = w.slot(0), A2 = w.slot(1), A4 = w.slot(2), A6 = w.slot(3);
+        double[] U = w.slot(4), V = w.slot(5), T = w.slot(6), P = w.slot(7), Q = w.slot(8);
+
+        double norm = Kernels.norm1(a, n);
+        System.arraycopy(a, 0, A, 0, n * n);
+        int squarings = 0;
+        int degree = -1;
+        for (int m = 0; m < 4; m++) {
+            if (norm <= THETA[m]) {
+                degree = m;
+                break;
+            }
+        }
+        if (degree < 0) {
+            degree = 4;
+            if (norm > THETA[4]) {
+                squarings = (int) Math.ceil(Math.log(norm / THETA[4]) / Math.log(2));
+                double scale = Math.scalb(1.0, -squarings);
+                for (int i = 0; i < n * n; i++) {
+                    A[i] *= scale;
+                }
+            }
+        }
+        double[] b = PADE[degree];
+        Kernels.gemm(A, A, A2, n, n, n);
+
+        if (degree < 4) {
+            /* U = A * sum b[2k+1] A^(2k), V = sum b[2k] A^(2k). */
+            Kernels.identity(P, n);
+            for (int i = 0; i < n * n; i++) {
+                T[i] = b[1] * P[i];
+                V[i] = b[0] * P[i];
+            }
+            double[] power = A2;
+            for (int k = 2; k < b.length; k += 2) {
+                for (int i = 0; i < n * n; i++) {
+                    T[i] += b[k + 1] * power[i];
+                    V[i] += b[k] * power[i];
+                }
+                if (k + 2 < b.length) {
+                    /* A4 and A6 take turns holding the next even power. */
+                    double[] next = power == A4 ? A6 : A4;
+                    Kernels.gemm(power, A2, next, n, n, n);
+                    power = next;
+                }
+            }
+            Kernels.gemm(A, T, U, n, n, n);
+        } else {
+            Kernels.gemm(A2, A2, A4, n, n, n);
+            Kernels.gemm(A4, A2, A6, n, n, n);
+            for (int i = 0; i < n * n; i++) {
+                T[i] = b[13] * A6[i] + b[11] * A4[i] + b[9] * A2[i];
+            }
+            Kernels.gemm(A6, T, P, n, n, n);
+            for (int i = 0; i < n * n; i++) {
+                P[i] += b[7] * A6[i] + b[5] * A4[i] + b[3] * A2[i];
+            }
+            for (int i = 0; i < n; i++) {
+                P[i * n + i] += b[1];
+            }
+            Kernels.gemm(A, P, U, n, n, n);
+            for (int i = 0; i < n * n; i++) {
+                T[i] = b[12] * A6[i] + b[10] * A4[i] + b[8] * A2[i];
+            }
+            Kernels.gemm(A6, T, V, n, n, n);
+            for (int i = 0; i < n * n; i++) {
+                V[i] += b[6] * A6[i] + b[4] * A4[i] + b[2] * A2[i];
+            }
+            for (int i = 0; i < n; i++) {
+                V[i * n + i] += b[0];
+            }
+        }
+
+        /* Solve (V - U) X = (V + U). */
+        for (int i = 0; i < n * n; i++) {
+            P[i] = V[i] - U[i];
+            Q[i] = V[i] + U[i];
+        }
+        if (!Kernels.lu(P, w.pivots(), n)) {
+            throw new IllegalArgumentException(
+                    "The Pade denominator is singular, so the matrix is badly scaled.");
+        }
+        double[] X = squarings % 2 == 0 ? out : T;
+        double[] Y = squarings % 2 == 0 ? T : out;
+        Kernels.luSolve(P, w.pivots(), n, Q, X, n);
+        for (int s = 0; s < squarings; s++) {
+            Kernels.gemm(X, X, Y, n, n, n);
+            double[] tmp = X;
+            X = Y;
+            Y = tmp;
+        }
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Square Root
+     *
+     * --------------------------------------------------
+     */
+    private static final int    MAX_ITERATIONS = 100;
+    private static final double TOLERANCE      = 1e-14;
+
+    /**
+     * out = the principal square root of a, by the Denman-Beavers iteration
+     * with determinant scaling. The iteration converges for matrices without
+     * eigenvalues on the closed negative real axis. The output may alias the
+     * input.
+     */
+    static void sqrtm(double[] a, double[] out, int n) {
+        Scratch w = scratch(n);
+        double[] Y = w.slot(9), Z = w.slot(10), Yi = w.slot(11), Zi = w.slot(12);
+        double[] L = w.slot(13), I = w.slot(14);
+        int[] pivots = w.pivots();
+
+        System.arraycopy(a, 0, Y, 0, n * n);
+        Kernels.identity(Z, n);
+        Kernels.identity(I, n);
+        for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+
+            /* Yi = inv(Y), Zi = inv(Z), and the log-determinants for scaling. */
+            System.arraycopy(Y, 0, L, 0, n * n);
+            if (!Kernels.lu(L, pivots, n)) {
+                throw new IllegalArgumentException("The matrix is singular, so it has no "
+                        + "principal square root which this iteration can find.");
+            }
+            double logDet = logAbsDiagonal(L, n);
+            Kernels.luSolve(L, pivots, n, I, Yi, n);
+            System.arraycopy(Z, 0, L, 0, n * n);
+            if (!Kernels.lu(L, pivots, n)) {
+                throw new IllegalArgumentException("The square root iteration broke down.");
+            }
+            logDet += logAbsDiagonal(L, n);
+            Kernels.luSolve(L, pivots, n, I, Zi, n);
+
+            double gamma = Math.exp(-logDet / (2 * n));
+            double change = 0;
+            double size = 0;
+            for (int i = 0; i < n * n; i++) {
+                double y = 0.5 * (gamma * Y[i] + Zi[i] / gamma);
+                double z = 0.5 * (gamma * Z[i] + Yi[i] / gamma);
+                change = Math.max(change, Math.abs(y - Y[i]));
+                size = Math.max(size, Math.abs(y));
+                Y[i] = y;
+                Z[i] = z;
+            }
+            if (change <= TOLERANCE * size) {
+                System.arraycopy(Y, 0, out, 0, n * n);
+                return;
+            }
+        }
+        throw new IllegalArgumentException("The square root iteration did not converge. The "
+                + "matrix may have eigenvalues on the closed negative real axis.");
+    }
+
+    private static double logAbsDiagonal(double[] lu, int n) {
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += Math.log(Math.abs(lu[i * n + i]));
+        }
+        return sum;
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Logarithm
+     *
+     * --------------------------------------------------
+     */
+
+    /** Gauss-Legendre nodes and weights for 8 points on [0, 1]. */
+    private static final double[] NODES   = { 0.0198550717512319, 0.1016667612931866,
+            0.2372337950418355, 0.4082826787521751, 0.5917173212478249, 0.7627662049581645,
+            0.8983332387068134, 0.9801449282487681 };
+    private static final double[] WEIGHTS = { 0.0506142681451881, 0.1111905172266872,
+            0.1568533229389436, 0.1813418916891810, 0.1813418916891810, 0.1568533229389436,
+            0.1111905172266872, 0.0506142681451881 };
+
+    /**
+     * out = the principal logarithm of a, by inverse scaling and squaring:
+     * take k square roots until {@code ||A^(1/2^k) - I||_1 <= 1/4}, evaluate
+     * {@code log(I + X)} with the [8/8] Pade approximant in partial fraction
+     * form (8-point Gauss-Legendre quadrature of the integral
+     * {@code X (I + t X)^-1} over [0, 1]), and multiply by 2^k.
+     */
+    static void logm(double[] a, double[] out, int n) {
+        Scratch w = scratch(n);
+        double[] X = w.slot(15), M = w.slot(16), S = w.slot(17), R = w.slot(18);
+        int[] pivots = w.pivots();
+
+        System.arraycopy(a, 0, X, 0, n * n);
+        int roots = 0;
+        for (;;) {
+            for (int i = 0; i < n; i++) {
+                X[i * n + i] -= 1;
+            }
+            if (Kernels.norm1(X, n) <= 0.25) {
+                break;
+            }
+            if (roots > 64) {
+                throw new IllegalArgumentException("The repeated square roots did not "
+                        + "approach the identity.");
+            }
+            for (int i = 0; i < n; i++) {
+                X[i * n + i] += 1;
+            }
+            sqrtm(X, X, n);
+            roots++;
+        }
+
+        for (int i = 0; i < n * n; i++) {
+            R[i] = 0;
+        }
+        for (int q = 0; q < NODES.length; q++) {
+            /* R += weight * (I + node X)^-1 X */
+            for (int i = 0; i < n * n; i++) {
+                M[i] = NODES[q] * X[i];
+            }
+            for (int i = 0; i < n; i++) {
+                M[i * n + i] += 1;
+            }
+            if (!Kernels.lu(M, pivots, n)) {
+                throw new IllegalArgumentException("The logarithm does not exist.");
+            }
+            Kernels.luSolve(M, pivots, n, X, S, n);
+            for (int i = 0; i < n * n; i++) {
+                R[i] += WEIGHTS[q] * S[i];
+            }
+        }
+        double scale = Math.scalb(1.0, roots);
+        for (int i = 0; i < n * n; i++) {
+            out[i] = scale * R[i];
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package io.jeti.matrix;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Opt-in memoization of expensive results derived from immutable
+ * {@link Matrix} instances: products ({@link Matrix#times} and
+ * {@link Matrix#transposeTimes}), factorizations ({@link Matrix#lu()} and
+ * {@link Matrix#cholesky()}), inverses, and norms. With a fixed system matrix
+ * which is used across many requests, repeated derivations become lookups:
+ *
+ * <pre>
+ * Memo.setCapacity(1 &lt;&lt; 20);
+ * ...
+ * Vector x = A.lu().solve(b); // factors A the first time only
+ * </pre>
+ *
+ * The results live in one process-wide LRU cache, keyed by the identity (not
+ * the contents) of the operands, and bounded by the total number of elements
+ * of the cached results. Once that exceeds the capacity, the least recently
+ * used results are evicted. The operands are only weakly referenced, so the
+ * cache never keeps a matrix alive, and the results derived from a collected
+ * matrix are dropped.
+ * <p>
+ * Nothing is cached until a capacity is set, and while it is 0, the cost of
+ * every hook is a single volatile read. Results computed inside an
+ * {@link Arena} are not cached either, since their storage is recycled when
+ * the arena closes. Since the cache relies on immutability, matrices whose
+ * storage may change after construction, such as those created by
+ * {@link Matrix#wrap} and views of them, are never memoized.
+ */
+public final class Memo {
+
+    /**
+     * The kinds of cached results.
+     */
+    enum Derivation {
+        TIMES, TRANSPOSE_TIMES, LU, CHOLESKY, INVERSE, NORM_1, NORM_INF, NORM_FROBENIUS
+    }
+
+    /**
+     * A derivation which is only run on a cache miss. This is not a
+     * {@code Supplier}, since that needs Android API level 24.
+     */
+    interface Computation<T> {
+
+        T compute();
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Private Fields
+     *
+     * --------------------------------------------------
+     */
+    private static volatile long               capacity = 0;
+
+    private static final Map<Key, Entry>       cache    = new LinkedHashMap<>(16, 0.75f, true);
+    private static final ReferenceQueue<Object> cleared = new ReferenceQueue<>();
+    private static long                        retained;
+    private static long                        hits;
+    private static long                        misses;
+
+    private Memo() {
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Configuration
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * Set the maximum total number of elements of the cached results, where a
+     * scalar counts as one element. A capacity of 0 (the default) turns the
+     * cache off and empties it.
+     */
+    public static synchronized void setCapacity(long elements) {
+        if (elements < 0) {
+            throw new IllegalArgumentException(
+                    "The capacity must be nonnegative, but was " + elements);
+        }
+        capacity = elements;
+        evict();
+    }
+
+    /**
+     * @return The maximum total number of elements of the cached results.
+     */
+    public static long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return {@code true} if results are being cached.
+     */
+    public static boolean isEnabled() {
+        return capacity > 0;
+    }
+
+    /**
+     * Drop every cached result and reset the statistics.
+     */
+    public static synchronized void clear() {
+        cache.clear();
+        retained = 0;
+        hits = 0;
+        misses = 0;
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Statistics
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * @return The number of lookups which found a cached result.
+     */
+    public static synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return The number of lookups which had to compute the result.
+     */
+    public static synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return The total number of elements of the cached results.
+     */
+    public static synchronized long getRetained() {
+        return retained;
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Lookup
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * @return The cached result of the derivation from the operands ({@code b}
+     *         may be {@code null}), or else the result of the computation, which
+     *         is cached with the specified weight. The computation runs without
+     *         holding the lock, so two threads may occasionally both compute
+     *         the same result.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T get(Derivation derivation, Object a, Object b, long weight,
+            Computation<T> computation) {
+        if (capacity == 0 || Arena.isActive()) {
+            return computation.compute();
+        }
+        Key key = new Key(derivation, a, b, null);
+        synchronized (Memo.class) {
+            expunge();
+            Entry entry = cache.get(key);
+            if (entry != null) {
+                hits++;
+                return (T) entry.value;
+            }
+            misses++;
+        }
+        T value = computation.compute();
+        if (weight > capacity) {
+            return value;
+        }
+        synchronized (Memo.class) {
+            Entry previous = cache.put(new Key(derivation, a, b, cleared), new Entry(value,
+                    weight));
+            retained += weight - (previous == null ? 0 : previous.weight);
+            evict();
+        }
+        return value;
+    }
+
+    private static void evict() {
+        Iterator<Entry> entries = cache.values().iterator();
+        while (retained > capacity && entries.hasNext()) {
+            retained -= entries.next().weight;
+            entries.remove();
+        }
+    }
+
+    /**
+     * Remove the entries for which an operand has been collected.
+     */
+    private static void expunge() {
+        Object reference;
+        while ((reference = cleared.poll()) != null) {
+            Key key = ((Operand) reference).key;
+            Entry entry = cache.remove(key);
+            if (entry != null) {
+                retained -= entry.weight;
+            }
+        }
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Keys and Entries
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * A weak reference to an operand, which knows the key it belongs to.
+     */
+    private static final class Operand extends WeakReference<Object> {
+
+        private Key key;
+
+        Operand(Object referent, ReferenceQueue<Object> queue) {
+            super(referent, queue);
+        }
+    }
+
+    /**
+     * Compares its operands by identity. A key whose operand has been
+     * collected only equals itself.
+     */
+    private static final class Key {
+
+        private final Derivation derivation;
+        private final Operand    a;
+        private final Operand    b;
+        private final int        hash;
+
+        Key(Derivation derivation, Object a, Object b, ReferenceQueue<Object> queue) {
+            this.derivation = derivation;
+            this.a = new Operand(a, queue);
+            this.b = b == null ? null : new Operand(b, queue);
+            this.a.key = this;
+            if (this.b != null) {
+                this.b.key = this;
+            }
+            this.hash = 31 * (31 * derivation.hashCode() + System.identityHashCode(a))
+                    + System.identityHashCode(b);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            Object a = this.a.get();
+            return derivation == key.derivation && a != null && a == key.a.get()
+                    && (b == null ? key.b == null : key.b != null && b.get() == key.b.get()
+                            && b.get() != null);
+        }
+    }
+
+    private static final class Entry {
+
+        private final Object value;
+        private final long   weight;
+
+        Entry(Object value, long weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package io.jeti.matrix;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Opt-in instrumentation of the hot paths in {@link Matrix},
+ * {@link MutableMatrix}, {@link Vector}, {@link MutableVector}, and the
+ * tensors. Nothing is recorded until a {@link Listener} is added, and while
+ * there are no listeners, the cost of every hook is a single volatile read.
+ * For example,
+ *
+ * <pre>
+ * Metrics.addListener((operation, type, rows, cols, elements, nanos) -&gt; ...);
+ * </pre>
+ *
+ * Only this SPI is part of the core library, which must also run on Android.
+ * The {@code matrix-metrics} module adds {@code MetricsRecorder}, for counters
+ * and histograms (also available over JMX), and {@code JfrMetrics}, for Java
+ * Flight Recorder events.
+ * <p>
+ * The {@code plus}, {@code minus}, scalar {@code times}, and {@code T()}
+ * operations are inherited from the {@code io.jeti.linalg} interfaces, which
+ * build their results element by element through {@code newInstance}, so they
+ * are only reported as the {@link Operation#CONSTRUCT} of their result. The
+ * primitive {@code map} and {@code zipWith} express the same arithmetic and
+ * are reported as {@link Operation#ELEMENTWISE}.
+ */
+public final class Metrics {
+
+    /**
+     * The operations which are reported to the listeners.
+     */
+    public enum Operation {
+        /**
+         * Allocation and filling of new storage. When the storage was filled
+         * by a multiplication or an element-wise operation, which is reported
+         * on its own, only the adoption of the storage is timed.
+         */
+        CONSTRUCT,
+        /** Multiplication, including {@code setProduct}. */
+        TIMES,
+        /** {@code map} and {@code zipWith}, which return a new result. */
+        ELEMENTWISE,
+        /**
+         * Operations which overwrite their receiver: {@code mapInPlace},
+         * {@code zipWithInPlace}, {@code setTo}, {@code plusInPlace},
+         * {@code minusInPlace}, {@code scaleInPlace}, and {@code fill}.
+         */
+        IN_PLACE
+    }
+
+    /**
+     * The service provider interface for consumers of the instrumentation.
+     * Implementations are called synchronously on the thread which performed
+     * the operation, so they should be quick and thread-safe.
+     */
+    public interface Listener {
+
+        /**
+         * @param operation
+         *            The operation which completed.
+         * @param type
+         *            The class of the result.
+         * @param rows
+         *            The number of rows of the result (the size for vectors).
+         * @param cols
+         *            The number of columns of the result (1 for vectors).
+         * @param elements
+         *            The number of elements for which new storage was
+         *            allocated, or 0 if the operation allocated nothing.
+         *            Structured matrices only count their packed elements,
+         *            and wrapped arrays count nothing.
+         * @param nanos
+         *            The wall-clock duration of the operation.
+         */
+        void onOperation(Operation operation, Class<?> type, int rows, int cols, long elements,
+                long nanos);
+    }
+
+    /**
+     * The value returned by {@link #start()} when the instrumentation is off.
+     */
+    static final long                                OFF       = Long.MIN_VALUE;
+
+    private static final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+    private static volatile boolean                   enabled   = false;
+
+    private Metrics() {
+    }
+
+    /**
+     * Start reporting operations to the specified listener.
+     */
+    public static synchronized void addListener(Listener listener) {
+        if (listener == null) {
+            throw new NullPointerException("The listener must not be null.");
+        }
+        listeners.addIfAbsent(listener);
+        enabled = true;
+    }
+
+    /**
+     * Stop reporting operations to the specified listener. Once the last
+     * listener is removed, the hooks go back to doing nothing.
+     */
+    public static synchronized void removeListener(Listener listener) {
+        listeners.remove(listener);
+        enabled = !listeners.isEmpty();
+    }
+
+    /**
+     * @return {@code true} if at least one listener is registered.
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return A timestamp to pass to {@link #record}, or {@link #OFF} if
+     *         nothing is listening.
+     */
+    static long start() {
+        return enabled ? System.nanoTime() : OFF;
+    }
+
+    /**
+     * Report an operation which began at {@code start} (as returned by
+     * {@link #start()}) to all listeners.
+     */
+    static void record(Operation operation, Class<?> type, int rows, int cols, long elements,
+            long start) {
+        if (start == OFF) {
+            return;
+        }
+        long nanos = System.nanoTime() - start;
+        for (Listener listener : listeners) {
+            listener.onOperation(operation, type, rows, cols, elements, nanos);
+        }
+    }
+}
@@ -3,9 +3,11 @@ package io.jeti.matrix;
 import io.jeti.linalg.matrix.Mat;
 import io.jeti.linalg.matrix.MutMat;
 import io.jeti.linalg.matrix.utils.Check;
-import io.jeti.matrix.Settable.List2;
 import io.jeti.matrix.Settable.Settable2;
-import java.util.ArrayList;
+import io.jeti.matrix.Metrics.Operation;
+import java.nio.DoubleBuffer;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
 import java.util.List;
 
 /**
@@ -30,6 +32,10 @@ public class MutableMatrix implements MutMat<MutableMatrix>, Settable2<Double> {
     private final int               colFrom;
     private final int               colStride;
 
+    /* Explicit indices of the selected rows and columns, or null for a stride. */
+    private final int[]             rowIndices;
+    private final int[]             colIndices;
+
     /*
      * --------------------------------------------------
      *
@@ -46,23 +52,7 @@ public class MutableMatrix implements MutMat<MutableMatrix>, Settable2<Double> {
      * See {@link #newInstance(int, int, Filler)}.
      */
     public MutableMatrix(int rows, int cols, Filler filler) {
-        Check.positive(rows);
-        Check.positive(cols);
-        List<List<Double>> tmp = new ArrayList<>(rows);
-        for (int r = 0; r < rows; r++) {
-            List<Double> row = new ArrayList<>(cols);
-            for (int c = 0; c < rows; c++) {
-                row.add(filler.apply(r, c));
-            }
-            tmp.add(row);
-        }
-        this.data = new List2<>(tmp);
-        this.rows = rows;
-        this.rowFrom = 0;
-        this.rowStride = 1;
-        this.cols = cols;
-        this.colFrom = 0;
-        this.colStride = 1;
+        this(Metrics.start(), new Settable.Array2(fill(rows, cols, filler), cols), rows, cols);
     }
 
     /**
@@ -100,6 +90,89 @@ public class MutableMatrix implements MutMat<MutableMatrix>, Settable2<Double> {
         this(data.length, data[0].length, (row, col) -> data[row][col].doubleValue());
     }
 
+    /**
+     * Copy a (rows x cols) matrix out of a row-major array with a single
+     * {@link System#arraycopy}, without calling a {@link Filler} per element.
+     */
+    public MutableMatrix(int rows, int cols, final double[] data) {
+        this(rows, cols, data, 0);
+    }
+
+    /**
+     * Copy a (rows x cols) matrix out of a row-major array, starting at the
+     * specified offset, with a single {@link System#arraycopy}.
+     */
+    public MutableMatrix(int rows, int cols, final double[] data, int offset) {
+        this(Metrics.start(), new Settable.Array2(copy(rows, cols, data, offset), cols), rows,
+                cols);
+    }
+
+    /**
+     * Copy a rectangular array, with one {@link System#arraycopy} per row.
+     */
+    public MutableMatrix(final double[][] data) {
+        this(Metrics.start(), new Settable.Array2(copy(data), data[0].length), data.length,
+                data[0].length);
+    }
+
+    /**
+     * Copy a (rows x cols) matrix out of the remaining elements of a row-major
+     * buffer (heap or direct) with a single bulk get. The position of the
+     * buffer advances by {@code rows * cols}.
+     */
+    public MutableMatrix(int rows, int cols, final DoubleBuffer data) {
+        this(Metrics.start(), new Settable.Array2(copy(rows, cols, data), cols), rows, cols);
+    }
+
+    /**
+     * Copy a (rows x cols) matrix out of a row-major array of floats, widening
+     * each element in a single primitive loop.
+     */
+    public MutableMatrix(int rows, int cols, final float[] data) {
+        this(Metrics.start(), new Settable.Array2(copy(rows, cols, data), cols), rows, cols);
+    }
+
+    /**
+     * @return A (rows x cols) matrix which adopts the row-major array as its
+     *         storage, without copying it. Changes to the array will be visible
+     *         in the matrix, and it is not counted as an allocation by
+     *         {@link Metrics}.
+     */
+    public static MutableMatrix wrap(int rows, int cols, final double[] data) {
+        checkShape(rows, cols, data.length);
+        return new MutableMatrix(new Settable.Array2(data, cols, true), rows, cols);
+    }
+
+    /**
+     * A hidden constructor which adopts the given storage without copying it.
+     */
+    MutableMatrix(Settable2<Double> data, int rows, int cols) {
+        this(Metrics.start(), data, rows, cols);
+    }
+
+    /**
+     * A hidden constructor which adopts the given storage without copying it,
+     * and reports the construction to {@link Metrics} as having started at
+     * {@code start}, with the footprint of the storage (see
+     * {@link Gettable.Footprint}). Every matrix which is not a view is
+     * reported here, and only here.
+     */
+    MutableMatrix(long start, Settable2<Double> data, int rows, int cols) {
+        Check.positive(rows);
+        Check.positive(cols);
+        this.data = data;
+        this.rows = rows;
+        this.rowFrom = 0;
+        this.rowStride = 1;
+        this.cols = cols;
+        this.colFrom = 0;
+        this.colStride = 1;
+        this.rowIndices = null;
+        this.colIndices = null;
+        Metrics.record(Operation.CONSTRUCT, getClass(), rows, cols, Gettable.footprint(data),
+                start);
+    }
+
     private MutableMatrix(MutableMatrix matrix, int fromRow, int toRow, int rowStride, int fromCol,
             int toCol, int colStride) {
 
@@ -113,6 +186,24 @@ public class MutableMatrix implements MutMat<MutableMatrix>, Settable2<Double> {
         this.rowStride = rowStride;
         this.colFrom = fromCol;
         this.colStride = colStride;
+        this.rowIndices = null;
+        this.colIndices = null;
+    }
+
+    /**
+     * A hidden constructor for views which select explicit rows and columns,
+     * where {@code null} selects all of them.
+     */
+    private MutableMatrix(MutableMatrix matrix, int[] rowIndices, int[] colIndices) {
+        this.rowIndices = rowIndices == null ? null : Indices.check(rowIndices, matrix.rows());
+        this.colIndices = colIndices == null ? null : Indices.check(colIndices, matrix.cols());
+        this.data = matrix;
+        this.rows = rowIndices == null ? matrix.rows() : rowIndices.length;
+        this.rowFrom = 0;
+        this.rowStride = 1;
+        this.cols = colIndices == null ? matrix.cols() : colIndices.length;
+        this.colFrom = 0;
+        this.colStride = 1;
     }
 
     /**
@@ -140,7 +231,19 @@ public class MutableMatrix implements MutMat<MutableMatrix>, Settable2<Double> {
      * @return A (rows x cols) Matrix of uniform random number in [0,1].
      */
     public static MutableMatrix rand(int rows, int cols) {
-        return new MutableMatrix(rows, cols, (row, col) -> random.nextDouble());
+        return rand(rows, cols, random.nextLong());
+    }
+
+    /**
+     * @return A (rows x cols) Matrix of uniform random number in [0,1), which
+     *         only depends on the seed. Large matrices are filled in parallel.
+     */
+    public static MutableMatrix rand(int rows, int cols, long seed) {
+        Check.positive(rows);
+        Check.positive(cols);
+        long start = Metrics.start();
+        double[] array = Randoms.uniform(rows * cols, seed);
+        return new MutableMatrix(start, new Settable.Array2(array, cols), rows, cols);
     }
 
     /**
@@ -148,7 +251,94 @@ public class MutableMatrix implements MutMat<MutableMatrix>, Settable2<Double> {
      *         distribution with mean 0 and variance 1.
      */
     public static MutableMatrix randn(int rows, int cols) {
-        return new MutableMatrix(rows, cols, (row, col) -> random.nextGaussian());
+        return randn(rows, cols, random.nextLong());
+    }
+
+    /**
+     * @return A (rows x cols) Matrix of Gaussian random number drawn from a
+     *         distribution with mean 0 and variance 1, which only depends on
+     *         the seed. Large matrices are filled in parallel.
+     */
+    public static MutableMatrix randn(int rows, int cols, long seed) {
+        Check.positive(rows);
+        Check.positive(cols);
+        long start = Metrics.start();
+        double[] array = Randoms.gaussian(rows * cols, seed);
+        return new MutableMatrix(start, new Settable.Array2(array, cols), rows, cols);
+    }
+
+    private static double[] fill(int rows, int cols, Filler filler) {
+        Check.positive(rows);
+        Check.positive(cols);
+        double[] array = Arena.allocate(rows * cols);
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                array[r * cols + c] = filler.apply(r, c);
+            }
+        }
+        return array;
+    }
+
+    /**
+     * Make sure that a (rows x cols) matrix can be read out of
+     * {@code available} elements. The copies check this before they allocate,
+     * so that bad input neither leases a buffer from the {@link Arena} nor
+     * fails with an obscure exception.
+     */
+    private static void checkShape(int rows, int cols, int available) {
+        Check.positive(rows);
+        Check.positive(cols);
+        if (available < (long) rows * cols) {
+            throw new IllegalArgumentException("A (" + rows + " x " + cols + ") matrix needs "
+                    + (long) rows * cols + " elements, but there were " + available);
+        }
+    }
+
+    private static double[] copy(int rows, int cols, double[] data, int offset) {
+        if (offset < 0 || offset > data.length) {
+            throw new IndexOutOfBoundsException(
+                    "The offset " + offset + " is outside of an array of " + data.length);
+        }
+        checkShape(rows, cols, data.length - offset);
+        double[] array = Arena.allocate(rows * cols);
+        System.arraycopy(data, offset, array, 0, array.length);
+        return array;
+    }
+
+    private static double[] copy(double[][] data) {
+        if (data.length == 0) {
+            throw new IllegalArgumentException("A matrix needs at least one row");
+        }
+        int rows = data.length;
+        int cols = data[0].length;
+        for (int r = 1; r < rows; r++) {
+            if (data[r].length != cols) {
+                throw new IllegalArgumentException("Row " + r + " has " + data[r].length
+                        + " elements, but row 0 has " + cols);
+            }
+        }
+        checkShape(rows, cols, rows * cols);
+        double[] array = Arena.allocate(rows * cols);
+        for (int r = 0; r < rows; r++) {
+            System.arraycopy(data[r], 0, array, r * cols, cols);
+        }
+        return array;
+    }
+
+    private static double[] copy(int rows, int cols, DoubleBuffer data) {
+        checkShape(rows, cols, data.remaining());
+        double[] array = Arena.allocate(rows * cols);
+        data.get(array);
+        return array;
+    }
+
+    private static double[] copy(int rows, int cols, float[] data) {
+        checkShape(rows, cols, data.length);
+        double[] array = Arena.allocate(rows * cols);
+        for (int i = 0; i < array.length; i++) {
+            array[i] = data[i];
+        }
+        return array;
     }
 
     /*
@@ -170,8 +360,8 @@ public class MutableMatrix implements MutMat<MutableMatrix>, Settable2<Double> {
 
     @Override
     public final Double get(int row, int col) {
-        int r = index(row, rowFrom, rowStride, rows());
-        int c = index(col, colFrom, colStride, cols());
+        int r = rowIndices == null ? index(row, rowFrom, rowStride, rows()) : rowIndices[row];
+        int c = colIndices == null ? index(col, colFrom, colStride, cols()) : colIndices[col];
         return data.get(r, c);
     }
 
@@ -181,6 +371,50 @@ public class MutableMatrix implements MutMat<MutableMatrix>, Settable2<Double> {
         return new MutableMatrix(this, fromRow, toRow, rowStride, fromCol, toCol, colStride);
     }
 
+    /**
+     * @return A view of the specified rows and columns, in the given order,
+     *         which reads and writes through to this matrix without copying
+     *         anything. Indices may repeat, in which case in-place operations
+     *         on the view update the same element more than once. Index views
+     *         compose with each other and with
+     *         the stride views, and {@link #times} reads them in place.
+     */
+    public MutableMatrix select(int[] rowIndices, int[] colIndices) {
+        return new MutableMatrix(this, rowIndices, colIndices);
+    }
+
+    /**
+     * @return A view of the specified rows, such as a row permutation from
+     *         pivoting or a sampled mini-batch. See {@link #select(int[], int[])}.
+     */
+    public MutableMatrix selectRows(int[] rowIndices) {
+        return new MutableMatrix(this, rowIndices, null);
+    }
+
+    /**
+     * @return A view of the specified columns. See
+     *         {@link #select(int[], int[])}.
+     */
+    public MutableMatrix selectCols(int[] colIndices) {
+        return new MutableMatrix(this, null, colIndices);
+    }
+
+    /**
+     * @return A view of the rows for which the mask is {@code true}. See
+     *         {@link #select(int[], int[])}.
+     */
+    public MutableMatrix selectRows(boolean[] mask) {
+        return new MutableMatrix(this, Indices.of(mask, rows()), null);
+    }
+
+    /**
+     * @return A view of the columns for which the mask is {@code true}. See
+     *         {@link #select(int[], int[])}.
+     */
+    public MutableMatrix selectCols(boolean[] mask) {
+        return new MutableMatrix(this, null, Indices.of(mask, cols()));
+    }
+
     /*
      * --------------------------------------------------
      *
@@ -195,8 +429,8 @@ public class MutableMatrix implements MutMat<MutableMatrix>, Settable2<Double> {
 
     @Override
     public Double set(int row, int col, Double val) {
-        int r = index(row, rowFrom, rowStride, rows());
-        int c = index(col, colFrom, colStride, cols());
+        int r = rowIndices == null ? index(row, rowFrom, rowStride, rows()) : rowIndices[row];
+        int c = colIndices == null ? index(col, colFrom, colStride, cols()) : colIndices[col];
         return data.set(r, c, val);
     }
 
@@ -215,14 +449,499 @@ public class MutableMatrix implements MutMat<MutableMatrix>, Settable2<Double> {
             return times(B.get(0, 0));
         } else {
             Check.zero(cols() - B.rows());
-            return newInstance(rows(), B.cols(), (row, col) -> {
+            long start = Metrics.start();
+            int ao = contiguous();
+            int bo = B.contiguous();
+            boolean contiguous = ao >= 0 && bo >= 0;
+            int[][] a = contiguous ? null : gather();
+            int[][] b = contiguous ? null : B.gather();
+            if (contiguous || (a != null && b != null)) {
+                double[] c = Arena.allocate(rows() * B.cols());
+                if (contiguous) {
+                    Tuning.gemm(buffer(), ao, B.buffer(), bo, c, rows(), cols(), B.cols());
+                } else {
+                    Kernels.gemm(buffer(), a, B.buffer(), b, c, rows(), cols(), B.cols());
+                }
+                MutableMatrix product = new MutableMatrix(Metrics.start(),
+                        new Settable.Array2(c, B.cols()), rows(), B.cols());
+                Metrics.record(Operation.TIMES, product.getClass(), rows(), B.cols(), 0, start);
+                return product;
+            }
+            double[] c = fill(rows(), B.cols(), (row, col) -> {
                 double sum = 0.0;
                 for (int i = 0; i < cols(); i++) {
                     sum += get(row, i) * B.get(i, col);
                 }
                 return sum;
             });
+            MutableMatrix product = new MutableMatrix(Metrics.start(),
+                    new Settable.Array2(c, B.cols()), rows(), B.cols());
+            Metrics.record(Operation.TIMES, product.getClass(), rows(), B.cols(), 0, start);
+            return product;
+        }
+    }
+
+    /**
+     * @return A new row-major array holding the elements of this matrix.
+     */
+    public double[] toArray() {
+        double[] array = new double[size()];
+        copyInto(array, 0);
+        return array;
+    }
+
+    /**
+     * Copy the elements of this matrix, in row-major order, into the array
+     * starting at the specified offset. Dense matrices and views of them are
+     * copied straight out of the backing array, with one
+     * {@link System#arraycopy} for contiguous storage, one per row for views
+     * with unit column stride, and a primitive strided loop otherwise.
+     */
+    public void copyInto(double[] dest, int offset) {
+        copyInto(dest, offset, cols());
+    }
+
+    /**
+     * Like {@link #copyInto(double[], int)}, but with rows which are
+     * {@code ld} elements apart in the destination.
+     */
+    void copyInto(double[] dest, int offset, int ld) {
+        int[] layout = layout();
+        if (layout == null) {
+            int[][] offsets = gather();
+            double[] src = buffer();
+            for (int r = 0; r < rows(); r++) {
+                for (int c = 0; c < cols(); c++) {
+                    dest[offset + r * ld + c] = offsets == null ? get(r, c)
+                            : src[offsets[0][r] + offsets[1][c]];
+                }
+            }
+            return;
+        }
+        double[] src = buffer();
+        int base = layout[0];
+        int rowStep = layout[1];
+        int colStep = layout[2];
+        if (colStep == 1 && rowStep == cols() && ld == cols()) {
+            System.arraycopy(src, base, dest, offset, size());
+        } else if (colStep == 1) {
+            for (int r = 0; r < rows(); r++) {
+                System.arraycopy(src, base + r * rowStep, dest, offset + r * ld, cols());
+            }
+        } else {
+            for (int r = 0; r < rows(); r++) {
+                int from = base + r * rowStep;
+                int to = offset + r * ld;
+                for (int c = 0; c < cols(); c++) {
+                    dest[to + c] = src[from + c * colStep];
+                }
+            }
+        }
+    }
+
+    /**
+     * @return {base, rowStep, colStep} such that element (r, c) of this matrix
+     *         lives at {@code base + r * rowStep + c * colStep} in
+     *         {@link #buffer()}, or {@code null} if the storage is not a flat
+     *         array.
+     */
+    int[] layout() {
+        if (rowIndices != null || colIndices != null) {
+            return null;
+        }
+        int[] parent;
+        if (data instanceof Settable.Array2) {
+            parent = new int[] { 0, ((Settable.Array2) data).cols, 1 };
+        } else if (data instanceof MutableMatrix) {
+            parent = ((MutableMatrix) data).layout();
+            if (parent == null) {
+                return null;
+            }
+        } else {
+            return null;
+        }
+        return new int[] { parent[0] + rowFrom * parent[1] + colFrom * parent[2],
+                rowStride * parent[1], colStride * parent[2] };
+    }
+
+    /**
+     * @return The flat array at the root of the storage of this matrix (or of
+     *         the matrix that this is a view of), or {@code null} if the
+     *         storage is not a flat array.
+     */
+    double[] buffer() {
+        if (data instanceof Settable.Array2) {
+            return ((Settable.Array2) data).array();
+        } else if (data instanceof MutableMatrix) {
+            return ((MutableMatrix) data).buffer();
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * @return {rowOffsets, colOffsets} such that element (r, c) of this matrix
+     *         lives at {@code rowOffsets[r] + colOffsets[c]} in
+     *         {@link #buffer()}, or {@code null} if the storage is not a flat
+     *         array. Unlike {@link #layout()}, this also covers index views,
+     *         and views of them.
+     */
+    int[][] gather() {
+        int[] rowOffsets = new int[rows()];
+        int[] colOffsets = new int[cols()];
+        int[] layout = layout();
+        if (layout != null) {
+            for (int r = 0; r < rows(); r++) {
+                rowOffsets[r] = layout[0] + r * layout[1];
+            }
+            for (int c = 0; c < cols(); c++) {
+                colOffsets[c] = c * layout[2];
+            }
+            return new int[][] { rowOffsets, colOffsets };
+        }
+        if (!(data instanceof MutableMatrix)) {
+            return null;
+        }
+
+        /* Prefer the affine layout of the parent, which is O(1) to build. */
+        MutableMatrix parent = (MutableMatrix) data;
+        int[] affine = parent.layout();
+        int[][] offsets = affine == null ? parent.gather() : null;
+        if (affine == null && offsets == null) {
+            return null;
+        }
+        for (int r = 0; r < rows(); r++) {
+            int row = rowIndices == null ? rowFrom + r * rowStride : rowIndices[r];
+            rowOffsets[r] = affine == null ? offsets[0][row] : affine[0] + row * affine[1];
+        }
+        for (int c = 0; c < cols(); c++) {
+            int col = colIndices == null ? colFrom + c * colStride : colIndices[c];
+            colOffsets[c] = affine == null ? offsets[1][col] : col * affine[2];
+        }
+        return new int[][] { rowOffsets, colOffsets };
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Element-wise Operations
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * @return A new matrix holding {@code op} applied to every element. This
+     *         is a single primitive loop over the storage, which runs in
+     *         parallel for large matrices, so {@code op} must be stateless.
+     */
+    public MutableMatrix map(DoubleUnaryOperator op) {
+        long start = Metrics.start();
+        int xo = contiguous();
+        double[] x = xo < 0 ? toArray() : buffer();
+        double[] z = Arena.allocate(size());
+        Elementwise.map(x, Math.max(xo, 0), z, 0, size(), op);
+        MutableMatrix result = new MutableMatrix(Metrics.start(), new Settable.Array2(z, cols()),
+                rows(), cols());
+        Metrics.record(Operation.ELEMENTWISE, result.getClass(), rows(), cols(), 0, start);
+        return result;
+    }
+
+    /**
+     * @return A new matrix holding {@code op(this(r, c), B(r, c))} for every
+     *         element, computed in a single pass. See
+     *         {@link #map(DoubleUnaryOperator)}.
+     */
+    public MutableMatrix zipWith(MutableMatrix B, DoubleBinaryOperator op) {
+        checkSameSize(B);
+        long start = Metrics.start();
+        int xo = contiguous();
+        double[] x = xo < 0 ? toArray() : buffer();
+        int yo = B.contiguous();
+        double[] y = yo < 0 ? B.toArray() : B.buffer();
+        double[] z = Arena.allocate(size());
+        Elementwise.zip(x, Math.max(xo, 0), y, Math.max(yo, 0), z, 0, size(), op);
+        MutableMatrix result = new MutableMatrix(Metrics.start(), new Settable.Array2(z, cols()),
+                rows(), cols());
+        Metrics.record(Operation.ELEMENTWISE, result.getClass(), rows(), cols(), 0, start);
+        return result;
+    }
+
+    /**
+     * @return A new matrix holding {@code op(this(r, c), B(r, c), C(r, c))}
+     *         for every element, computed in a single pass, so that for
+     *         instance {@code a * b + c} does not need a temporary. See
+     *         {@link #map(DoubleUnaryOperator)}.
+     */
+    public MutableMatrix zipWith(MutableMatrix B, MutableMatrix C, DoubleTernaryOperator op) {
+        checkSameSize(B);
+        checkSameSize(C);
+        long start = Metrics.start();
+        int xo = contiguous();
+        double[] x = xo < 0 ? toArray() : buffer();
+        int yo = B.contiguous();
+        double[] y = yo < 0 ? B.toArray() : B.buffer();
+        int wo = C.contiguous();
+        double[] w = wo < 0 ? C.toArray() : C.buffer();
+        double[] z = Arena.allocate(size());
+        Elementwise.zip(x, Math.max(xo, 0), y, Math.max(yo, 0), w, Math.max(wo, 0), z, 0, size(),
+                op);
+        MutableMatrix result = new MutableMatrix(Metrics.start(), new Settable.Array2(z, cols()),
+                rows(), cols());
+        Metrics.record(Operation.ELEMENTWISE, result.getClass(), rows(), cols(), 0, start);
+        return result;
+    }
+
+    /**
+     * Replace every element by {@code op} applied to it, in place. On views,
+     * only the viewed elements change.
+     *
+     * @return This matrix, for chaining.
+     */
+    public MutableMatrix mapInPlace(final DoubleUnaryOperator op) {
+        long start = Metrics.start();
+        int[] layout = layout();
+        double[] z = buffer();
+        if (layout == null) {
+            int[][] offsets = gather();
+            for (int r = 0; r < rows(); r++) {
+                for (int c = 0; c < cols(); c++) {
+                    if (offsets == null) {
+                        set(r, c, op.applyAsDouble(get(r, c)));
+                    } else {
+                        int i = offsets[0][r] + offsets[1][c];
+                        z[i] = op.applyAsDouble(z[i]);
+                    }
+                }
+            }
+        } else if (contiguous() >= 0) {
+            Elementwise.map(z, layout[0], z, layout[0], size(), op);
+        } else {
+            for (int r = 0; r < rows(); r++) {
+                int row = layout[0] + r * layout[1];
+                if (layout[2] == 1) {
+                    Elementwise.map(z, row, z, row, cols(), op);
+                } else {
+                    for (int c = 0; c < cols(); c++) {
+                        int i = row + c * layout[2];
+                        z[i] = op.applyAsDouble(z[i]);
+                    }
+                }
+            }
         }
+        Metrics.record(Operation.IN_PLACE, getClass(), rows(), cols(), 0, start);
+        return this;
+    }
+
+    /**
+     * Replace every element by {@code op(this(r, c), B(r, c))}, in place. On
+     * views, only the viewed elements change.
+     *
+     * @return This matrix, for chaining.
+     */
+    public MutableMatrix zipWithInPlace(MutableMatrix B, final DoubleBinaryOperator op) {
+        checkSameSize(B);
+        long start = Metrics.start();
+        int yo = B.contiguous();
+        double[] y = yo < 0 ? B.toArray() : B.buffer();
+        yo = Math.max(yo, 0);
+        int[] layout = layout();
+        double[] z = buffer();
+        if (layout == null) {
+            int[][] offsets = gather();
+            for (int r = 0; r < rows(); r++) {
+                for (int c = 0; c < cols(); c++) {
+                    double other = y[yo + r * cols() + c];
+                    if (offsets == null) {
+                        set(r, c, op.applyAsDouble(get(r, c), other));
+                    } else {
+                        int i = offsets[0][r] + offsets[1][c];
+                        z[i] = op.applyAsDouble(z[i], other);
+                    }
+                }
+            }
+        } else if (contiguous() >= 0) {
+            Elementwise.zip(z, layout[0], y, yo, z, layout[0], size(), op);
+        } else {
+            for (int r = 0; r < rows(); r++) {
+                int row = layout[0] + r * layout[1];
+                int other = yo + r * cols();
+                if (layout[2] == 1) {
+                    Elementwise.zip(z, row, y, other, z, row, cols(), op);
+                } else {
+                    for (int c = 0; c < cols(); c++) {
+                        int i = row + c * layout[2];
+                        z[i] = op.applyAsDouble(z[i], y[other + c]);
+                    }
+                }
+            }
+        }
+        Metrics.record(Operation.IN_PLACE, getClass(), rows(), cols(), 0, start);
+        return this;
+    }
+
+    private void checkSameSize(MutableMatrix B) {
+        Check.zero(rows() - B.rows());
+        Check.zero(cols() - B.cols());
+    }
+
+    /**
+     * @return The offset into {@link #buffer()} at which the elements of this
+     *         matrix are stored contiguously in row-major order, or -1 if they
+     *         are not. This only allocates for views.
+     */
+    int contiguous() {
+        if (data instanceof Settable.Array2) {
+            return 0;
+        }
+        int[] layout = layout();
+        if (layout != null && layout[2] == 1 && (layout[1] == cols() || rows() == 1)) {
+            return layout[0];
+        }
+        return -1;
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Allocation-free Operations
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * Overwrite this matrix with the elements of B. When both are dense (not
+     * views), this is a single {@link System#arraycopy} and allocates nothing.
+     *
+     * @return This matrix, for chaining.
+     */
+    public MutableMatrix setTo(MutableMatrix B) {
+        checkSameSize(B);
+        long start = Metrics.start();
+        int zo = contiguous();
+        int yo = B.contiguous();
+        if (zo >= 0 && yo >= 0) {
+            System.arraycopy(B.buffer(), yo, buffer(), zo, size());
+        } else {
+            for (int r = 0; r < rows(); r++) {
+                for (int c = 0; c < cols(); c++) {
+                    set(r, c, B.get(r, c));
+                }
+            }
+        }
+        Metrics.record(Operation.IN_PLACE, getClass(), rows(), cols(), 0, start);
+        return this;
+    }
+
+    /**
+     * Overwrite this matrix with {@code A * B}. When all three matrices are
+     * dense (not views), this runs the primitive kernel directly on their
+     * arrays and allocates nothing. Together with a {@link Workspace}, this is
+     * the allocation-free alternative to {@link #times(MutableMatrix)}.
+     *
+     * @return This matrix, for chaining.
+     * @throws IllegalArgumentException
+     *             If this matrix shares its storage with A or B.
+     */
+    public MutableMatrix setProduct(MutableMatrix A, MutableMatrix B) {
+        Check.zero(A.cols() - B.rows());
+        Check.zero(rows() - A.rows());
+        Check.zero(cols() - B.cols());
+        double[] c = buffer();
+        if (c != null && (c == A.buffer() || c == B.buffer())) {
+            throw new IllegalArgumentException(
+                    "The product must not overwrite one of its operands.");
+        }
+        long start = Metrics.start();
+        int co = contiguous();
+        int ao = A.contiguous();
+        int bo = B.contiguous();
+        if (co >= 0 && ao >= 0 && bo >= 0) {
+            Kernels.gemmBlocked(A.buffer(), ao, B.buffer(), bo, c, co, rows(), A.cols(), cols(),
+                    Math.max(A.cols(), cols()));
+        } else {
+            for (int r = 0; r < rows(); r++) {
+                for (int col = 0; col < cols(); col++) {
+                    double sum = 0.0;
+                    for (int i = 0; i < A.cols(); i++) {
+                        sum += A.get(r, i) * B.get(i, col);
+                    }
+                    set(r, col, sum);
+                }
+            }
+        }
+        Metrics.record(Operation.TIMES, getClass(), rows(), cols(), 0, start);
+        return this;
+    }
+
+    /**
+     * Add B to this matrix, in place. Dense operands allocate nothing.
+     *
+     * @return This matrix, for chaining.
+     */
+    public MutableMatrix plusInPlace(MutableMatrix B) {
+        return plusInPlace(1, B);
+    }
+
+    /**
+     * Subtract B from this matrix, in place. Dense operands allocate nothing.
+     *
+     * @return This matrix, for chaining.
+     */
+    public MutableMatrix minusInPlace(MutableMatrix B) {
+        return plusInPlace(-1, B);
+    }
+
+    /**
+     * Add {@code alpha * B} to this matrix, in place. Dense operands allocate
+     * nothing.
+     *
+     * @return This matrix, for chaining.
+     */
+    public MutableMatrix plusInPlace(double alpha, MutableMatrix B) {
+        checkSameSize(B);
+        long start = Metrics.start();
+        int zo = contiguous();
+        int yo = B.contiguous();
+        if (zo >= 0 && yo >= 0) {
+            double[] z = buffer();
+            double[] y = B.buffer();
+            for (int i = 0; i < size(); i++) {
+                z[zo + i] += alpha * y[yo + i];
+            }
+        } else {
+            for (int r = 0; r < rows(); r++) {
+                for (int c = 0; c < cols(); c++) {
+                    set(r, c, get(r, c) + alpha * B.get(r, c));
+                }
+            }
+        }
+        Metrics.record(Operation.IN_PLACE, getClass(), rows(), cols(), 0, start);
+        return this;
+    }
+
+    /**
+     * Multiply every element by {@code alpha}, in place. Dense matrices
+     * allocate nothing.
+     *
+     * @return This matrix, for chaining.
+     */
+    public MutableMatrix scaleInPlace(double alpha) {
+        long start = Metrics.start();
+        int zo = contiguous();
+        if (zo >= 0) {
+            double[] z = buffer();
+            for (int i = 0; i < size(); i++) {
+                z[zo + i] *= alpha;
+            }
+        } else {
+            for (int r = 0; r < rows(); r++) {
+                for (int c = 0; c < cols(); c++) {
+                    set(r, c, get(r, c) * alpha);
+                }
+            }
+        }
+        Metrics.record(Operation.IN_PLACE, getClass(), rows(), cols(), 0, start);
+        return this;
     }
 
     /*
@@ -232,6 +951,55 @@ public class MutableMatrix implements MutMat<MutableMatrix>, Settable2<Double> {
      *
      * --------------------------------------------------
      */
+    /**
+     * @return {@code true} if the other object is a {@link MutableMatrix} or a
+     *         {@link Matrix} with the same shape and elements. The
+     *         elements are compared bit for bit, as by
+     *         {@link java.util.Arrays#equals(double[], double[])}, straight
+     *         out of their primitive storage, stopping at the first difference.
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof MutableMatrix) && !(other instanceof Matrix)) {
+            return false;
+        }
+        Mat<?> B = (Mat<?>) other;
+        if (B.rows() != rows() || B.cols() != cols()) {
+            return false;
+        }
+        return Comparison.equals(Comparison.Reader.of(this), Comparison.Reader.of(B), rows(),
+                cols());
+    }
+
+    /**
+     * @return A hash code of the shape and elements, which is equal for equal
+     *         matrices of either type. Since the elements can change, it is
+     *         computed on every call.
+     */
+    @Override
+    public int hashCode() {
+        return Comparison.hashCode(Comparison.Reader.of(this), rows(), cols());
+    }
+
+    /**
+     * @return {@code true} if the other matrix has the same shape, and every
+     *         pair of elements x and y is equal or satisfies
+     *         {@code |x - y| <= max(absTol, relTol * max(|x|, |y|))}. This
+     *         stops at the first pair which does not.
+     * @throws IllegalArgumentException
+     *             If either tolerance is negative.
+     */
+    public boolean approxEquals(Mat<?> B, double absTol, double relTol) {
+        if (B.rows() != rows() || B.cols() != cols()) {
+            return false;
+        }
+        return Comparison.approxEquals(Comparison.Reader.of(this), Comparison.Reader.of(B),
+                rows(), cols(), absTol, relTol);
+    }
+
     @Override
     public String toString() {
         return asString();
@@ -4,7 +4,10 @@ import io.jeti.linalg.matrix.MutVec;
 import io.jeti.linalg.matrix.Vec;
 import io.jeti.matrix.Settable.Settable1;
 import io.jeti.linalg.matrix.utils.Check;
-import java.util.ArrayList;
+import io.jeti.matrix.Metrics.Operation;
+import java.nio.DoubleBuffer;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
 import java.util.List;
 
 /**
@@ -24,6 +27,9 @@ public class MutableVector implements MutVec<MutableVector>, Settable1<Double> {
     private final int               from;
     private final int               stride;
 
+    /* Explicit indices of the selected elements, or null for a stride. */
+    private final int[]             indices;
+
     /*
      * --------------------------------------------------
      *
@@ -40,15 +46,7 @@ public class MutableVector implements MutVec<MutableVector>, Settable1<Double> {
      * See {@link #newInstance(int, Filler)}.
      */
     public MutableVector(int elems, Filler filler) {
-        Check.positive(elems);
-        List<Double> tmp = new ArrayList<>(elems);
-        for (int i = 0; i < elems; i++) {
-            tmp.add(filler.apply(i));
-        }
-        this.numels = elems;
-        this.data = new Settable.List<>(tmp);
-        this.from = 0;
-        this.stride = 1;
+        this(Metrics.start(), new Settable.Array(fill(elems, filler)));
     }
 
     /**
@@ -79,6 +77,117 @@ public class MutableVector implements MutVec<MutableVector>, Settable1<Double> {
         this(data.length, index -> data[index].doubleValue());
     }
 
+    /**
+     * Copy an array with a single {@link System#arraycopy}, without calling a
+     * {@link Filler} per element.
+     */
+    public MutableVector(final double[] data) {
+        this(Metrics.start(), new Settable.Array(copy(data, 0, data.length)));
+    }
+
+    /**
+     * Copy {@code elems} elements of an array, starting at the specified
+     * offset, with a single {@link System#arraycopy}.
+     */
+    public MutableVector(final double[] data, int offset, int elems) {
+        this(Metrics.start(), new Settable.Array(copy(data, offset, elems)));
+    }
+
+    /**
+     * Copy the remaining elements of a buffer (heap or direct) with a single
+     * bulk get. The buffer is left at its limit.
+     */
+    public MutableVector(final DoubleBuffer data) {
+        this(Metrics.start(), new Settable.Array(copy(data)));
+    }
+
+    /**
+     * Copy an array of floats, widening each element in a single primitive
+     * loop.
+     */
+    public MutableVector(final float[] data) {
+        this(Metrics.start(), new Settable.Array(copy(data)));
+    }
+
+    /**
+     * @return A vector which adopts the array as its storage, without copying
+     *         it. Changes to the array will be visible in the vector, and it is
+     *         not counted as an allocation by {@link Metrics}.
+     */
+    public static MutableVector wrap(final double[] data) {
+        return new MutableVector(new Settable.Array(data, true));
+    }
+
+    /**
+     * A hidden constructor which adopts the given storage without copying it.
+     */
+    private MutableVector(Settable.Array data) {
+        this(Metrics.start(), data);
+    }
+
+    /**
+     * A hidden constructor which adopts the given storage without copying it,
+     * and reports the construction to {@link Metrics} as having started at
+     * {@code start}, with the footprint of the storage (see
+     * {@link Gettable.Footprint}). Every vector which is not a view is
+     * reported here, and only here.
+     */
+    private MutableVector(long start, Settable.Array data) {
+        Check.positive(data.size());
+        this.numels = data.size();
+        this.data = data;
+        this.from = 0;
+        this.stride = 1;
+        this.indices = null;
+        Metrics.record(Operation.CONSTRUCT, getClass(), numels, 1, data.footprint(), start);
+    }
+
+    private static double[] fill(int elems, Filler filler) {
+        Check.positive(elems);
+        double[] array = Arena.allocate(elems);
+        for (int i = 0; i < elems; i++) {
+            array[i] = filler.apply(i);
+        }
+        return array;
+    }
+
+    /**
+     * Like the other copies, this checks its input before it allocates, so
+     * that bad input neither leases a buffer from the {@link Arena} nor fails
+     * with an obscure exception.
+     */
+    private static double[] copy(double[] data, int offset, int elems) {
+        Check.positive(elems);
+        if (offset < 0 || offset > data.length) {
+            throw new IndexOutOfBoundsException(
+                    "The offset " + offset + " is outside of an array of " + data.length);
+        }
+        if (data.length - offset < elems) {
+            throw new IllegalArgumentException("A vector of " + elems
+                    + " elements needs as many after the offset, but there were "
+                    + (data.length - offset));
+        }
+        double[] array = Arena.allocate(elems);
+        System.arraycopy(data, offset, array, 0, elems);
+        return array;
+    }
+
+    private static double[] copy(DoubleBuffer data) {
+        Check.positive(data.remaining());
+        double[] array = Arena.allocate(data.remaining());
+        data.get(array);
+        return array;
+    }
+
+    private static double[] copy(float[] data) {
+        Check.positive(data.length);
+        double[] array = Arena.allocate(data.length);
+        for (int i = 0; i < array.length; i++) {
+            array[i] = data[i];
+        }
+        return array;
+    }
+
     /**
      * A hidden constructor which does not copy the input array. This
      * constructor is critical for constructing views of the vector.
@@ -90,6 +199,18 @@ public class MutableVector implements MutVec<MutableVector>, Settable1<Double> {
         this.data = vec;
         this.from = from;
         this.stride = stride;
+        this.indices = null;
+    }
+
+    /**
+     * A hidden constructor for views which select explicit elements.
+     */
+    private MutableVector(final MutableVector vec, int[] indices) {
+        this.indices = Indices.check(indices, vec.size());
+        this.numels = indices.length;
+        this.data = vec;
+        this.from = 0;
+        this.stride = 1;
     }
 
     /**
@@ -113,7 +234,19 @@ public class MutableVector implements MutVec<MutableVector>, Settable1<Double> {
      *         entry is a uniform random number in [0,1].
      */
     public static MutableVector rand(int elems) {
-        return new MutableVector(elems, index -> random.nextDouble());
+        return rand(elems, random.nextLong());
+    }
+
+    /**
+     * @return A {@link Vec} with the specified number of elements, where each
+     *         entry is a uniform random number in [0,1), which only depends on
+     *         the seed. Large vectors are filled in parallel.
+     */
+    public static MutableVector rand(int elems, long seed) {
+        Check.positive(elems);
+        long start = Metrics.start();
+        double[] array = Randoms.uniform(elems, seed);
+        return new MutableVector(start, new Settable.Array(array));
     }
 
     /**
@@ -122,7 +255,20 @@ public class MutableVector implements MutVec<MutableVector>, Settable1<Double> {
      *         mean 0 and variance 1.
      */
     public static MutableVector randn(int elems) {
-        return new MutableVector(elems, index -> random.nextGaussian());
+        return randn(elems, random.nextLong());
+    }
+
+    /**
+     * @return A {@link Vec} with the specified number of elements, where each
+     *         entry is a Gaussian random number drawn from a distribution with
+     *         mean 0 and variance 1, which only depends on the seed. Large
+     *         vectors are filled in parallel.
+     */
+    public static MutableVector randn(int elems, long seed) {
+        Check.positive(elems);
+        long start = Metrics.start();
+        double[] array = Randoms.gaussian(elems, seed);
+        return new MutableVector(start, new Settable.Array(array));
     }
 
     /*
@@ -139,7 +285,8 @@ public class MutableVector implements MutVec<MutableVector>, Settable1<Double> {
 
     @Override
     public final Double get(int elem) {
-        return data.get(index(elem, from, stride, size()));
+        int i = indices == null ? index(elem, from, stride, size()) : indices[elem];
+        return data.get(i);
     }
 
     @Override
@@ -147,6 +294,24 @@ public class MutableVector implements MutVec<MutableVector>, Settable1<Double> {
         return new MutableVector(this, from, to, stride);
     }
 
+    /**
+     * @return A view of the specified elements, in the given order, which
+     *         reads and writes through to this vector without copying anything.
+     *         Indices may repeat. Index views compose with each other and with
+     *         the stride views.
+     */
+    public MutableVector select(int[] indices) {
+        return new MutableVector(this, indices);
+    }
+
+    /**
+     * @return A view of the elements for which the mask is {@code true}. See
+     *         {@link #select(int[])}.
+     */
+    public MutableVector select(boolean[] mask) {
+        return new MutableVector(this, Indices.of(mask, size()));
+    }
+
     /*
      * --------------------------------------------------
      *
@@ -161,7 +326,403 @@ public class MutableVector implements MutVec<MutableVector>, Settable1<Double> {
 
     @Override
     public Double set(int elem, Double val) {
-        return data.set(index(elem, from, stride, size()), val);
+        int i = indices == null ? index(elem, from, stride, size()) : indices[elem];
+        return data.set(i, val);
+    }
+
+    /**
+     * @return A new array holding the elements of this vector.
+     */
+    public double[] toArray() {
+        double[] array = new double[size()];
+        copyInto(array, 0);
+        return array;
+    }
+
+    /**
+     * Copy the elements of this vector into the array starting at the
+     * specified offset. Dense vectors and views of them are copied straight out
+     * of the backing array, with a single {@link System#arraycopy} for unit
+     * stride and a primitive strided loop otherwise.
+     */
+    public void copyInto(double[] dest, int offset) {
+        int[] layout = layout();
+        if (layout == null) {
+            int[] offsets = gather();
+            double[] src = buffer();
+            for (int i = 0; i < size(); i++) {
+                dest[offset + i] = offsets == null ? get(i) : src[offsets[i]];
+            }
+        } else if (layout[1] == 1) {
+            System.arraycopy(buffer(), layout[0], dest, offset, size());
+        } else {
+            double[] src = buffer();
+            for (int i = 0; i < size(); i++) {
+                dest[offset + i] = src[layout[0] + i * layout[1]];
+            }
+        }
+    }
+
+    /**
+     * @return {base, step} such that element i of this vector lives at
+     *         {@code base + i * step} in {@link #buffer()}, or {@code null}
+     *         if the storage is not a flat array.
+     */
+    int[] layout() {
+        if (indices != null) {
+            return null;
+        }
+        int[] parent;
+        if (data instanceof Settable.Array) {
+            parent = new int[] { 0, 1 };
+        } else if (data instanceof MutableVector) {
+            parent = ((MutableVector) data).layout();
+            if (parent == null) {
+                return null;
+            }
+        } else {
+            return null;
+        }
+        return new int[] { parent[0] + from * parent[1], stride * parent[1] };
+    }
+
+    /**
+     * @return The flat array at the root of the storage of this vector (or of
+     *         the vector that this is a view of), or {@code null} if the
+     *         storage is not a flat array.
+     */
+    double[] buffer() {
+        if (data instanceof Settable.Array) {
+            return ((Settable.Array) data).array();
+        } else if (data instanceof MutableVector) {
+            return ((MutableVector) data).buffer();
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * @return The offsets of the elements of this vector in {@link #buffer()},
+     *         or {@code null} if the storage is not a flat array. Unlike
+     *         {@link #layout()}, this also covers index views, and views of
+     *         them.
+     */
+    int[] gather() {
+        int[] offsets = new int[size()];
+        int[] layout = layout();
+        if (layout != null) {
+            for (int i = 0; i < size(); i++) {
+                offsets[i] = layout[0] + i * layout[1];
+            }
+            return offsets;
+        }
+        if (!(data instanceof MutableVector)) {
+            return null;
+        }
+
+        /* Prefer the affine layout of the parent, which is O(1) to build. */
+        MutableVector parent = (MutableVector) data;
+        int[] affine = parent.layout();
+        int[] parentOffsets = affine == null ? parent.gather() : null;
+        if (affine == null && parentOffsets == null) {
+            return null;
+        }
+        for (int i = 0; i < size(); i++) {
+            int elem = indices == null ? from + i * stride : indices[i];
+            offsets[i] = affine == null ? parentOffsets[elem] : affine[0] + elem * affine[1];
+        }
+        return offsets;
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Element-wise Operations
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * @return A new vector holding {@code op} applied to every element. This
+     *         is a single primitive loop over the storage, which runs in
+     *         parallel for large vectors, so {@code op} must be stateless.
+     */
+    public MutableVector map(DoubleUnaryOperator op) {
+        long start = Metrics.start();
+        int xo = contiguous();
+        double[] x = xo < 0 ? toArray() : buffer();
+        double[] z = Arena.allocate(size());
+        Elementwise.map(x, Math.max(xo, 0), z, 0, size(), op);
+        MutableVector result = new MutableVector(Metrics.start(), new Settable.Array(z));
+        Metrics.record(Operation.ELEMENTWISE, result.getClass(), size(), 1, 0, start);
+        return result;
+    }
+
+    /**
+     * @return A new vector holding {@code op(this(i), b(i))} for every
+     *         element, computed in a single pass. See
+     *         {@link #map(DoubleUnaryOperator)}.
+     */
+    public MutableVector zipWith(MutableVector b, DoubleBinaryOperator op) {
+        Check.zero(size() - b.size());
+        long start = Metrics.start();
+        int xo = contiguous();
+        double[] x = xo < 0 ? toArray() : buffer();
+        int yo = b.contiguous();
+        double[] y = yo < 0 ? b.toArray() : b.buffer();
+        double[] z = Arena.allocate(size());
+        Elementwise.zip(x, Math.max(xo, 0), y, Math.max(yo, 0), z, 0, size(), op);
+        MutableVector result = new MutableVector(Metrics.start(), new Settable.Array(z));
+        Metrics.record(Operation.ELEMENTWISE, result.getClass(), size(), 1, 0, start);
+        return result;
+    }
+
+    /**
+     * @return A new vector holding {@code op(this(i), b(i), c(i))} for every
+     *         element, computed in a single pass, so that for instance
+     *         {@code a * b + c} does not need a temporary. See
+     *         {@link #map(DoubleUnaryOperator)}.
+     */
+    public MutableVector zipWith(MutableVector b, MutableVector c, DoubleTernaryOperator op) {
+        Check.zero(size() - b.size());
+        Check.zero(size() - c.size());
+        long start = Metrics.start();
+        int xo = contiguous();
+        double[] x = xo < 0 ? toArray() : buffer();
+        int yo = b.contiguous();
+        double[] y = yo < 0 ? b.toArray() : b.buffer();
+        int wo = c.contiguous();
+        double[] w = wo < 0 ? c.toArray() : c.buffer();
+        double[] z = Arena.allocate(size());
+        Elementwise.zip(x, Math.max(xo, 0), y, Math.max(yo, 0), w, Math.max(wo, 0), z, 0, size(),
+                op);
+        MutableVector result = new MutableVector(Metrics.start(), new Settable.Array(z));
+        Metrics.record(Operation.ELEMENTWISE, result.getClass(), size(), 1, 0, start);
+        return result;
+    }
+
+    /**
+     * Replace every element by {@code op} applied to it, in place. On views,
+     * only the viewed elements change.
+     *
+     * @return This vector, for chaining.
+     */
+    public MutableVector mapInPlace(DoubleUnaryOperator op) {
+        long start = Metrics.start();
+        int[] layout = layout();
+        if (layout == null) {
+            int[] offsets = gather();
+            double[] z = buffer();
+            for (int i = 0; i < size(); i++) {
+                if (offsets == null) {
+                    set(i, op.applyAsDouble(get(i)));
+                } else {
+                    z[offsets[i]] = op.applyAsDouble(z[offsets[i]]);
+                }
+            }
+        } else if (layout[1] == 1) {
+            Elementwise.map(buffer(), layout[0], buffer(), layout[0], size(), op);
+        } else {
+            double[] z = buffer();
+            for (int i = 0; i < size(); i++) {
+                int index = layout[0] + i * layout[1];
+                z[index] = op.applyAsDouble(z[index]);
+            }
+        }
+        Metrics.record(Operation.IN_PLACE, getClass(), size(), 1, 0, start);
+        return this;
+    }
+
+    /**
+     * Replace every element by {@code op(this(i), b(i))}, in place. On views,
+     * only the viewed elements change.
+     *
+     * @return This vector, for chaining.
+     */
+    public MutableVector zipWithInPlace(MutableVector b, DoubleBinaryOperator op) {
+        Check.zero(size() - b.size());
+        long start = Metrics.start();
+        int yo = b.contiguous();
+        double[] y = yo < 0 ? b.toArray() : b.buffer();
+        yo = Math.max(yo, 0);
+        int[] layout = layout();
+        if (layout == null) {
+            int[] offsets = gather();
+            double[] z = buffer();
+            for (int i = 0; i < size(); i++) {
+                if (offsets == null) {
+                    set(i, op.applyAsDouble(get(i), y[yo + i]));
+                } else {
+                    z[offsets[i]] = op.applyAsDouble(z[offsets[i]], y[yo + i]);
+                }
+            }
+        } else if (layout[1] == 1) {
+            Elementwise.zip(buffer(), layout[0], y, yo, buffer(), layout[0], size(), op);
+        } else {
+            double[] z = buffer();
+            for (int i = 0; i < size(); i++) {
+                int index = layout[0] + i * layout[1];
+                z[index] = op.applyAsDouble(z[index], y[yo + i]);
+            }
+        }
+        Metrics.record(Operation.IN_PLACE, getClass(), size(), 1, 0, start);
+        return this;
+    }
+
+    /**
+     * @return The offset into {@link #buffer()} at which the elements of this
+     *         vector are stored contiguously, or -1 if they are not. This only
+     *         allocates for views.
+     */
+    int contiguous() {
+        if (data instanceof Settable.Array) {
+            return 0;
+        }
+        int[] layout = layout();
+        return layout != null && layout[1] == 1 ? layout[0] : -1;
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Allocation-free Operations
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * Overwrite this vector with the elements of b. When both are dense (not
+     * views), this is a single {@link System#arraycopy} and allocates nothing.
+     *
+     * @return This vector, for chaining.
+     */
+    public MutableVector setTo(MutableVector b) {
+        Check.zero(size() - b.size());
+        long start = Metrics.start();
+        int zo = contiguous();
+        int yo = b.contiguous();
+        if (zo >= 0 && yo >= 0) {
+            System.arraycopy(b.buffer(), yo, buffer(), zo, size());
+        } else {
+            for (int i = 0; i < size(); i++) {
+                set(i, b.get(i));
+            }
+        }
+        Metrics.record(Operation.IN_PLACE, getClass(), size(), 1, 0, start);
+        return this;
+    }
+
+    /**
+     * Overwrite this vector with {@code A * x}. When all three are dense (not
+     * views), this is a primitive loop over their arrays and allocates
+     * nothing.
+     *
+     * @return This vector, for chaining.
+     * @throws IllegalArgumentException
+     *             If this vector shares its storage with x.
+     */
+    public MutableVector setProduct(MutableMatrix A, MutableVector x) {
+        Check.zero(A.cols() - x.size());
+        Check.zero(size() - A.rows());
+        double[] z = buffer();
+        if (z != null && z == x.buffer()) {
+            throw new IllegalArgumentException(
+                    "The product must not overwrite one of its operands.");
+        }
+        long start = Metrics.start();
+        int zo = contiguous();
+        int ao = A.contiguous();
+        int yo = x.contiguous();
+        int n = A.cols();
+        if (zo >= 0 && ao >= 0 && yo >= 0) {
+            double[] a = A.buffer();
+            double[] y = x.buffer();
+            for (int r = 0; r < size(); r++) {
+                double sum = 0.0;
+                int row = ao + r * n;
+                for (int i = 0; i < n; i++) {
+                    sum += a[row + i] * y[yo + i];
+                }
+                z[zo + r] = sum;
+            }
+        } else {
+            for (int r = 0; r < size(); r++) {
+                double sum = 0.0;
+                for (int i = 0; i < n; i++) {
+                    sum += A.get(r, i) * x.get(i);
+                }
+                set(r, sum);
+            }
+        }
+        Metrics.record(Operation.TIMES, getClass(), size(), 1, 0, start);
+        return this;
+    }
+
+    /**
+     * Add b to this vector, in place. Dense operands allocate nothing.
+     *
+     * @return This vector, for chaining.
+     */
+    public MutableVector plusInPlace(MutableVector b) {
+        return plusInPlace(1, b);
+    }
+
+    /**
+     * Subtract b from this vector, in place. Dense operands allocate nothing.
+     *
+     * @return This vector, for chaining.
+     */
+    public MutableVector minusInPlace(MutableVector b) {
+        return plusInPlace(-1, b);
+    }
+
+    /**
+     * Add {@code alpha * b} to this vector, in place. Dense operands allocate
+     * nothing.
+     *
+     * @return This vector, for chaining.
+     */
+    public MutableVector plusInPlace(double alpha, MutableVector b) {
+        Check.zero(size() - b.size());
+        long start = Metrics.start();
+        int zo = contiguous();
+        int yo = b.contiguous();
+        if (zo >= 0 && yo >= 0) {
+            double[] z = buffer();
+            double[] y = b.buffer();
+            for (int i = 0; i < size(); i++) {
+                z[zo + i] += alpha * y[yo + i];
+            }
+        } else {
+            for (int i = 0; i < size(); i++) {
+                set(i, get(i) + alpha * b.get(i));
+            }
+        }
+        Metrics.record(Operation.IN_PLACE, getClass(), size(), 1, 0, start);
+        return this;
+    }
+
+    /**
+     * Multiply every element by {@code alpha}, in place. Dense vectors allocate
+     * nothing.
+     *
+     * @return This vector, for chaining.
+     */
+    public MutableVector scaleInPlace(double alpha) {
+        long start = Metrics.start();
+        int zo = contiguous();
+        if (zo >= 0) {
+            double[] z = buffer();
+            for (int i = 0; i < size(); i++) {
+                z[zo + i] *= alpha;
+            }
+        } else {
+            for (int i = 0; i < size(); i++) {
+                set(i, get(i) * alpha);
+            }
+        }
+        Metrics.record(Operation.IN_PLACE, getClass(), size(), 1, 0, start);
+        return this;
     }
 
     /*
@@ -171,6 +732,54 @@ public class MutableVector implements MutVec<MutableVector>, Settable1<Double> {
      *
      * --------------------------------------------------
      */
+    /**
+     * @return {@code true} if the other object is a {@link MutableVector} or a
+     *         {@link Vector} with the same size and elements. The
+     *         elements are compared bit for bit, as by
+     *         {@link java.util.Arrays#equals(double[], double[])}, straight
+     *         out of their primitive storage, stopping at the first difference.
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof MutableVector) && !(other instanceof Vector)) {
+            return false;
+        }
+        Vec<?> x = (Vec<?>) other;
+        if (x.size() != size()) {
+            return false;
+        }
+        return Comparison.equals(Comparison.Reader.of(this), Comparison.Reader.of(x), size(), 1);
+    }
+
+    /**
+     * @return A hash code of the size and elements, which is equal for equal
+     *         vectors of either type. Since the elements can change, it is
+     *         computed on every call.
+     */
+    @Override
+    public int hashCode() {
+        return Comparison.hashCode(Comparison.Reader.of(this), size(), 1);
+    }
+
+    /**
+     * @return {@code true} if the other vector has the same size, and every
+     *         pair of elements x and y is equal or satisfies
+     *         {@code |x - y| <= max(absTol, relTol * max(|x|, |y|))}. This
+     *         stops at the first pair which does not.
+     * @throws IllegalArgumentException
+     *             If either tolerance is negative.
+     */
+    public boolean approxEquals(Vec<?> x, double absTol, double relTol) {
+        if (x.size() != size()) {
+            return false;
+        }
+        return Comparison.approxEquals(Comparison.Reader.of(this), Comparison.Reader.of(x),
+                size(), 1, absTol, relTol);
+    }
+
     @Override
     public final String toString() {
         return asString();
@@ -0,0 +1,191 @@
+package io.jeti.matrix;
+
+import io.jeti.linalg.matrix.Mat;
+import io.jeti.linalg.matrix.Vec;
+import io.jeti.linalg.matrix.utils.Check;
+import java.util.Arrays;
+
+/**
+ * A mutable accumulator of the mean, covariance, and Gram matrix of a stream of
+ * observations, each of which is a row of n variables. Rather than computing
+ * {@code X.T().times(X)} from scratch whenever new rows arrive, each batch of k
+ * rows is folded in with a symmetric rank-k update, which costs O(k n^2) no
+ * matter how many rows came before. The covariance uses the pairwise update of
+ * Chan, Golub, and LeVeque, so it does not suffer from the cancellation of the
+ * textbook {@code E[x x^T] - E[x] E[x]^T} formula.
+ * <p>
+ * The symmetric results are kept in packed storage and returned as
+ * {@link SymmetricPackedMatrix} copies.
+ */
+public class OnlineStatistics {
+
+    /*
+     * --------------------------------------------------
+     *
+     * Private Fields
+     *
+     * --------------------------------------------------
+     */
+    private final int      n;
+    private long           count = 0;
+    private final double[] mean;
+    /** The packed sum of the outer products of the deviations from the mean. */
+    private final double[] scatter;
+    /** The packed sum of the outer products of the raw observations. */
+    private final double[] gram;
+
+    /*
+     * --------------------------------------------------
+     *
+     * Constructors
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * Create an empty accumulator for observations of the specified number of
+     * variables.
+     */
+    public OnlineStatistics(int variables) {
+        Check.positive(variables);
+        this.n = variables;
+        this.mean = new double[variables];
+        this.scatter = new double[variables * (variables + 1) / 2];
+        this.gram = new double[variables * (variables + 1) / 2];
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Updates
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * Fold in a single observation.
+     */
+    public void add(Vec<?> row) {
+        Check.zero(row.size() - n);
+        double[] x = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = row.get(i);
+        }
+        add(x, 1);
+    }
+
+    /**
+     * Fold in a batch of observations, one per row. The batch may be a view of
+     * a larger matrix.
+     */
+    public void add(Mat<?> batch) {
+        Check.zero(batch.cols() - n);
+        int k = batch.rows();
+        double[] x = new double[k * n];
+        if (batch instanceof Matrix) {
+            ((Matrix) batch).copyInto(x, 0);
+        } else {
+            for (int r = 0; r < k; r++) {
+                for (int c = 0; c < n; c++) {
+                    x[r * n + c] = batch.get(r, c);
+                }
+            }
+        }
+        add(x, k);
+    }
+
+    /**
+     * Fold in k row-major observations. The array is overwritten.
+     */
+    private void add(double[] x, int k) {
+
+        /* The Gram matrix only needs the raw rows. */
+        SymmetricPackedMatrix.syrk(gram, 1, x, k, n);
+
+        /* Center the batch on its own mean. */
+        double[] batchMean = new double[n];
+        for (int r = 0; r < k; r++) {
+            for (int c = 0; c < n; c++) {
+                batchMean[c] += x[r * n + c];
+            }
+        }
+        for (int c = 0; c < n; c++) {
+            batchMean[c] /= k;
+        }
+        for (int r = 0; r < k; r++) {
+            for (int c = 0; c < n; c++) {
+                x[r * n + c] -= batchMean[c];
+            }
+        }
+
+        /*
+         * Combine the two partitions: the scatter is the sum of the scatters
+         * plus a rank-1 correction for the difference of the means.
+         */
+        SymmetricPackedMatrix.syrk(scatter, 1, x, k, n);
+        long total = count + k;
+        double[] delta = new double[n];
+        for (int c = 0; c < n; c++) {
+            delta[c] = batchMean[c] - mean[c];
+            mean[c] += delta[c] * k / total;
+        }
+        SymmetricPackedMatrix.syrk(scatter, (double) count * k / total, delta, 1, n);
+        count = total;
+    }
+
+    /**
+     * Forget all of the observations.
+     */
+    public void clear() {
+        count = 0;
+        Arrays.fill(mean, 0);
+        Arrays.fill(scatter, 0);
+        Arrays.fill(gram, 0);
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Getters
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * @return The number of observations so far.
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * @return The mean of the observations so far.
+     */
+    public Vector mean() {
+        return new Vector(n, index -> mean[index]);
+    }
+
+    /**
+     * @return The sample covariance of the observations so far, normalized by
+     *         {@code count - 1}.
+     */
+    public SymmetricPackedMatrix covariance() {
+        if (count < 2) {
+            throw new IllegalStateException(
+                    "The covariance needs at least 2 observations, but there were " + count);
+        }
+        double[] packed = scatter.clone();
+        for (int i = 0; i < packed.length; i++) {
+            packed[i] /= count - 1;
+        }
+        return new SymmetricPackedMatrix(packed, n);
+    }
+
+    /**
+     * @return The Gram matrix {@code X^T X} of all the observations so far,
+     *         where the rows of {@code X} are the observations.
+     */
+    public SymmetricPackedMatrix gram() {
+        return new SymmetricPackedMatrix(gram.clone(), n);
+    }
+}
@@ -0,0 +1,70 @@
+package io.jeti.matrix;
+
+import java.util.stream.IntStream;
+
+/**
+ * Runs the iterations of a loop on the common fork-join pool where the platform
+ * has one, and one after the other on the calling thread where it does not.
+ * <p>
+ * The pool, {@code java.util.stream}, and {@code java.util.function} only
+ * exist from Java 8 and Android API level 24 on, while the core of this
+ * library also runs on older Android versions (the {@code app} module targets
+ * API level 15). So the default paths (construction, random fills, products,
+ * and memoization) never touch those APIs directly, and only this class does,
+ * from a nested class which is not even loaded where they are missing. On such
+ * platforms, everything still works, only without the parallelism.
+ */
+final class Parallel {
+
+    /**
+     * One iteration of a loop.
+     */
+    interface Loop {
+
+        void run(int i);
+    }
+
+    /**
+     * {@code true} if the loops can run on the common fork-join pool.
+     */
+    static final boolean AVAILABLE = available();
+
+    private Parallel() {
+    }
+
+    private static boolean available() {
+        try {
+            Class.forName("java.util.stream.IntStream");
+            Class.forName("java.util.concurrent.ForkJoinPool").getMethod("commonPool");
+            return true;
+        } catch (ClassNotFoundException | NoSuchMethodException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Run {@code loop.run(i)} for every i in [0, count), in parallel if
+     * {@code parallel} is {@code true} and the platform allows it, and in
+     * order otherwise. In parallel, the iterations must be independent.
+     */
+    static void forEach(int count, boolean parallel, Loop loop) {
+        if (parallel && AVAILABLE && count > 1) {
+            Streams.forEach(count, loop);
+        } else {
+            for (int i = 0; i < count; i++) {
+                loop.run(i);
+            }
+        }
+    }
+
+    /**
+     * The only place which touches {@code java.util.stream}, so that it is
+     * only resolved once {@link #AVAILABLE} has been checked.
+     */
+    private static final class Streams {
+
+        static void forEach(int count, final Loop loop) {
+            IntStream.range(0, count).parallel().forEach(i -> loop.run(i));
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package io.jeti.matrix;
+
+/**
+ * Bulk random fills for the dense storage of {@link Matrix},
+ * {@link MutableMatrix}, {@link Vector}, and {@link MutableVector}.
+ * <p>
+ * The array is cut into fixed chunks of {@link #CHUNK} elements, and chunk i
+ * draws from the i-th generator split off of a {@link SplitMix} generator
+ * seeded with the given seed. Since the chunking does not depend on the number
+ * of threads, large arrays can be filled in parallel (see {@link Parallel})
+ * and still come out the same for a given seed on every machine. Gaussian samples use the 128-layer
+ * ziggurat of Marsaglia and Tsang, which needs one 32-bit draw, one table
+ * lookup, and one multiplication for about 99% of the samples.
+ */
+final class Randoms {
+
+    /**
+     * The number of elements which share one generator.
+     */
+    static final int         CHUNK    = 4096;
+
+    /**
+     * Arrays with at least this many elements are filled in parallel.
+     */
+    private static final int PARALLEL = 1 << 16;
+
+    private Randoms() {
+    }
+
+    /**
+     * @return An array of the specified length from the active {@link Arena},
+     *         filled with uniform random numbers in [0,1).
+     */
+    static double[] uniform(int length, long seed) {
+        return fill(length, seed, false);
+    }
+
+    /**
+     * @return An array of the specified length from the active {@link Arena},
+     *         filled with standard normal random numbers.
+     */
+    static double[] gaussian(int length, long seed) {
+        return fill(length, seed, true);
+    }
+
+    private static double[] fill(int length, long seed, final boolean gaussian) {
+        final double[] array = Arena.allocate(length);
+        int chunks = (length + CHUNK - 1) / CHUNK;
+        SplitMix root = new SplitMix(seed);
+        final SplitMix[] generators = new SplitMix[chunks];
+        for (int i = 0; i < chunks; i++) {
+            generators[i] = root.split();
+        }
+        Parallel.forEach(chunks, length >= PARALLEL, chunk -> {
+            SplitMix random = generators[chunk];
+            int from = chunk * CHUNK;
+            int to = Math.min(array.length, from + CHUNK);
+            if (gaussian) {
+                for (int i = from; i < to; i++) {
+                    array[i] = nextGaussian(random);
+                }
+            } else {
+                for (int i = from; i < to; i++) {
+                    array[i] = random.nextDouble();
+                }
+            }
+        });
+        return array;
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Ziggurat
+     *
+     * --------------------------------------------------
+     */
+    private static final double   R  = 3.442619855899;
+    private static final double   V  = 9.91256303526217e-3;
+    private static final long[]   KN = new long[128];
+    private static final double[] WN = new double[128];
+    private static final double[] FN = new double[128];
+
+    static {
+        final double m1 = 2147483648.0;
+        double dn = R;
+        double tn = dn;
+        double q = V / Math.exp(-.5 * dn * dn);
+        KN[0] = (long) ((dn / q) * m1);
+        KN[1] = 0;
+        WN[0] = q / m1;
+        WN[127] = dn / m1;
+        FN[0] = 1.0;
+        FN[127] = Math.exp(-.5 * dn * dn);
+        for (int i = 126; i >= 1; i--) {
+            dn = Math.sqrt(-2 * Math.log(V / dn + Math.exp(-.5 * dn * dn)));
+            KN[i + 1] = (long) ((dn / tn) * m1);
+            tn = dn;
+            FN[i] = Math.exp(-.5 * dn * dn);
+            WN[i] = dn / m1;
+        }
+    }
+
+    /**
+     * @return A standard normal sample. Each 64-bit draw supplies the layer
+     *         from its low 7 bits and the signed 32-bit value from its high
+     *         half, so that the two are independent.
+     */
+    static double nextGaussian(SplitMix random) {
+        long bits = random.nextLong();
+        int hz = (int) (bits >> 32);
+        int iz = (int) bits & 127;
+        if (Math.abs((long) hz) < KN[iz]) {
+            return hz * WN[iz];
+        }
+        for (;;) {
+            double x = hz * WN[iz];
+            if (iz == 0) {
+                /* Sample from the tail beyond R. */
+                double y;
+                do {
+                    x = -Math.log(1 - random.nextDouble()) / R;
+                    y = -Math.log(1 - random.nextDouble());
+                } while (y + y < x * x);
+                return hz > 0 ? R + x : -R - x;
+            }
+            if (FN[iz] + random.nextDouble() * (FN[iz - 1] - FN[iz]) < Math.exp(-.5 * x * x)) {
+                return x;
+            }
+            bits = random.nextLong();
+            hz = (int) (bits >> 32);
+            iz = (int) bits & 127;
+            if (Math.abs((long) hz) < KN[iz]) {
+                return hz * WN[iz];
+            }
+        }
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Generator
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * The SplitMix64 generator of Steele, Lea, and Flood (2014), which is the
+     * algorithm behind {@code java.util.SplittableRandom}, and produces the
+     * same sequences for the same seed. It is spelled out here because that
+     * class only exists from Android API level 24 on.
+     */
+    static final class SplitMix {
+
+        private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+        private long              seed;
+        private final long        gamma;
+
+        SplitMix(long seed) {
+            this(seed, GOLDEN_GAMMA);
+        }
+
+        private SplitMix(long seed, long gamma) {
+            this.seed = seed;
+            this.gamma = gamma;
+        }
+
+        /**
+         * @return A new generator, whose sequence is independent of the rest
+         *         of this one.
+         */
+        SplitMix split() {
+            return new SplitMix(nextLong(), mixGamma(nextSeed()));
+        }
+
+        long nextLong() {
+            return mix64(nextSeed());
+        }
+
+        /**
+         * @return A uniform sample in [0, 1).
+         */
+        double nextDouble() {
+            return (nextLong() >>> 11) * 0x1.0p-53;
+        }
+
+        private long nextSeed() {
+            return seed += gamma;
+        }
+
+        private static long mix64(long z) {
+            z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+            z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+            return z ^ (z >>> 31);
+        }
+
+        /**
+         * @return An odd increment with enough bit transitions.
+         */
+        private static long mixGamma(long z) {
+            z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+            z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+            z = (z ^ (z >>> 33)) | 1L;
+            int transitions = Long.bitCount(z ^ (z >>> 1));
+            return transitions < 24 ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package io.jeti.matrix;
 
+import io.jeti.matrix.Gettable.Footprint;
 import io.jeti.matrix.Gettable.Gettable1;
 import io.jeti.matrix.Gettable.Gettable2;
 import io.jeti.matrix.Gettable.Gettable3;
@@ -89,4 +90,117 @@ interface Settable {
             return list.size();
         }
     }
+
+    /**
+     * A flat array. It is {@code external} if the caller which supplied it
+     * still holds it (see {@link MutableVector#wrap}).
+     */
+    class Array implements Settable1<Double>, Footprint {
+
+        final double[] array;
+        final boolean  external;
+        final int      lease;
+
+        public Array(double[] array) {
+            this(array, false);
+        }
+
+        public Array(double[] array, boolean external) {
+            this.array = array;
+            this.external = external;
+            this.lease = external ? 0 : Arena.lease(array);
+        }
+
+        /**
+         * @return The array, which in debug mode is checked to still belong
+         *         to this storage (see {@link Arena#setDebug(boolean)}).
+         */
+        double[] array() {
+            if (lease != 0) {
+                Arena.check(array, lease);
+            }
+            return array;
+        }
+
+        @Override
+        public Double get(int a) {
+            return array()[a];
+        }
+
+        @Override
+        public Double set(int a, Double val) {
+            double[] array = array();
+            double old = array[a];
+            array[a] = val;
+            return old;
+        }
+
+        @Override
+        public int size() {
+            return array.length;
+        }
+
+        @Override
+        public long footprint() {
+            return external ? 0 : array.length;
+        }
+    }
+
+    /**
+     * A row-major view of a flat array. It is {@code external} if the caller
+     * which supplied it still holds it (see {@link MutableMatrix#wrap}).
+     */
+    class Array2 implements Settable2<Double>, Footprint {
+
+        final double[] array;
+        final int      cols;
+        final boolean  external;
+        final int      lease;
+
+        public Array2(double[] array, int cols) {
+            this(array, cols, false);
+        }
+
+        public Array2(double[] array, int cols, boolean external) {
+            this.array = array;
+            this.cols = cols;
+            this.external = external;
+            this.lease = external ? 0 : Arena.lease(array);
+        }
+
+        /**
+         * @return The array, which in debug mode is checked to still belong
+         *         to this storage (see {@link Arena#setDebug(boolean)}).
+         */
+        double[] array() {
+            if (lease != 0) {
+                Arena.check(array, lease);
+            }
+            return array;
+        }
+
+        @Override
+        public Double get(int a, int b) {
+            return array()[a * cols + b];
+        }
+
+        @Override
+        public Double set(int a, int b, Double val) {
+            double[] array = array();
+            int index = a * cols + b;
+            double old = array[index];
+            array[index] = val;
+            return old;
+        }
+
+        @Override
+        public int size() {
+            return array.length / cols;
+        }
+
+        @Override
+        public long footprint() {
+            return external ? 0 : array.length;
+        }
+    }
 }
@@ -0,0 +1,237 @@
+package io.jeti.matrix;
+
+import java.util.Arrays;
+
+/**
+ * The Strassen-Winograd variant of Strassen's recursive matrix multiplication,
+ * which replaces 8 half-size products by 7 products and 15 additions. The
+ * recursion stops at a crossover size, below which the classical O(n^3)
+ * kernel is faster, and the 7 products at each level of a large product run
+ * in parallel where the platform allows it (see {@link Parallel}).
+ * <p>
+ * The recursion halves all three dimensions of an (m x k) by (k x n) product
+ * at every level, until the smallest of them is at most the crossover, so a
+ * product with one short dimension gets few levels and mostly runs the
+ * classical kernel on large rectangular blocks. Each dimension is zero-padded
+ * on its own to a multiple of {@code 2^levels}, which adds less than one
+ * element per level to it. Operands which need no padding and are stored
+ * contiguously are read in place, and the padded arrays and the result come
+ * from the active {@link Arena}.
+ * <p>
+ * <b>Accuracy.</b> Strassen-type algorithms are not as accurate as the
+ * classical product. With unit roundoff {@code u} (about 1.1e-16 for doubles)
+ * and {@code ||X|| = max |x_ij|}, the classical product satisfies the
+ * componentwise bound {@code |C - fl(C)| <= n u |A| |B|} (to first order),
+ * whereas the Winograd variant only satisfies the normwise bound
+ * <pre>
+ * ||C - fl(C)|| <= c(n, n0) u ||A|| ||B||,   c(n, n0) ~ (n / n0)^log2(18) (n0^2 + 6 n0)
+ * </pre>
+ * where {@code n0} is the crossover size (see Higham, <i>Accuracy and
+ * Stability of Numerical Algorithms</i>, chapter 23). In particular, entries
+ * of the product which are much smaller than {@code ||A|| ||B||} may lose all
+ * relative accuracy, and the error grows as the crossover shrinks. Use it for
+ * large, well-scaled operands, and prefer a crossover of at least 64.
+ */
+final class Strassen {
+
+    /**
+     * The default size below which the classical kernel is used.
+     */
+    static final int DEFAULT_CROSSOVER = 128;
+
+    /**
+     * Subproblems with at least this many multiply-adds run their 7 products
+     * in parallel.
+     */
+    private static final long PARALLEL = 1L << 27;
+
+    private Strassen() {
+    }
+
+    /**
+     * @return {@code A * B}, where the dimensions are known to agree.
+     */
+    static Matrix multiply(final Matrix A, final Matrix B, int crossover) {
+        if (crossover < 1) {
+            throw new IllegalArgumentException(
+                    "The crossover must be positive, but was " + crossover);
+        }
+        int levels = levels(A.rows(), A.cols(), B.cols(), crossover);
+        int m = padded(A.rows(), levels);
+        int k = padded(A.cols(), levels);
+        int n = padded(B.cols(), levels);
+        int ao = m == A.rows() && k == A.cols() ? A.contiguous() : -1;
+        int bo = k == B.rows() && n == B.cols() ? B.contiguous() : -1;
+        double[] a = ao < 0 ? pad(A, m, k) : A.buffer();
+        double[] b = bo < 0 ? pad(B, k, n) : B.buffer();
+        double[] c = Arena.allocate(m * n);
+        new Product(a, Math.max(ao, 0), k, b, Math.max(bo, 0), n, c, 0, n, m, k, n, crossover)
+                .compute();
+        if (m == A.rows() && n == B.cols()) {
+            return new Matrix(Metrics.start(), new Gettable.Array2(c, n), m, n);
+        }
+        long start = Metrics.start();
+        double[] trimmed = Arena.allocate(A.rows() * B.cols());
+        for (int r = 0; r < A.rows(); r++) {
+            System.arraycopy(c, r * n, trimmed, r * B.cols(), B.cols());
+        }
+        return new Matrix(start, new Gettable.Array2(trimmed, B.cols()), A.rows(), B.cols());
+    }
+
+    /**
+     * @return The number of times that an (m x k) by (k x n) product is halved
+     *         before its smallest dimension is at most the crossover.
+     */
+    static int levels(int m, int k, int n, int crossover) {
+        int levels = 0;
+        while (Math.min(m, Math.min(k, n)) > crossover) {
+            m = (m + 1) / 2;
+            k = (k + 1) / 2;
+            n = (n + 1) / 2;
+            levels++;
+        }
+        return levels;
+    }
+
+    /**
+     * @return The smallest multiple of {@code 2^levels} which is at least
+     *         {@code size}.
+     */
+    static int padded(int size, int levels) {
+        int block = 1 << levels;
+        return (size + block - 1) / block * block;
+    }
+
+    /**
+     * @return A zero-padded (rows x cols) copy of the matrix.
+     */
+    private static double[] pad(Matrix A, int rows, int cols) {
+        double[] a = Arena.allocate(rows * cols);
+        Arrays.fill(a, 0);
+        A.copyInto(a, 0, cols);
+        return a;
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Kernels on (array, offset, leading dimension) blocks
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * C = A * B for an (m x k) A and a (k x n) B with the classical i-k-j
+     * loop, which streams through rows.
+     */
+    private static void classical(double[] a, int ao, int ald, double[] b, int bo, int bld,
+            double[] c, int co, int cld, int m, int k, int n) {
+        for (int i = 0; i < m; i++) {
+            int ci = co + i * cld;
+            for (int j = 0; j < n; j++) {
+                c[ci + j] = 0;
+            }
+            for (int p = 0; p < k; p++) {
+                double aip = a[ao + i * ald + p];
+                int bp = bo + p * bld;
+                for (int j = 0; j < n; j++) {
+                    c[ci + j] += aip * b[bp + j];
+                }
+            }
+        }
+    }
+
+    /**
+     * Z = X + sign * Y, where Z is a contiguous (rows x cols) array.
+     */
+    private static double[] add(double[] x, int xo, int xld, double sign, double[] y, int yo,
+            int yld, int rows, int cols) {
+        double[] z = new double[rows * cols];
+        for (int i = 0; i < rows; i++) {
+            int xi = xo + i * xld;
+            int yi = yo + i * yld;
+            int zi = i * cols;
+            for (int j = 0; j < cols; j++) {
+                z[zi + j] = x[xi + j] + sign * y[yi + j];
+            }
+        }
+        return z;
+    }
+
+    /**
+     * One level of the Strassen-Winograd recursion, computing C = A * B.
+     */
+    private static final class Product {
+
+        private final double[] a, b, c;
+        private final int      ao, ald, bo, bld, co, cld, m, k, n, crossover;
+
+        Product(double[] a, int ao, int ald, double[] b, int bo, int bld, double[] c, int co,
+                int cld, int m, int k, int n, int crossover) {
+            this.a = a;
+            this.ao = ao;
+            this.ald = ald;
+            this.b = b;
+            this.bo = bo;
+            this.bld = bld;
+            this.c = c;
+            this.co = co;
+            this.cld = cld;
+            this.m = m;
+            this.k = k;
+            this.n = n;
+            this.crossover = crossover;
+        }
+
+        void compute() {
+            if (Math.min(m, Math.min(k, n)) <= crossover || m % 2 != 0 || k % 2 != 0
+                    || n % 2 != 0) {
+                classical(a, ao, ald, b, bo, bld, c, co, cld, m, k, n);
+                return;
+            }
+            int mh = m / 2, kh = k / 2, nh = n / 2;
+            int a11 = ao, a12 = ao + kh, a21 = ao + mh * ald, a22 = a21 + kh;
+            int b11 = bo, b12 = bo + nh, b21 = bo + kh * bld, b22 = b21 + nh;
+
+            double[] s1 = add(a, a21, ald, 1, a, a22, ald, mh, kh);
+            double[] s2 = add(s1, 0, kh, -1, a, a11, ald, mh, kh);
+            double[] s3 = add(a, a11, ald, -1, a, a21, ald, mh, kh);
+            double[] s4 = add(a, a12, ald, -1, s2, 0, kh, mh, kh);
+            double[] t1 = add(b, b12, bld, -1, b, b11, bld, kh, nh);
+            double[] t2 = add(b, b22, bld, -1, t1, 0, nh, kh, nh);
+            double[] t3 = add(b, b22, bld, -1, b, b12, bld, kh, nh);
+            double[] t4 = add(t2, 0, nh, -1, b, b21, bld, kh, nh);
+
+            double[][] p = new double[7][mh * nh];
+            final Product[] products = {
+                    new Product(a, a11, ald, b, b11, bld, p[0], 0, nh, mh, kh, nh, crossover),
+                    new Product(a, a12, ald, b, b21, bld, p[1], 0, nh, mh, kh, nh, crossover),
+                    new Product(s4, 0, kh, b, b22, bld, p[2], 0, nh, mh, kh, nh, crossover),
+                    new Product(a, a22, ald, t4, 0, nh, p[3], 0, nh, mh, kh, nh, crossover),
+                    new Product(s1, 0, kh, t1, 0, nh, p[4], 0, nh, mh, kh, nh, crossover),
+                    new Product(s2, 0, kh, t2, 0, nh, p[5], 0, nh, mh, kh, nh, crossover),
+                    new Product(s3, 0, kh, t3, 0, nh, p[6], 0, nh, mh, kh, nh, crossover) };
+            Parallel.forEach(products.length, (long) m * k * n >= PARALLEL,
+                    i -> products[i].compute());
+
+            /*
+             * U2 = P1 + P6, U3 = U2 + P7, U4 = U2 + P5, and then
+             * C11 = P1 + P2, C12 = U4 + P3, C21 = U3 - P4, C22 = U3 + P5.
+             */
+            int c11 = co, c12 = co + nh, c21 = co + mh * cld, c22 = c21 + nh;
+            for (int i = 0; i < mh; i++) {
+                for (int j = 0; j < nh; j++) {
+                    int q = i * nh + j;
+                    double u2 = p[0][q] + p[5][q];
+                    double u3 = u2 + p[6][q];
+                    double u4 = u2 + p[4][q];
+                    int offset = i * cld + j;
+                    c[c11 + offset] = p[0][q] + p[1][q];
+                    c[c12 + offset] = u4 + p[2][q];
+                    c[c21 + offset] = u3 - p[3][q];
+                    c[c22 + offset] = u3 + p[4][q];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,599 @@
+package io.jeti.matrix;
+
+import io.jeti.linalg.matrix.utils.Check;
+import io.jeti.matrix.Metrics.Operation;
+import java.util.Arrays;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * The storage behind {@link Tensor} and {@link MutableTensor}: a flat array,
+ * an offset, and a shape with one stride per axis, so that the element at
+ * {@code (i0, i1, ...)} lives at {@code offset + i0 * strides[0] + i1 *
+ * strides[1] + ...}. Every view (slices, permutations, reshapes of contiguous
+ * data, and broadcasts, which have a stride of 0) is just a different offset,
+ * shape, and strides over the same array.
+ * <p>
+ * The loops run over the last axis innermost, with an odometer over the rest,
+ * so contiguous data is read in order.
+ * <p>
+ * Like the matrix storage, storage drawn from an {@link Arena} in debug mode
+ * remembers its lease, which every view shares, and {@link #array()} checks
+ * it before the elements are read or written.
+ */
+final class Strided {
+
+    final double[] data;
+    final int      offset;
+    final int[]    shape;
+    final int[]    strides;
+    final int      size;
+    final int      lease;
+
+    Strided(double[] data, int offset, int[] shape, int[] strides, int lease) {
+        this.data = data;
+        this.offset = offset;
+        this.shape = shape;
+        this.strides = strides;
+        this.size = size(shape);
+        this.lease = lease;
+    }
+
+    /**
+     * @return New contiguous storage of the specified shape, from the active
+     *         {@link Arena}, with arbitrary contents.
+     */
+    static Strided allocate(int[] shape, Class<?> type) {
+        long start = Metrics.start();
+        int size = size(shape);
+        double[] data = Arena.allocate(size);
+        Strided result = new Strided(data, 0, shape.clone(), rowMajor(shape), Arena.lease(data));
+        Metrics.record(Operation.CONSTRUCT, type, shape[0], size / shape[0], size, start);
+        return result;
+    }
+
+    /**
+     * @return Contiguous storage which adopts the array.
+     */
+    static Strided wrap(double[] data, int[] shape) {
+        int size = size(shape);
+        if (data.length < size) {
+            throw new IllegalArgumentException("A tensor of shape " + Arrays.toString(shape)
+                    + " needs " + size + " elements, but there were " + data.length);
+        }
+        return new Strided(data, 0, shape.clone(), rowMajor(shape), 0);
+    }
+
+    /**
+     * @return The number of elements of the shape, which must have between 1
+     *         and 6 positive dimensions.
+     */
+    static int size(int[] shape) {
+        if (shape.length < 1 || shape.length > 6) {
+            throw new IllegalArgumentException(
+                    "Tensors have 1 to 6 dimensions, but there were " + shape.length);
+        }
+        long size = 1;
+        for (int dim : shape) {
+            Check.positive(dim);
+            size *= dim;
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The shape " + Arrays.toString(shape)
+                    + " has more elements than an array can hold.");
+        }
+        return (int) size;
+    }
+
+    /**
+     * @return The strides of a contiguous, row-major array of the shape.
+     */
+    static int[] rowMajor(int[] shape) {
+        int[] strides = new int[shape.length];
+        int stride = 1;
+        for (int axis = shape.length - 1; axis >= 0; axis--) {
+            strides[axis] = stride;
+            stride *= shape[axis];
+        }
+        return strides;
+    }
+
+    int rank() {
+        return shape.length;
+    }
+
+    /**
+     * Report an operation on this tensor to {@link Metrics}, with the first
+     * axis as the rows and all other axes as the columns.
+     */
+    void record(Operation operation, Class<?> type, long start) {
+        Metrics.record(operation, type, shape[0], size / shape[0], 0, start);
+    }
+
+    /**
+     * @return The array, which in debug mode is checked to still belong to
+     *         this storage (see {@link Arena#setDebug(boolean)}).
+     */
+    double[] array() {
+        if (lease != 0) {
+            Arena.check(data, lease);
+        }
+        return data;
+    }
+
+    /**
+     * @throws IllegalStateException
+     *             If an axis of more than one element has a stride of 0, as
+     *             after {@link #broadcastTo}, so that writing an element would
+     *             write all of its copies.
+     */
+    void checkWritable() {
+        for (int axis = 0; axis < shape.length; axis++) {
+            if (strides[axis] == 0 && shape[axis] > 1) {
+                throw new IllegalStateException("Axis " + axis + " of this view is broadcast, "
+                        + "so its elements cannot be written. Copy it first.");
+            }
+        }
+    }
+
+    /**
+     * @return The position of the element in {@link #data}.
+     */
+    int offset(int[] index) {
+        if (index.length != shape.length) {
+            throw new IllegalArgumentException("The tensor has " + shape.length
+                    + " dimensions, but the index has " + index.length);
+        }
+        int position = offset;
+        for (int axis = 0; axis < shape.length; axis++) {
+            if (index[axis] < 0 || index[axis] >= shape[axis]) {
+                throw new IndexOutOfBoundsException("The index " + index[axis] + " of axis "
+                        + axis + " is not in [0, " + shape[axis] + ").");
+            }
+            position += index[axis] * strides[axis];
+        }
+        return position;
+    }
+
+    /**
+     * @return {@code true} if the elements are contiguous and row-major.
+     */
+    boolean contiguous() {
+        int stride = 1;
+        for (int axis = shape.length - 1; axis >= 0; axis--) {
+            if (shape[axis] != 1 && strides[axis] != stride) {
+                return false;
+            }
+            stride *= shape[axis];
+        }
+        return true;
+    }
+
+    private int axis(int axis) {
+        if (axis < 0 || axis >= shape.length) {
+            throw new IllegalArgumentException(
+                    "The tensor has no axis " + axis + ", since it has " + shape.length);
+        }
+        return axis;
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Views
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * @return The view of indices {@code from, from + stride, ...} below
+     *         {@code to} along the axis.
+     */
+    Strided slice(int axis, int from, int to, int stride) {
+        axis(axis);
+        Check.positive(stride);
+        if (from < 0 || to > shape[axis] || from >= to) {
+            throw new IndexOutOfBoundsException("The range [" + from + ", " + to
+                    + ") is not a nonempty part of [0, " + shape[axis] + ").");
+        }
+        int[] newShape = shape.clone();
+        int[] newStrides = strides.clone();
+        newShape[axis] = (to - from + stride - 1) / stride;
+        newStrides[axis] = strides[axis] * stride;
+        return new Strided(data, offset + from * strides[axis], newShape, newStrides, lease);
+    }
+
+    /**
+     * @return The view at the index along the axis, which drops that axis.
+     */
+    Strided slice(int axis, int index) {
+        axis(axis);
+        if (shape.length == 1) {
+            throw new IllegalArgumentException(
+                    "A one-dimensional tensor cannot lose a dimension.");
+        }
+        if (index < 0 || index >= shape[axis]) {
+            throw new IndexOutOfBoundsException(
+                    "The index " + index + " is not in [0, " + shape[axis] + ").");
+        }
+        int[] newShape = new int[shape.length - 1];
+        int[] newStrides = new int[shape.length - 1];
+        for (int i = 0, j = 0; i < shape.length; i++) {
+            if (i != axis) {
+                newShape[j] = shape[i];
+                newStrides[j++] = strides[i];
+            }
+        }
+        return new Strided(data, offset + index * strides[axis], newShape, newStrides, lease);
+    }
+
+    /**
+     * @return The view whose axis i is axis {@code axes[i]} of this.
+     */
+    Strided permute(int[] axes) {
+        if (axes.length != shape.length) {
+            throw new IllegalArgumentException("The tensor has " + shape.length
+                    + " dimensions, but there were " + axes.length + " axes.");
+        }
+        boolean[] seen = new boolean[shape.length];
+        int[] newShape = new int[shape.length];
+        int[] newStrides = new int[shape.length];
+        for (int i = 0; i < axes.length; i++) {
+            if (seen[axis(axes[i])]) {
+                throw new IllegalArgumentException("The axis " + axes[i] + " is repeated.");
+            }
+            seen[axes[i]] = true;
+            newShape[i] = shape[axes[i]];
+            newStrides[i] = strides[axes[i]];
+        }
+        return new Strided(data, offset, newShape, newStrides, lease);
+    }
+
+    /**
+     * @return The elements in row-major order with the new shape, which may
+     *         contain one -1 for a dimension to infer. This is a view if the
+     *         elements are contiguous, and a copy otherwise.
+     */
+    Strided reshape(int[] newShape, Class<?> type) {
+        newShape = newShape.clone();
+        int infer = -1;
+        long known = 1;
+        for (int axis = 0; axis < newShape.length; axis++) {
+            if (newShape[axis] == -1 && infer < 0) {
+                infer = axis;
+            } else {
+                Check.positive(newShape[axis]);
+                known *= newShape[axis];
+            }
+        }
+        if (infer >= 0 && known > 0 && size % known == 0) {
+            newShape[infer] = (int) (size / known);
+        }
+        if (size(newShape) != size) {
+            throw new IllegalArgumentException("Cannot reshape " + Arrays.toString(shape)
+                    + " into " + Arrays.toString(newShape));
+        }
+        Strided source = contiguous() ? this : copy(type);
+        return new Strided(source.data, source.offset, newShape, rowMajor(newShape),
+                source.lease);
+    }
+
+    /**
+     * @return The view of this with the target shape, following the NumPy
+     *         broadcasting rules: the shapes are aligned at their last axes,
+     *         and every dimension of this must either match or be 1, in which
+     *         case it is repeated with a stride of 0.
+     */
+    Strided broadcastTo(int[] target) {
+        int extra = target.length - shape.length;
+        if (extra < 0) {
+            throw new IllegalArgumentException("Cannot broadcast " + Arrays.toString(shape)
+                    + " to " + Arrays.toString(target));
+        }
+        int[] newStrides = new int[target.length];
+        for (int axis = 0; axis < shape.length; axis++) {
+            if (shape[axis] == target[extra + axis]) {
+                newStrides[extra + axis] = strides[axis];
+            } else if (shape[axis] != 1) {
+                throw new IllegalArgumentException("Cannot broadcast "
+                        + Arrays.toString(shape) + " to " + Arrays.toString(target));
+            }
+        }
+        return new Strided(data, offset, target.clone(), newStrides, lease);
+    }
+
+    /**
+     * @return The shape to which both shapes broadcast.
+     */
+    static int[] broadcast(int[] a, int[] b) {
+        int rank = Math.max(a.length, b.length);
+        int[] shape = new int[rank];
+        for (int i = 1; i <= rank; i++) {
+            int x = i <= a.length ? a[a.length - i] : 1;
+            int y = i <= b.length ? b[b.length - i] : 1;
+            if (x != y && x != 1 && y != 1) {
+                throw new IllegalArgumentException("The shapes " + Arrays.toString(a) + " and "
+                        + Arrays.toString(b) + " cannot be broadcast together.");
+            }
+            shape[rank - i] = Math.max(x, y);
+        }
+        return shape;
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Element-wise Loops
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * @return A contiguous copy.
+     */
+    Strided copy(Class<?> type) {
+        Strided result = allocate(shape, type);
+        copyInto(result.data, 0);
+        return result;
+    }
+
+    /**
+     * Copy the elements, in row-major order, into the array starting at the
+     * specified offset.
+     */
+    void copyInto(double[] dest, int destOffset) {
+        double[] data = array();
+        if (contiguous()) {
+            System.arraycopy(data, offset, dest, destOffset, size);
+            return;
+        }
+        int last = shape.length - 1;
+        int inner = shape[last];
+        int step = strides[last];
+        int[] counter = new int[last];
+        int base = offset;
+        for (int outer = 0, to = destOffset; outer < size / inner; outer++, to += inner) {
+            for (int i = 0; i < inner; i++) {
+                dest[to + i] = data[base + i * step];
+            }
+            base = advance(counter, base, strides);
+        }
+    }
+
+    /**
+     * z = op(x), element-wise, where all three have the shape of z.
+     */
+    static void map(Strided x, Strided z, DoubleUnaryOperator op) {
+        double[] xd = x.array();
+        double[] zd = z.array();
+        if (x.contiguous() && z.contiguous()) {
+            Elementwise.map(xd, x.offset, zd, z.offset, z.size, op);
+            return;
+        }
+        int last = z.shape.length - 1;
+        int inner = z.shape[last];
+        int xs = x.strides[last];
+        int zs = z.strides[last];
+        int[] xCounter = new int[last];
+        int[] zCounter = new int[last];
+        int xb = x.offset;
+        int zb = z.offset;
+        for (int outer = 0; outer < z.size / inner; outer++) {
+            for (int i = 0; i < inner; i++) {
+                zd[zb + i * zs] = op.applyAsDouble(xd[xb + i * xs]);
+            }
+            xb = x.advance(xCounter, xb, x.strides);
+            zb = z.advance(zCounter, zb, z.strides);
+        }
+    }
+
+    /**
+     * z = op(x, y), element-wise, where all three have the shape of z (so x and
+     * y have already been broadcast).
+     */
+    static void zip(Strided x, Strided y, Strided z, DoubleBinaryOperator op) {
+        double[] xd = x.array();
+        double[] yd = y.array();
+        double[] zd = z.array();
+        if (x.contiguous() && y.contiguous() && z.contiguous()) {
+            Elementwise.zip(xd, x.offset, yd, y.offset, zd, z.offset, z.size, op);
+            return;
+        }
+        int last = z.shape.length - 1;
+        int inner = z.shape[last];
+        int xs = x.strides[last];
+        int ys = y.strides[last];
+        int zs = z.strides[last];
+        int[] xCounter = new int[last];
+        int[] yCounter = new int[last];
+        int[] zCounter = new int[last];
+        int xb = x.offset;
+        int yb = y.offset;
+        int zb = z.offset;
+        for (int outer = 0; outer < z.size / inner; outer++) {
+            for (int i = 0; i < inner; i++) {
+                zd[zb + i * zs] = op.applyAsDouble(xd[xb + i * xs], yd[yb + i * ys]);
+            }
+            xb = x.advance(xCounter, xb, x.strides);
+            yb = y.advance(yCounter, yb, y.strides);
+            zb = z.advance(zCounter, zb, z.strides);
+        }
+    }
+
+    /**
+     * Step the odometer over every axis but the last, and return the new base
+     * position.
+     */
+    private int advance(int[] counter, int base, int[] strides) {
+        for (int axis = counter.length - 1; axis >= 0; axis--) {
+            base += strides[axis];
+            if (++counter[axis] < shape[axis]) {
+                return base;
+            }
+            base -= strides[axis] * shape[axis];
+            counter[axis] = 0;
+        }
+        return base;
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Contractions
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * @return The contraction of axes {@code axesA} of a with axes
+     *         {@code axesB} of b. The free axes of a come first in the result,
+     *         followed by the free axes of b. A full contraction has shape
+     *         {1}. Both operands are permuted into matrices and multiplied
+     *         with the GEMM kernel.
+     */
+    static Strided tensordot(Strided a, int[] axesA, Strided b, int[] axesB, Class<?> type) {
+        if (axesA.length != axesB.length) {
+            throw new IllegalArgumentException("Cannot contract " + axesA.length
+                    + " axes of the first tensor with " + axesB.length + " of the second.");
+        }
+        int contracted = 1;
+        for (int i = 0; i < axesA.length; i++) {
+            if (a.shape[a.axis(axesA[i])] != b.shape[b.axis(axesB[i])]) {
+                throw new IllegalArgumentException("Axis " + axesA[i] + " of the first tensor has "
+                        + a.shape[axesA[i]] + " elements, but axis " + axesB[i]
+                        + " of the second has " + b.shape[axesB[i]]);
+            }
+            contracted *= a.shape[axesA[i]];
+        }
+        int[] freeA = free(a.rank(), axesA);
+        int[] freeB = free(b.rank(), axesB);
+        int[] orderA = concat(freeA, axesA);
+        int[] orderB = concat(axesB, freeB);
+        double[] left = dense(a.permute(orderA), type);
+        double[] right = dense(b.permute(orderB), type);
+
+        int[] shape = new int[Math.max(1, freeA.length + freeB.length)];
+        shape[0] = 1;
+        for (int i = 0; i < freeA.length; i++) {
+            shape[i] = a.shape[freeA[i]];
+        }
+        for (int i = 0; i < freeB.length; i++) {
+            shape[freeA.length + i] = b.shape[freeB[i]];
+        }
+        int m = a.size / contracted;
+        int n = b.size / contracted;
+        long start = Metrics.start();
+        Strided c = allocate(shape, type);
+        Kernels.gemm(left, right, c.data, m, contracted, n);
+        Metrics.record(Operation.TIMES, type, m, n, 0, start);
+        return c;
+    }
+
+    /**
+     * @return The batched matrix product of a, with shape {@code (..., m, k)},
+     *         and b, with shape {@code (..., k, n)}, where the leading batch
+     *         axes broadcast against each other.
+     */
+    static Strided matmul(Strided a, Strided b, Class<?> type) {
+        if (a.rank() < 2 || b.rank() < 2) {
+            throw new IllegalArgumentException(
+                    "Batched products need at least two dimensions in each operand.");
+        }
+        int m = a.shape[a.rank() - 2];
+        int k = a.shape[a.rank() - 1];
+        int n = b.shape[b.rank() - 1];
+        Check.zero(k - b.shape[b.rank() - 2]);
+        int[] batch = broadcast(Arrays.copyOf(a.shape, a.rank() - 2),
+                Arrays.copyOf(b.shape, b.rank() - 2));
+        int[] shape = Arrays.copyOf(batch, batch.length + 2);
+        shape[batch.length] = m;
+        shape[batch.length + 1] = n;
+
+        /* Contiguous operands, broadcast over the batch axes with stride 0. */
+        Strided left = contiguousCopy(a, type).broadcastTo(concat(batch, new int[] { m, k }));
+        Strided right = contiguousCopy(b, type).broadcastTo(concat(batch, new int[] { k, n }));
+        long start = Metrics.start();
+        Strided c = allocate(shape, type);
+        Arrays.fill(c.data, 0, c.size, 0);
+        int[] counter = new int[batch.length];
+        int count = c.size / (m * n);
+        double[] leftData = left.array();
+        double[] rightData = right.array();
+        for (int i = 0, ao = left.offset, bo = right.offset; i < count; i++) {
+            Kernels.gemmAdd(leftData, ao, rightData, bo, c.data, i * m * n, m, k, n);
+            for (int axis = batch.length - 1; axis >= 0; axis--) {
+                ao += left.strides[axis];
+                bo += right.strides[axis];
+                if (++counter[axis] < batch[axis]) {
+                    break;
+                }
+                ao -= left.strides[axis] * batch[axis];
+                bo -= right.strides[axis] * batch[axis];
+                counter[axis] = 0;
+            }
+        }
+        Metrics.record(Operation.TIMES, type, m, n, 0, start);
+        return c;
+    }
+
+    private static Strided contiguousCopy(Strided x, Class<?> type) {
+        return x.contiguous() ? x : x.copy(type);
+    }
+
+    /**
+     * @return The elements in row-major order, in an array which starts at
+     *         offset 0.
+     */
+    private static double[] dense(Strided x, Class<?> type) {
+        return x.contiguous() && x.offset == 0 ? x.array() : x.copy(type).data;
+    }
+
+    private static int[] free(int rank, int[] axes) {
+        boolean[] contracted = new boolean[rank];
+        for (int axis : axes) {
+            if (contracted[axis]) {
+                throw new IllegalArgumentException("The axis " + axis + " is repeated.");
+            }
+            contracted[axis] = true;
+        }
+        int[] free = new int[rank - axes.length];
+        for (int axis = 0, i = 0; axis < rank; axis++) {
+            if (!contracted[axis]) {
+                free[i++] = axis;
+            }
+        }
+        return free;
+    }
+
+    private static int[] concat(int[] a, int[] b) {
+        int[] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Other Functions
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * Append the elements as nested, bracketed rows.
+     */
+    void append(StringBuilder builder, int axis, int base) {
+        builder.append('[');
+        for (int i = 0; i < shape[axis]; i++) {
+            if (i > 0) {
+                builder.append(axis == shape.length - 1 ? ", " : ",\n");
+            }
+            if (axis == shape.length - 1) {
+                builder.append(array()[base + i * strides[axis]]);
+            } else {
+                append(builder, axis + 1, base + i * strides[axis]);
+            }
+        }
+        builder.append(']');
+    }
+}
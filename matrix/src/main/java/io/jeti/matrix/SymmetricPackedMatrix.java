@@ -0,0 +1,166 @@
+package io.jeti.matrix;
+
+import io.jeti.linalg.matrix.utils.Check;
+import io.jeti.matrix.Gettable.Footprint;
+import io.jeti.matrix.Gettable.Gettable2;
+
+/**
+ * An immutable, square, symmetric {@link Matrix}. Only the lower triangle
+ * (including the diagonal) is stored, packed row by row, so an (n x n) instance
+ * needs n(n+1)/2 doubles. This is the natural home for covariance and Gram
+ * matrices.
+ */
+public class SymmetricPackedMatrix extends Matrix {
+
+    /*
+     * --------------------------------------------------
+     *
+     * Private Fields
+     *
+     * --------------------------------------------------
+     */
+    private final Storage storage;
+
+    /*
+     * --------------------------------------------------
+     *
+     * Constructors
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * Create a (rows x rows) symmetric matrix. The filler is only called for
+     * entries in the lower triangle, that is, where {@code col <= row}. The
+     * upper triangle mirrors it.
+     */
+    public SymmetricPackedMatrix(int rows, Filler filler) {
+        this(Metrics.start(), fill(rows, filler));
+    }
+
+    /**
+     * A hidden constructor which adopts the packed lower triangle (as laid out
+     * by {@link #offset(int, int)}) without copying it.
+     */
+    SymmetricPackedMatrix(double[] packed, int rows) {
+        this(Metrics.start(), new Storage(packed, rows));
+    }
+
+    private SymmetricPackedMatrix(long start, Storage storage) {
+        super(start, storage, storage.rows, storage.rows);
+        this.storage = storage;
+    }
+
+    private static Storage fill(int rows, Filler filler) {
+        Check.positive(rows);
+        Storage storage = new Storage(new double[rows * (rows + 1) / 2], rows);
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c <= r; c++) {
+                storage.packed[offset(r, c)] = filler.apply(r, c);
+            }
+        }
+        return storage;
+    }
+
+    /**
+     * @return The symmetric matrix whose lower triangle matches that of the
+     *         specified square matrix. The upper triangle of {@code A} is
+     *         ignored.
+     */
+    public static SymmetricPackedMatrix lower(final Matrix A) {
+        Check.zero(A.rows() - A.cols());
+        return new SymmetricPackedMatrix(A.rows(), A::get);
+    }
+
+    /**
+     * @return The index of the entry at (row, col), where {@code col <= row},
+     *         in the packed lower triangle.
+     */
+    static int offset(int row, int col) {
+        return row * (row + 1) / 2 + col;
+    }
+
+    /**
+     * The symmetric rank-k update {@code C += alpha * X^T X}, where {@code C}
+     * is a packed lower triangle of size (n x n) and {@code X} is a row-major
+     * (k x n) array, that is, k observations of n variables.
+     */
+    static void syrk(double[] packed, double alpha, double[] x, int k, int n) {
+        for (int row = 0; row < k; row++) {
+            int base = row * n;
+            for (int i = 0; i < n; i++) {
+                double xi = alpha * x[base + i];
+                int offset = offset(i, 0);
+                for (int j = 0; j <= i; j++) {
+                    packed[offset + j] += xi * x[base + j];
+                }
+            }
+        }
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Matrix/Matrix Operations
+     *
+     * --------------------------------------------------
+     */
+    @Override
+    public Matrix T() {
+        return this;
+    }
+
+    /**
+     * Reads the stored triangle directly, mirroring it on the fly, instead of
+     * going through the generic getter.
+     */
+    @Override
+    Matrix multiply(final Matrix B) {
+        final double[] a = storage.packed;
+        final int n = rows();
+        return B.newInstance(n, B.cols(), (row, col) -> {
+            double sum = 0.0;
+            int offset = offset(row, 0);
+            for (int i = 0; i <= row; i++) {
+                sum += a[offset + i] * B.get(i, col);
+            }
+            for (int i = row + 1; i < n; i++) {
+                sum += a[offset(i, row)] * B.get(i, col);
+            }
+            return sum;
+        });
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Storage
+     *
+     * --------------------------------------------------
+     */
+    private static final class Storage implements Gettable2<Double>, Footprint {
+
+        private final int      rows;
+        private final double[] packed;
+
+        Storage(double[] packed, int rows) {
+            this.rows = rows;
+            this.packed = packed;
+        }
+
+        @Override
+        public Double get(int row, int col) {
+            return col <= row ? packed[offset(row, col)] : packed[offset(col, row)];
+        }
+
+        @Override
+        public int size() {
+            return rows;
+        }
+
+        @Override
+        public long footprint() {
+            return packed.length;
+        }
+    }
+}
@@ -0,0 +1,422 @@
+package io.jeti.matrix;
+
+import io.jeti.linalg.matrix.utils.Check;
+import io.jeti.matrix.Gettable.Gettable3;
+import io.jeti.matrix.Gettable.Gettable4;
+import io.jeti.matrix.Gettable.Gettable5;
+import io.jeti.matrix.Gettable.Gettable6;
+import io.jeti.matrix.Metrics.Operation;
+import java.util.Arrays;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * A pure Java, immutable tensor with 1 to 6 dimensions, stored as a contiguous
+ * row-major array of doubles. Slices, permutations, reshapes of
+ * contiguous data, and broadcasts are views, which share the storage and only
+ * differ in their offset, shape, and strides.
+ * <p>
+ * The element-wise operations broadcast their operands following the NumPy
+ * rules, and contractions ({@link #tensordot(Tensor, int[], int[])} and the
+ * batched {@link #matmul(Tensor)}) are lowered onto the dense GEMM kernel.
+ */
+public class Tensor implements Gettable3<Double>, Gettable4<Double>, Gettable5<Double>,
+        Gettable6<Double> {
+
+    /**
+     * Computes the value of an element from its index. The index array is
+     * reused between calls, so it must not be kept.
+     */
+    public interface Filler {
+
+        double apply(int[] index);
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Private Fields
+     *
+     * --------------------------------------------------
+     */
+    private final Strided data;
+
+    /*
+     * --------------------------------------------------
+     *
+     * Constructors
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * A hidden constructor which adopts the given storage without copying it.
+     */
+    Tensor(Strided data) {
+        this.data = data;
+    }
+
+    /**
+     * Construct a tensor of the specified shape, where every element is given
+     * by the filler.
+     */
+    public Tensor(int[] shape, Filler filler) {
+        this(Strided.allocate(shape, Tensor.class));
+        int[] index = new int[shape.length];
+        for (int i = 0; i < data.size; i++) {
+            data.data[i] = filler.apply(index);
+            for (int axis = shape.length - 1; axis >= 0; axis--) {
+                if (++index[axis] < shape[axis]) {
+                    break;
+                }
+                index[axis] = 0;
+            }
+        }
+    }
+
+    /**
+     * Construct a tensor of the specified shape from a copy of the row-major
+     * array.
+     */
+    public Tensor(int[] shape, double[] data) {
+        this(Strided.wrap(data, shape).copy(Tensor.class));
+    }
+
+    /**
+     * @return A tensor which adopts the row-major array as its storage,
+     *         without copying it. Changes to the array will be visible in the
+     *         tensor.
+     */
+    public static Tensor wrap(double[] data, int... shape) {
+        return new Tensor(Strided.wrap(data, shape));
+    }
+
+    /**
+     * @return A tensor of the specified shape, where all values are set to 0.
+     */
+    public static Tensor zeros(int... shape) {
+        return full(0, shape);
+    }
+
+    /**
+     * @return A tensor of the specified shape, where all values are set to 1.
+     */
+    public static Tensor ones(int... shape) {
+        return full(1, shape);
+    }
+
+    private static Tensor full(double value, int[] shape) {
+        Strided data = Strided.allocate(shape, Tensor.class);
+        Arrays.fill(data.data, 0, data.size, value);
+        return new Tensor(data);
+    }
+
+    /**
+     * @return A (rows x cols) tensor holding a copy of the matrix.
+     */
+    public static Tensor of(Matrix matrix) {
+        int[] shape = { matrix.rows(), matrix.cols() };
+        Strided data = Strided.allocate(shape, Tensor.class);
+        matrix.copyInto(data.data, 0);
+        return new Tensor(data);
+    }
+
+    /**
+     * @return A one-dimensional tensor holding a copy of the vector.
+     */
+    public static Tensor of(Vector vector) {
+        Strided data = Strided.allocate(new int[] { vector.size() }, Tensor.class);
+        vector.copyInto(data.data, 0);
+        return new Tensor(data);
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Getters
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * @return The number of dimensions.
+     */
+    public final int rank() {
+        return data.rank();
+    }
+
+    /**
+     * @return A copy of the shape.
+     */
+    public final int[] shape() {
+        return data.shape.clone();
+    }
+
+    /**
+     * @return The number of elements along the axis.
+     */
+    public final int shape(int axis) {
+        return data.shape[axis];
+    }
+
+    @Override
+    public final int size() {
+        return data.size;
+    }
+
+    /**
+     * @return The element at the index, which must have one entry per
+     *         dimension.
+     */
+    public final Double get(int... index) {
+        return data.array()[data.offset(index)];
+    }
+
+    @Override
+    public final Double get(int a, int b, int c) {
+        return get(new int[] { a, b, c });
+    }
+
+    @Override
+    public final Double get(int a, int b, int c, int d) {
+        return get(new int[] { a, b, c, d });
+    }
+
+    @Override
+    public final Double get(int a, int b, int c, int d, int e) {
+        return get(new int[] { a, b, c, d, e });
+    }
+
+    @Override
+    public final Double get(int a, int b, int c, int d, int e, int f) {
+        return get(new int[] { a, b, c, d, e, f });
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Views
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * @return A view of the indices {@code from, from + stride, ...} which are
+     *         less than {@code to} along the axis. Unlike the matrix views,
+     *         {@code to} is exclusive, as in {@link Arrays#copyOfRange}.
+     */
+    public Tensor slice(int axis, int from, int to, int stride) {
+        return new Tensor(data.slice(axis, from, to, stride));
+    }
+
+    /**
+     * @return A view of the elements at the index along the axis, with one
+     *         fewer dimension. For example, {@code slice(0, i)} is the i-th
+     *         element of a batch.
+     */
+    public Tensor slice(int axis, int index) {
+        return new Tensor(data.slice(axis, index));
+    }
+
+    /**
+     * @return A view whose axis i is axis {@code axes[i]} of this tensor.
+     */
+    public Tensor permute(int... axes) {
+        return new Tensor(data.permute(axes));
+    }
+
+    /**
+     * @return A view with the axes in reverse order.
+     */
+    public Tensor transpose() {
+        int[] axes = new int[rank()];
+        for (int i = 0; i < axes.length; i++) {
+            axes[i] = axes.length - 1 - i;
+        }
+        return permute(axes);
+    }
+
+    /**
+     * @return The elements, in row-major order, with the new shape, which may
+     *         contain one -1 for a dimension to infer. This is a view when the
+     *         elements are contiguous, and a copy otherwise (for instance,
+     *         after a permutation).
+     */
+    public Tensor reshape(int... shape) {
+        return new Tensor(data.reshape(shape, Tensor.class));
+    }
+
+    /**
+     * @return A view with the specified shape, where the dimensions of size 1
+     *         (and any missing leading dimensions) are repeated without
+     *         copying.
+     */
+    public Tensor broadcastTo(int... shape) {
+        return new Tensor(data.broadcastTo(shape));
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Element-wise Operations
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * @return A new tensor holding {@code op} applied to every element. Large
+     *         contiguous tensors are processed in parallel, so {@code op} must
+     *         be stateless.
+     */
+    public Tensor map(DoubleUnaryOperator op) {
+        long start = Metrics.start();
+        Strided result = Strided.allocate(data.shape, Tensor.class);
+        Strided.map(data, result, op);
+        result.record(Operation.ELEMENTWISE, Tensor.class, start);
+        return new Tensor(result);
+    }
+
+    /**
+     * @return A new tensor holding {@code op(this, b)} element-wise, where the
+     *         shape of the result is the broadcast of both shapes. See
+     *         {@link #map(DoubleUnaryOperator)}.
+     */
+    public Tensor zipWith(Tensor b, DoubleBinaryOperator op) {
+        long start = Metrics.start();
+        int[] shape = Strided.broadcast(data.shape, b.data.shape);
+        Strided result = Strided.allocate(shape, Tensor.class);
+        Strided.zip(data.broadcastTo(shape), b.data.broadcastTo(shape), result, op);
+        result.record(Operation.ELEMENTWISE, Tensor.class, start);
+        return new Tensor(result);
+    }
+
+    /**
+     * @return {@code this + b}, element-wise, with broadcasting.
+     */
+    public Tensor plus(Tensor b) {
+        return zipWith(b, (x, y) -> x + y);
+    }
+
+    /**
+     * @return {@code this - b}, element-wise, with broadcasting.
+     */
+    public Tensor minus(Tensor b) {
+        return zipWith(b, (x, y) -> x - y);
+    }
+
+    /**
+     * @return {@code this * b}, element-wise, with broadcasting.
+     */
+    public Tensor multiply(Tensor b) {
+        return zipWith(b, (x, y) -> x * y);
+    }
+
+    /**
+     * @return {@code this / b}, element-wise, with broadcasting.
+     */
+    public Tensor divide(Tensor b) {
+        return zipWith(b, (x, y) -> x / y);
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Contractions
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * @return The contraction of axes {@code axesA} of this tensor with the
+     *         matching axes {@code axesB} of b. The free axes of this tensor
+     *         come first in the result, followed by the free axes of b, and a
+     *         full contraction has shape {1}.
+     */
+    public Tensor tensordot(Tensor b, int[] axesA, int[] axesB) {
+        Strided result = Strided.tensordot(data, axesA, b.data, axesB, Tensor.class);
+        return new Tensor(result);
+    }
+
+    /**
+     * @return The contraction of the last {@code axes} axes of this tensor with
+     *         the first {@code axes} axes of b, so that {@code tensordot(b, 1)}
+     *         of two matrices is their product.
+     */
+    public Tensor tensordot(Tensor b, int axes) {
+        Check.positive(axes);
+        int[] axesA = new int[axes];
+        int[] axesB = new int[axes];
+        for (int i = 0; i < axes; i++) {
+            axesA[i] = rank() - axes + i;
+            axesB[i] = i;
+        }
+        return tensordot(b, axesA, axesB);
+    }
+
+    /**
+     * @return The batched matrix product of this tensor, with shape
+     *         {@code (..., m, k)}, and b, with shape {@code (..., k, n)}. The
+     *         leading batch axes broadcast, so a single (k x n) matrix can
+     *         multiply a whole batch.
+     */
+    public Tensor matmul(Tensor b) {
+        return new Tensor(Strided.matmul(data, b.data, Tensor.class));
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Conversions
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * @return A new row-major array holding the elements of this tensor.
+     */
+    public double[] toArray() {
+        double[] array = new double[size()];
+        copyInto(array, 0);
+        return array;
+    }
+
+    /**
+     * Copy the elements of this tensor, in row-major order, into the array
+     * starting at the specified offset.
+     */
+    public void copyInto(double[] dest, int offset) {
+        data.copyInto(dest, offset);
+    }
+
+    /**
+     * @return A copy of this two-dimensional tensor as a matrix.
+     */
+    public Matrix toMatrix() {
+        if (rank() != 2) {
+            throw new IllegalStateException("Only two-dimensional tensors are matrices, but "
+                    + "this one has " + rank() + " dimensions.");
+        }
+        return new Matrix(new Gettable.Array2(toArray(), shape(1)), shape(0), shape(1));
+    }
+
+    /**
+     * @return The flat array at the root of the storage of this tensor.
+     */
+    double[] buffer() {
+        return data.data;
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Other Functions
+     *
+     * --------------------------------------------------
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        data.append(builder, 0, data.offset);
+        return builder.toString();
+    }
+}
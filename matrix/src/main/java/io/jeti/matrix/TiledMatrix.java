@@ -0,0 +1,465 @@
+package io.jeti.matrix;
+
+import io.jeti.linalg.matrix.utils.Check;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * A matrix which lives in a file instead of in memory. The file holds a short
+ * header followed by square (tile x tile) blocks, stored row-major by tile and
+ * row-major within each tile, where the tiles on the right and bottom edges
+ * are padded with zeros.
+ * <p>
+ * This is not a {@link Matrix}: the file can be changed tile by tile with
+ * {@link #writeTile}, and element-wise access to a file would be far too slow
+ * for the rest of the library. All access is by whole tiles, through
+ * {@link #readTile}, {@link #writeTile}, and the out-of-core
+ * {@link #times(TiledMatrix, Path, long)}. A matrix which fits in memory can
+ * be loaded with {@link #toMatrix()}.
+ * <p>
+ * Tile reads and writes on one instance are serialized, and share a single
+ * I/O buffer. The instance holds an open file, so it must be closed when it is
+ * no longer needed.
+ * <p>
+ * The files are accessed through {@code java.nio.file} and an
+ * {@link AsynchronousFileChannel}, so on Android, this class needs API level
+ * 26, while the in-memory classes need far less.
+ */
+public class TiledMatrix implements Closeable {
+
+    /*
+     * --------------------------------------------------
+     *
+     * Private Fields
+     *
+     * --------------------------------------------------
+     */
+    private static final int              HEADER = 16;
+    private static final int              MAGIC  = 0x4a544d31;
+
+    private final Path                    file;
+    private final AsynchronousFileChannel channel;
+    private final int                     rows, cols, tile, tileRows, tileCols;
+
+    /** The I/O buffer of {@link #readTile} and {@link #writeTile}. */
+    private final ByteBuffer              buffer;
+
+    /*
+     * --------------------------------------------------
+     *
+     * Constructors
+     *
+     * --------------------------------------------------
+     */
+    private TiledMatrix(Path file, AsynchronousFileChannel channel, int rows, int cols,
+            int tile) {
+        this.file = file;
+        this.channel = channel;
+        this.rows = rows;
+        this.cols = cols;
+        this.tile = tile;
+        this.tileRows = (rows + tile - 1) / tile;
+        this.tileCols = (cols + tile - 1) / tile;
+        this.buffer = newBuffer(tile);
+    }
+
+    /**
+     * Create a new file holding a (rows x cols) matrix of zeros, split into
+     * (tile x tile) blocks. An existing file is overwritten.
+     */
+    public static TiledMatrix create(Path file, int rows, int cols, int tile) throws IOException {
+        Check.positive(rows);
+        Check.positive(cols);
+        Check.positive(tile);
+        AsynchronousFileChannel channel = AsynchronousFileChannel.open(file,
+                StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        header.putInt(MAGIC).putInt(rows).putInt(cols).putInt(tile).flip();
+        write(channel, header, 0);
+        return new TiledMatrix(file, channel, rows, cols, tile);
+    }
+
+    /**
+     * Open a file which was previously written by this class.
+     */
+    public static TiledMatrix open(Path file) throws IOException {
+        AsynchronousFileChannel channel = AsynchronousFileChannel.open(file,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        read(channel, header, 0);
+        header.flip();
+        if (header.remaining() < HEADER || header.getInt() != MAGIC) {
+            channel.close();
+            throw new IOException(file + " is not a tiled matrix file.");
+        }
+        return new TiledMatrix(file, channel, header.getInt(), header.getInt(),
+                header.getInt());
+    }
+
+    /**
+     * Write the specified matrix to a new file, split into (tile x tile)
+     * blocks. Each tile is copied out of the matrix through a view, so dense
+     * matrices are copied row by row with no boxing.
+     */
+    public static TiledMatrix from(Path file, Matrix source, int tile) throws IOException {
+        TiledMatrix tiled = create(file, source.rows(), source.cols(), tile);
+        double[] buffer = new double[tile * tile];
+        for (int i = 0; i < tiled.tileRows(); i++) {
+            for (int j = 0; j < tiled.tileCols(); j++) {
+                int r0 = i * tile;
+                int c0 = j * tile;
+                int height = Math.min(tile, source.rows() - r0);
+                int width = Math.min(tile, source.cols() - c0);
+                Arrays.fill(buffer, 0);
+                source.get(r0, r0 + height - 1, 1, c0, c0 + width - 1, 1).copyInto(buffer, 0,
+                        tile);
+                tiled.writeTile(i, j, buffer);
+            }
+        }
+        return tiled;
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Getters
+     *
+     * --------------------------------------------------
+     */
+
+    public int rows() {
+        return rows;
+    }
+
+    public int cols() {
+        return cols;
+    }
+
+    /**
+     * @return The number of rows (and columns) in each tile.
+     */
+    public int tile() {
+        return tile;
+    }
+
+    /**
+     * @return The number of rows of tiles.
+     */
+    public int tileRows() {
+        return tileRows;
+    }
+
+    /**
+     * @return The number of columns of tiles.
+     */
+    public int tileCols() {
+        return tileCols;
+    }
+
+    /**
+     * @return The (tile x tile) block at the specified tile coordinates, in
+     *         row-major order, padded with zeros at the edges of the matrix.
+     */
+    public double[] readTile(int i, int j) throws IOException {
+        double[] values = new double[tile * tile];
+        readTile(i, j, values);
+        return values;
+    }
+
+    /**
+     * Read the (tile x tile) block at the specified tile coordinates into the
+     * first {@code tile * tile} entries of the array, in row-major order.
+     */
+    public synchronized void readTile(int i, int j, double[] values) throws IOException {
+        buffer.clear();
+        read(channel, buffer, position(i, j));
+        buffer.flip();
+        buffer.asDoubleBuffer().get(values, 0, tile * tile);
+    }
+
+    /**
+     * Overwrite the (tile x tile) block at the specified tile coordinates with
+     * the row-major values. Entries in the padding must be zero.
+     */
+    public synchronized void writeTile(int i, int j, double[] values) throws IOException {
+        buffer.clear();
+        buffer.asDoubleBuffer().put(values, 0, tile * tile);
+        write(channel, buffer, position(i, j));
+    }
+
+    /**
+     * @return The whole matrix, read into memory.
+     */
+    public Matrix toMatrix() throws IOException {
+        long start = Metrics.start();
+        double[] array = Arena.allocate(rows * cols);
+        double[] values = new double[tile * tile];
+        for (int i = 0; i < tileRows; i++) {
+            for (int j = 0; j < tileCols; j++) {
+                readTile(i, j, values);
+                int r0 = i * tile;
+                int c0 = j * tile;
+                int height = Math.min(tile, rows - r0);
+                int width = Math.min(tile, cols - c0);
+                for (int r = 0; r < height; r++) {
+                    System.arraycopy(values, r * tile, array, (r0 + r) * cols + c0, width);
+                }
+            }
+        }
+        return new Matrix(start, new Gettable.Array2(array, cols), rows, cols);
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Matrix/Matrix Operations
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * Computes {@code this * B} out of core, writing the product to the
+     * specified file tile by tile. Only whole tiles are ever held in memory,
+     * and while one pair of tiles is being multiplied, the next pairs are
+     * already being read asynchronously.
+     *
+     * @param memoryBudget
+     *            An upper bound on the number of bytes of tile buffers. It
+     *            must allow for at least 6 tiles, and everything beyond that
+     *            goes into reading further ahead.
+     * @throws IllegalArgumentException
+     *             If {@code out} is the file of either operand, which would
+     *             be truncated before it is read.
+     */
+    public TiledMatrix times(TiledMatrix B, Path out, long memoryBudget) throws IOException {
+        Check.zero(cols() - B.rows());
+        if (tile() != B.tile()) {
+            throw new IllegalArgumentException(
+                    "The tile sizes differ: " + tile() + " and " + B.tile());
+        }
+        if (isFile(out) || B.isFile(out)) {
+            throw new IllegalArgumentException("The product would overwrite an operand: " + out);
+        }
+        long start = Metrics.start();
+        TiledMatrix C = create(out, rows(), B.cols(), tile());
+        try {
+            new OutOfCore(this, B, C, memoryBudget).run();
+        } catch (IOException | RuntimeException e) {
+            C.close();
+            throw e;
+        }
+        Metrics.record(Metrics.Operation.TIMES, C.getClass(), C.rows(), C.cols(), 0, start);
+        return C;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * @return {@code true} if the path leads to the file of this matrix.
+     */
+    private boolean isFile(Path path) throws IOException {
+        return Files.exists(path) && Files.isSameFile(path, file);
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * I/O
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * Fill the buffer from the channel. Anything past the end of the file
+     * reads as zeros, since tiles which were never written are zero.
+     */
+    private static void read(AsynchronousFileChannel channel, ByteBuffer buffer, long position)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = await(channel.read(buffer, position));
+            if (read < 0) {
+                while (buffer.hasRemaining()) {
+                    buffer.put((byte) 0);
+                }
+            } else {
+                position += read;
+            }
+        }
+    }
+
+    private static void write(AsynchronousFileChannel channel, ByteBuffer buffer, long position)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            position += await(channel.write(buffer, position));
+        }
+    }
+
+    private long position(int i, int j) {
+        if (i < 0 || i >= tileRows || j < 0 || j >= tileCols) {
+            throw new IndexOutOfBoundsException("There is no tile (" + i + ", " + j + ").");
+        }
+        return HEADER + ((long) i * tileCols + j) * tile * tile * Double.BYTES;
+    }
+
+    private static ByteBuffer newBuffer(int tile) {
+        return ByteBuffer.allocateDirect(tile * tile * Double.BYTES).order(ByteOrder.BIG_ENDIAN);
+    }
+
+    private static int await(Future<Integer> future) throws IOException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Out-of-core Multiplication
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * Computes C = A * B one output tile at a time, where each output tile
+     * accumulates the products of a row of tiles of A with a column of tiles of
+     * B. The pairs of input tiles are read into a ring of buffers, which is as
+     * deep as the memory budget allows, so that reads overlap the arithmetic.
+     */
+    private static final class OutOfCore {
+
+        private final TiledMatrix  A, B, C;
+        private final int          tile, tilesK, steps;
+        private final ByteBuffer[] aBuffers, bBuffers;
+        private final Future<?>[]  aReads, bReads;
+
+        OutOfCore(TiledMatrix A, TiledMatrix B, TiledMatrix C, long memoryBudget) {
+            this.A = A;
+            this.B = B;
+            this.C = C;
+            this.tile = A.tile();
+            this.tilesK = A.tileCols();
+            this.steps = A.tileRows() * B.tileCols() * tilesK;
+
+            /* 3 tiles as arrays, 1 for writing C, and 2 per slot in the ring. */
+            long tileBytes = (long) tile * tile * Double.BYTES;
+            long slots = memoryBudget / tileBytes / 2 - 2;
+            if (slots < 1) {
+                throw new IllegalArgumentException("The memory budget of " + memoryBudget
+                        + " bytes is less than 6 tiles of " + tileBytes + " bytes.");
+            }
+            int depth = (int) Math.min(slots, Math.min(steps, 64));
+            this.aBuffers = new ByteBuffer[depth];
+            this.bBuffers = new ByteBuffer[depth];
+            this.aReads = new Future<?>[depth];
+            this.bReads = new Future<?>[depth];
+            for (int s = 0; s < depth; s++) {
+                aBuffers[s] = newBuffer(tile);
+                bBuffers[s] = newBuffer(tile);
+            }
+        }
+
+        /**
+         * Start reading the pair of tiles for the specified step into its slot
+         * of the ring.
+         */
+        private void prefetch(int step) {
+            if (step >= steps) {
+                return;
+            }
+            int k = step % tilesK;
+            int j = step / tilesK % B.tileCols();
+            int i = step / tilesK / B.tileCols();
+            int slot = step % aBuffers.length;
+            aBuffers[slot].clear();
+            bBuffers[slot].clear();
+            aReads[slot] = A.channel.read(aBuffers[slot], A.position(i, k));
+            bReads[slot] = B.channel.read(bBuffers[slot], B.position(k, j));
+        }
+
+        /**
+         * Wait for the read of the specified tile to finish and finish it
+         * synchronously if it came up short.
+         */
+        private void complete(TiledMatrix M, Future<?> pending, ByteBuffer buffer, int i, int j,
+                double[] tile) throws IOException {
+            int read = await(cast(pending));
+            if (read >= 0 && buffer.hasRemaining()) {
+                read(M.channel, buffer, M.position(i, j) + buffer.position());
+            } else if (read < 0) {
+                while (buffer.hasRemaining()) {
+                    buffer.put((byte) 0);
+                }
+            }
+            buffer.flip();
+            buffer.asDoubleBuffer().get(tile);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Future<Integer> cast(Future<?> future) {
+            return (Future<Integer>) future;
+        }
+
+        void run() throws IOException {
+            double[] a = new double[tile * tile];
+            double[] b = new double[tile * tile];
+            double[] c = new double[tile * tile];
+            for (int step = 0; step < aBuffers.length; step++) {
+                prefetch(step);
+            }
+            for (int step = 0; step < steps; step++) {
+                int k = step % tilesK;
+                int j = step / tilesK % B.tileCols();
+                int i = step / tilesK / B.tileCols();
+                int slot = step % aBuffers.length;
+                complete(A, aReads[slot], aBuffers[slot], i, k, a);
+                complete(B, bReads[slot], bBuffers[slot], k, j, b);
+
+                /* The slot is free again, so refill it while we multiply. */
+                prefetch(step + aBuffers.length);
+
+                multiplyAdd(a, b, c, tile);
+                if (k == tilesK - 1) {
+                    C.writeTile(i, j, c);
+                    Arrays.fill(c, 0);
+                }
+            }
+        }
+
+        /**
+         * c += a * b for row-major (n x n) tiles.
+         */
+        private static void multiplyAdd(double[] a, double[] b, double[] c, int n) {
+            for (int i = 0; i < n; i++) {
+                int ci = i * n;
+                for (int k = 0; k < n; k++) {
+                    double aik = a[ci + k];
+                    int bk = k * n;
+                    for (int j = 0; j < n; j++) {
+                        c[ci + j] += aik * b[bk + j];
+                    }
+                }
+            }
+        }
+    }
+}
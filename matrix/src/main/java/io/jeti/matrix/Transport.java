@@ -0,0 +1,44 @@
+package io.jeti.matrix;
+
+import java.io.IOException;
+
+/**
+ * The service provider interface through which the nodes of a
+ * {@link DistributedMatrix} exchange blocks. A transport connects a fixed
+ * group of {@link #size()} nodes, numbered from 0, and each node holds its own
+ * endpoint. Messages are arrays of doubles, addressed by the destination rank
+ * and an integer tag.
+ * <p>
+ * Implementations must guarantee that
+ * <ul>
+ * <li>{@link #send} does not wait for the matching {@link #receive}, so that
+ * every node can send before it receives, and</li>
+ * <li>messages with the same source, destination, and tag are received in the
+ * order in which they were sent.</li>
+ * </ul>
+ * See {@link LoopbackTransport} for an in-process implementation.
+ */
+public interface Transport {
+
+    /**
+     * @return The rank of this node, in [0, size).
+     */
+    int rank();
+
+    /**
+     * @return The number of nodes.
+     */
+    int size();
+
+    /**
+     * Send {@code data[offset, offset + length)} to the specified node. The
+     * array may be reused as soon as this returns.
+     */
+    void send(int to, int tag, double[] data, int offset, int length) throws IOException;
+
+    /**
+     * @return The next message from the specified node with the specified
+     *         tag, waiting until it arrives.
+     */
+    double[] receive(int from, int tag) throws IOException;
+}
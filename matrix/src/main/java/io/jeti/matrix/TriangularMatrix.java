@@ -0,0 +1,214 @@
+package io.jeti.matrix;
+
+import io.jeti.linalg.matrix.utils.Check;
+import io.jeti.matrix.Gettable.Footprint;
+import io.jeti.matrix.Gettable.Gettable2;
+
+/**
+ * An immutable, square {@link Matrix} which is zero either above the main
+ * diagonal (lower triangular) or below it (upper triangular). The triangle is
+ * stored packed, row by row, so an (n x n) instance needs n(n+1)/2 doubles.
+ * Products with a {@link TriangularMatrix} only visit the triangle.
+ */
+public class TriangularMatrix extends Matrix {
+
+    /*
+     * --------------------------------------------------
+     *
+     * Private Fields
+     *
+     * --------------------------------------------------
+     */
+    private final Storage storage;
+
+    /*
+     * --------------------------------------------------
+     *
+     * Constructors
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * Create a (rows x rows) triangular matrix. The filler is only called for
+     * entries inside the triangle (including the diagonal).
+     *
+     * @param upper
+     *            {@code true} for an upper triangular matrix, {@code false}
+     *            for a lower triangular one.
+     */
+    public TriangularMatrix(int rows, boolean upper, Filler filler) {
+        this(Metrics.start(), fill(rows, upper, filler));
+    }
+
+    private TriangularMatrix(long start, Storage storage) {
+        super(start, storage, storage.rows, storage.rows);
+        this.storage = storage;
+    }
+
+    private static Storage fill(int rows, boolean upper, Filler filler) {
+        Check.positive(rows);
+        Storage storage = new Storage(rows, upper);
+        for (int r = 0; r < rows; r++) {
+            for (int c = storage.firstCol(r); c < storage.endCol(r); c++) {
+                storage.packed[storage.offset(r, c)] = filler.apply(r, c);
+            }
+        }
+        return storage;
+    }
+
+    /**
+     * @return The lower triangle (including the diagonal) of the specified
+     *         square matrix.
+     */
+    public static TriangularMatrix lower(final Matrix A) {
+        Check.zero(A.rows() - A.cols());
+        return new TriangularMatrix(A.rows(), false, A::get);
+    }
+
+    /**
+     * @return The upper triangle (including the diagonal) of the specified
+     *         square matrix.
+     */
+    public static TriangularMatrix upper(final Matrix A) {
+        Check.zero(A.rows() - A.cols());
+        return new TriangularMatrix(A.rows(), true, A::get);
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Getters
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * @return {@code true} if this matrix is upper triangular, {@code false}
+     *         if it is lower triangular.
+     */
+    public boolean isUpper() {
+        return storage.upper;
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Matrix/Matrix Operations
+     *
+     * --------------------------------------------------
+     */
+    @Override
+    public Matrix T() {
+        final Storage s = storage;
+        return new TriangularMatrix(rows(), !s.upper, (row, col) -> s.packed[s.offset(col, row)]);
+    }
+
+    /**
+     * Only the triangle of each row of this matrix contributes. The product of
+     * two upper (or two lower) triangular matrices is again upper (or lower)
+     * triangular.
+     */
+    @Override
+    Matrix multiply(final Matrix B) {
+        final Storage a = storage;
+        if (B instanceof TriangularMatrix && ((TriangularMatrix) B).storage.upper == a.upper) {
+            final Storage b = ((TriangularMatrix) B).storage;
+            return new TriangularMatrix(rows(), a.upper, (row, col) -> {
+                int from = Math.max(a.firstCol(row), b.firstRow(col));
+                int to = Math.min(a.endCol(row), b.endRow(col));
+                double sum = 0.0;
+                for (int i = from; i < to; i++) {
+                    sum += a.packed[a.offset(row, i)] * b.packed[b.offset(i, col)];
+                }
+                return sum;
+            });
+        }
+        return B.newInstance(rows(), B.cols(), (row, col) -> {
+            double sum = 0.0;
+            for (int i = a.firstCol(row); i < a.endCol(row); i++) {
+                sum += a.packed[a.offset(row, i)] * B.get(i, col);
+            }
+            return sum;
+        });
+    }
+
+    /**
+     * Only the triangle of each column of this matrix contributes.
+     */
+    @Override
+    Matrix premultiply(final Matrix A) {
+        final Storage b = storage;
+        return A.newInstance(A.rows(), cols(), (row, col) -> {
+            double sum = 0.0;
+            for (int i = b.firstRow(col); i < b.endRow(col); i++) {
+                sum += A.get(row, i) * b.packed[b.offset(i, col)];
+            }
+            return sum;
+        });
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Storage
+     *
+     * --------------------------------------------------
+     */
+    private static final class Storage implements Gettable2<Double>, Footprint {
+
+        private final int      rows;
+        private final boolean  upper;
+        private final double[] packed;
+
+        Storage(int rows, boolean upper) {
+            this.rows = rows;
+            this.upper = upper;
+            this.packed = new double[rows * (rows + 1) / 2];
+        }
+
+        /** @return The first column of the triangle in the specified row. */
+        int firstCol(int row) {
+            return upper ? row : 0;
+        }
+
+        /** @return One past the last column of the triangle in the row. */
+        int endCol(int row) {
+            return upper ? rows : row + 1;
+        }
+
+        /** @return The first row of the triangle in the specified column. */
+        int firstRow(int col) {
+            return upper ? 0 : col;
+        }
+
+        /** @return One past the last row of the triangle in the column. */
+        int endRow(int col) {
+            return upper ? col + 1 : rows;
+        }
+
+        /** @return The index into {@link #packed} of an entry in the triangle. */
+        int offset(int row, int col) {
+            if (upper) {
+                return row * rows - row * (row - 1) / 2 + col - row;
+            } else {
+                return row * (row + 1) / 2 + col;
+            }
+        }
+
+        @Override
+        public Double get(int row, int col) {
+            return (upper ? col >= row : col <= row) ? packed[offset(row, col)] : 0d;
+        }
+
+        @Override
+        public int size() {
+            return rows;
+        }
+
+        @Override
+        public long footprint() {
+            return packed.length;
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package io.jeti.matrix;
+
+import java.io.IOException;
+
+/**
+ * The parameters which decide how {@link Matrix#times} and
+ * {@link MutableMatrix#times} multiply, and the dispatcher which applies them.
+ * Products of dense operands (and of views with contiguous storage) use the
+ * first of these which applies:
+ * <ol>
+ * <li>Strassen-Winograd, if enabled, when every dimension is at least the
+ * {@linkplain #setStrassenThreshold Strassen threshold} and the operands are
+ * roughly square (immutable matrices only, since it is less accurate; see
+ * {@link Matrix#timesStrassen(Matrix)}).</li>
+ * <li>Rows split across the common fork-join pool, when the product takes at
+ * least the {@linkplain #setParallelThreshold parallel threshold} of
+ * multiply-adds.</li>
+ * <li>A loop over cache-sized {@linkplain #setBlockSize blocks} of the right
+ * operand, when it does not fit in one block.</li>
+ * <li>The plain i-k-j loop otherwise.</li>
+ * </ol>
+ * Other views, such as index views, go through their gather offsets instead.
+ * Except for Strassen-Winograd, every variant gives bitwise identical results.
+ * <p>
+ * The best parameters depend on the cache sizes and core count of the host.
+ * {@link #calibrate()} measures them with a few short benchmarks (a few
+ * seconds in all), and {@link TuningFile} saves them to a properties file and
+ * loads them back. When the system property {@value #PROPERTY} names such a
+ * file, it is loaded when this class is initialized, and if that fails, the
+ * defaults stay in place and {@link #getStartupFailure()} tells why.
+ * <p>
+ * The files are read through {@code java.nio.file} (Android API level 26), so
+ * this class only loads {@link TuningFile} when the property is set.
+ */
+public final class Tuning {
+
+    /**
+     * The system property naming the file which is loaded at startup.
+     */
+    public static final String PROPERTY                   = "io.jeti.matrix.tuning";
+
+    static final int           DEFAULT_BLOCK_SIZE         = 64;
+    static final long          DEFAULT_PARALLEL_THRESHOLD = 1L << 21;
+
+    /**
+     * The kernel variants chosen by {@link #select}.
+     */
+    enum Variant {
+        NAIVE, BLOCKED, PARALLEL, STRASSEN, GATHER
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Private Fields
+     *
+     * --------------------------------------------------
+     */
+    private static volatile int  blockSize;
+    private static volatile long parallelThreshold;
+    private static volatile int  strassenThreshold;
+
+    private static final IOException startupFailure;
+
+    static {
+        reset();
+        String path = System.getProperty(PROPERTY);
+        startupFailure = path == null ? null : TuningFile.loadStartup(path);
+    }
+
+    private Tuning() {
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Parameters
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * Restore the default parameters, which suit a typical desktop or phone
+     * core, and disable Strassen-Winograd.
+     */
+    public static synchronized void reset() {
+        blockSize = DEFAULT_BLOCK_SIZE;
+        parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+        strassenThreshold = 0;
+    }
+
+    /**
+     * Set the side of the square blocks of the right operand which the
+     * blocked kernel keeps in cache.
+     */
+    public static void setBlockSize(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("The block size must be positive, but was " + size);
+        }
+        blockSize = size;
+    }
+
+    public static int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Set the number of multiply-adds ({@code m * k * n}) from which products
+     * are split across threads. {@link Long#MAX_VALUE} keeps every product on
+     * the calling thread.
+     */
+    public static void setParallelThreshold(long multiplyAdds) {
+        if (multiplyAdds < 1) {
+            throw new IllegalArgumentException(
+                    "The parallel threshold must be positive, but was " + multiplyAdds);
+        }
+        parallelThreshold = multiplyAdds;
+    }
+
+    public static long getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    /**
+     * Set the smallest dimension from which immutable products use
+     * Strassen-Winograd, or 0 (the default) to never use it.
+     */
+    public static void setStrassenThreshold(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException(
+                    "The Strassen threshold must be nonnegative, but was " + size);
+        }
+        strassenThreshold = size;
+    }
+
+    public static int getStrassenThreshold() {
+        return strassenThreshold;
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Dispatch
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * @return The variant for an (m x k) by (k x n) product, where
+     *         {@code contiguous} tells whether both operands are stored
+     *         contiguously, and {@code strassen} whether Strassen-Winograd is
+     *         acceptable at all.
+     */
+    static Variant select(int m, int k, int n, boolean contiguous, boolean strassen) {
+        if (!contiguous) {
+            return Variant.GATHER;
+        }
+        int threshold = strassenThreshold;
+        if (strassen && threshold > 0) {
+            int min = Math.min(m, Math.min(k, n));
+            int max = Math.max(m, Math.max(k, n));
+            /*
+             * The depth of the recursion is set by the smallest dimension
+             * (see Strassen.levels), and every dimension is padded to a
+             * multiple of 2^levels on its own, which costs little. But a
+             * product with a long dimension gets few levels for its size, so
+             * it saves too little to make up for the lost accuracy.
+             */
+            if (min >= threshold && max <= 2 * min) {
+                return Variant.STRASSEN;
+            }
+        }
+        if (Parallel.AVAILABLE && m > 1 && (long) m * k * n >= parallelThreshold) {
+            return Variant.PARALLEL;
+        }
+        int block = blockSize;
+        return k > block || n > block ? Variant.BLOCKED : Variant.NAIVE;
+    }
+
+    /**
+     * c = a * b, where a is (m x k) and b is (k x n), both contiguous from the
+     * given offsets, and c is (m x n) from offset 0, with any variant except
+     * {@link Variant#STRASSEN} and {@link Variant#GATHER}.
+     */
+    static void gemm(double[] a, int ao, double[] b, int bo, double[] c, int m, int k, int n) {
+        gemm(select(m, k, n, true, false), blockSize, a, ao, b, bo, c, m, k, n);
+    }
+
+    private static void gemm(Variant variant, final int block, final double[] a, final int ao,
+            final double[] b, final int bo, final double[] c, final int m, final int k,
+            final int n) {
+        switch (variant) {
+            case NAIVE:
+                Kernels.gemmBlocked(a, ao, b, bo, c, 0, m, k, n, Math.max(k, n));
+                break;
+            case BLOCKED:
+                Kernels.gemmBlocked(a, ao, b, bo, c, 0, m, k, n, block);
+                break;
+            case PARALLEL:
+                int processors = Runtime.getRuntime().availableProcessors();
+                final int chunk = Math.max(1, m / (4 * processors));
+                Parallel.forEach((m + chunk - 1) / chunk, true, i -> {
+                    int from = i * chunk;
+                    int count = Math.min(m, from + chunk) - from;
+                    Kernels.gemmBlocked(a, ao + from * k, b, bo, c, from * n, count, k, n,
+                            k > block || n > block ? block : Math.max(k, n));
+                });
+                break;
+            default:
+                throw new IllegalArgumentException("Not a contiguous kernel: " + variant);
+        }
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Calibration
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * Benchmark this host and set the block size and parallel threshold which
+     * were fastest. Strassen-Winograd stays as it is. See
+     * {@link #calibrate(boolean)}.
+     */
+    public static void calibrate() {
+        calibrate(false);
+    }
+
+    /**
+     * Benchmark this host and set the parameters which were fastest: the
+     * block size on a (384 x 384) product, the parallel threshold as the
+     * smallest square product which ran at least 10% faster on all cores, and
+     * (only if {@code strassen} is {@code true}) the Strassen threshold as the
+     * smallest square product up to 512 which ran faster with
+     * Strassen-Winograd than without.
+     */
+    public static synchronized void calibrate(boolean strassen) {
+        /* The block size, on one core. */
+        int n = 384;
+        double[] a = Matrix.randn(n, n, 1).toArray();
+        double[] b = Matrix.randn(n, n, 2).toArray();
+        double[] c = new double[n * n];
+        int best = n;
+        long bestTime = time(Variant.NAIVE, n, a, b, c, n);
+        for (int block : new int[] { 16, 32, 48, 64, 96, 128, 192 }) {
+            long time = time(Variant.BLOCKED, block, a, b, c, n);
+            if (time < bestTime) {
+                best = block;
+                bestTime = time;
+            }
+        }
+        setBlockSize(best);
+
+        /* The parallel threshold. */
+        long threshold = Long.MAX_VALUE;
+        if (Parallel.AVAILABLE && Runtime.getRuntime().availableProcessors() > 1) {
+            for (int size : new int[] { 16, 24, 32, 48, 64, 96, 128, 192, 256, 384 }) {
+                Variant sequential = size > best ? Variant.BLOCKED : Variant.NAIVE;
+                long serial = time(sequential, best, a, b, c, size);
+                long parallel = time(Variant.PARALLEL, best, a, b, c, size);
+                if (parallel < 0.9 * serial) {
+                    threshold = (long) size * size * size;
+                    break;
+                }
+            }
+        }
+        setParallelThreshold(threshold);
+
+        if (strassen) {
+            int crossover = 0;
+            for (int size : new int[] { 128, 256, 512 }) {
+                Matrix A = Matrix.randn(size, size, 1);
+                Matrix B = Matrix.randn(size, size, 2);
+                long classical = time(() -> gemm(A.toArray(), 0, B.toArray(), 0,
+                        new double[size * size], size, size, size));
+                long fast = time(() -> Strassen.multiply(A, B, Strassen.DEFAULT_CROSSOVER));
+                if (fast < classical) {
+                    crossover = size;
+                    break;
+                }
+            }
+            setStrassenThreshold(crossover);
+        }
+    }
+
+    /**
+     * @return The fastest of several runs of an (n x n) product of the
+     *         leading blocks of a and b with the specified variant.
+     */
+    private static long time(final Variant variant, final int block, final double[] a,
+            final double[] b, final double[] c, final int n) {
+        return time(() -> gemm(variant, block, a, 0, b, 0, c, n, n, n));
+    }
+
+    /**
+     * @return The fastest of at least three runs (after one for warm-up)
+     *         which take at least 50 ms in all, in nanoseconds.
+     */
+    private static long time(Runnable benchmark) {
+        benchmark.run();
+        long best = Long.MAX_VALUE;
+        long total = 0;
+        for (int run = 0; run < 3 || total < 50_000_000L; run++) {
+            long start = System.nanoTime();
+            benchmark.run();
+            long elapsed = System.nanoTime() - start;
+            best = Math.min(best, elapsed);
+            total += elapsed;
+        }
+        return best;
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Persistence
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * @return Why the file named by the system property {@value #PROPERTY}
+     *         could not be loaded when this class was initialized (because it
+     *         does not exist, is malformed, or is from a host with a different
+     *         number of cores), or {@code null} if it was loaded or the
+     *         property is not set. After a failure, the defaults are in place.
+     */
+    public static IOException getStartupFailure() {
+        return startupFailure;
+    }
+}
@@ -0,0 +1,145 @@
+package io.jeti.matrix;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+/**
+ * Saves the {@link Tuning} parameters of a host to a properties file and loads
+ * them back, so that only the first run pays for {@link Tuning#calibrate()}. A
+ * typical startup is
+ *
+ * <pre>
+ * TuningFile.loadOrCalibrate(Paths.get("matrix-tuning.properties"));
+ * </pre>
+ *
+ * This class needs {@code java.nio.file}, that is, Java 7 or Android API
+ * level 26, while the rest of the core does not. {@link Tuning} only loads it
+ * when the system property {@value Tuning#PROPERTY} is set.
+ */
+public final class TuningFile {
+
+    /*
+     * --------------------------------------------------
+     *
+     * Private Fields
+     *
+     * --------------------------------------------------
+     */
+    private static final String KEY_PROCESSORS = "processors";
+    private static final String KEY_BLOCK      = "blockSize";
+    private static final String KEY_PARALLEL   = "parallelThreshold";
+    private static final String KEY_STRASSEN   = "strassenThreshold";
+
+    private TuningFile() {
+    }
+
+    /*
+     * --------------------------------------------------
+     *
+     * Persistence
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * Write the current parameters, and the core count of this host, to a
+     * properties file.
+     */
+    public static void save(Path file) throws IOException {
+        Properties properties = new Properties();
+        synchronized (Tuning.class) {
+            properties.setProperty(KEY_PROCESSORS,
+                    Integer.toString(Runtime.getRuntime().availableProcessors()));
+            properties.setProperty(KEY_BLOCK, Integer.toString(Tuning.getBlockSize()));
+            properties.setProperty(KEY_PARALLEL, Long.toString(Tuning.getParallelThreshold()));
+            properties.setProperty(KEY_STRASSEN, Integer.toString(Tuning.getStrassenThreshold()));
+        }
+        try (OutputStream out = Files.newOutputStream(file)) {
+            properties.store(out, "io.jeti.matrix kernel tuning");
+        }
+    }
+
+    /**
+     * Read the parameters from a file written by {@link #save}.
+     *
+     * @return {@code false}, leaving the parameters unchanged, if the file
+     *         does not exist or was calibrated on a host with a different
+     *         number of cores.
+     * @throws IOException
+     *             If the file cannot be read or is malformed.
+     */
+    public static boolean load(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        synchronized (Tuning.class) {
+            int previousBlock = Tuning.getBlockSize();
+            long previousParallel = Tuning.getParallelThreshold();
+            int previousStrassen = Tuning.getStrassenThreshold();
+            try {
+                int processors = Integer.parseInt(properties.getProperty(KEY_PROCESSORS));
+                if (processors != Runtime.getRuntime().availableProcessors()) {
+                    return false;
+                }
+                Tuning.setBlockSize(Integer.parseInt(properties.getProperty(KEY_BLOCK)));
+                Tuning.setParallelThreshold(Long.parseLong(properties.getProperty(KEY_PARALLEL)));
+                Tuning.setStrassenThreshold(
+                        Integer.parseInt(properties.getProperty(KEY_STRASSEN)));
+                return true;
+            } catch (IllegalArgumentException e) {
+                Tuning.setBlockSize(previousBlock);
+                Tuning.setParallelThreshold(previousParallel);
+                Tuning.setStrassenThreshold(previousStrassen);
+                throw new IOException("Malformed tuning file " + file, e);
+            }
+        }
+    }
+
+    /**
+     * {@link #load} the parameters from the file, or if that is not possible,
+     * {@link Tuning#calibrate()} this host and {@link #save} them to it.
+     */
+    public static void loadOrCalibrate(Path file) throws IOException {
+        synchronized (Tuning.class) {
+            if (!load(file)) {
+                Tuning.calibrate();
+                save(file);
+            }
+        }
+    }
+
+    /**
+     * {@link #load} the file at the path, for the initialization of
+     * {@link Tuning}.
+     *
+     * @return The failure, or {@code null} if there was none. A file which
+     *         {@link #load} skips, because it is from a host with a different
+     *         number of cores, is a failure too.
+     */
+    static IOException loadStartup(String path) {
+        try {
+            Path file = Paths.get(path);
+            if (!Files.exists(file)) {
+                throw new NoSuchFileException(path, null, "The tuning file does not exist");
+            }
+            if (!load(file)) {
+                return new IOException("The tuning file " + path
+                        + " was calibrated on a host with a different number of cores");
+            }
+            return null;
+        } catch (IOException e) {
+            return e;
+        } catch (RuntimeException e) {
+            return new IOException("Cannot load the tuning file " + path, e);
+        }
+    }
+}
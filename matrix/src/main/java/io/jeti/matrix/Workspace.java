@@ -0,0 +1,112 @@
+package io.jeti.matrix;
+
+import java.util.ArrayList;
+
+/**
+ * Preallocated result objects for loops which must not allocate, such as the
+ * per-frame updates of an Android app, where every collection can drop a
+ * frame. A workspace hands out dense {@link MutableMatrix} and
+ * {@link MutableVector} instances, which are then filled by the
+ * allocation-free operations ({@code setProduct}, {@code setTo},
+ * {@code plusInPlace}, {@code scaleInPlace}, and so on):
+ *
+ * <pre>
+ * Workspace workspace = new Workspace();
+ * while (running) {
+ *     workspace.reset();
+ *     MutableMatrix AB = workspace.matrix(4, 4).setProduct(A, B);
+ *     MutableVector y = workspace.vector(4).setProduct(AB, x).plusInPlace(b);
+ *     ...
+ * }
+ * </pre>
+ *
+ * Requests are matched by their order since the last {@link #reset()}: the
+ * i-th matrix requested in a frame is the i-th matrix of the previous frame,
+ * as long as it has the same shape. A loop which makes the same requests every
+ * frame therefore only allocates during its first frame. Everything handed
+ * out is reused after the next reset, so results which must outlive the frame
+ * should be copied out.
+ * <p>
+ * Unlike an {@link Arena}, a workspace is not tied to a scope or to the
+ * allocating constructors, and its objects do not come from (or go back to)
+ * the arena pools. Like an arena, it is not thread-safe, so each thread needs
+ * its own.
+ */
+public final class Workspace {
+
+    /*
+     * --------------------------------------------------
+     *
+     * Private Fields
+     *
+     * --------------------------------------------------
+     */
+    private final ArrayList<MutableMatrix> matrices = new ArrayList<>();
+    private final ArrayList<MutableVector> vectors  = new ArrayList<>();
+    private int                            nextMatrix;
+    private int                            nextVector;
+
+    /*
+     * --------------------------------------------------
+     *
+     * Requests
+     *
+     * --------------------------------------------------
+     */
+
+    /**
+     * @return A dense matrix of the specified shape, whose elements are left
+     *         over from the previous frame.
+     */
+    public MutableMatrix matrix(int rows, int cols) {
+        int index = nextMatrix++;
+        if (index < matrices.size()) {
+            MutableMatrix matrix = matrices.get(index);
+            if (matrix.rows() == rows && matrix.cols() == cols) {
+                return matrix;
+            }
+            matrix = MutableMatrix.wrap(rows, cols, new double[rows * cols]);
+            matrices.set(index, matrix);
+            return matrix;
+        }
+        MutableMatrix matrix = MutableMatrix.wrap(rows, cols, new double[rows * cols]);
+        matrices.add(matrix);
+        return matrix;
+    }
+
+    /**
+     * @return A dense vector of the specified size, whose elements are left
+     *         over from the previous frame.
+     */
+    public MutableVector vector(int elems) {
+        int index = nextVector++;
+        if (index < vectors.size()) {
+            MutableVector vector = vectors.get(index);
+            if (vector.size() == elems) {
+                return vector;
+            }
+            vector = MutableVector.wrap(new double[elems]);
+            vectors.set(index, vector);
+            return vector;
+        }
+        MutableVector vector = MutableVector.wrap(new double[elems]);
+        vectors.add(vector);
+        return vector;
+    }
+
+    /**
+     * Start a new frame. Everything handed out so far will be handed out
+     * again.
+     */
+    public void reset() {
+        nextMatrix = 0;
+        nextVector = 0;
+    }
+
+    /**
+     * @return The number of matrices and vectors that this workspace holds.
+     */
+    public int size() {
+        return matrices.size() + vectors.size();
+    }
+}
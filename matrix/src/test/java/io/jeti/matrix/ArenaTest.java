@@ -0,0 +1,116 @@
+package io.jeti.matrix;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+public class ArenaTest {
+
+    @Test
+    public void recycles() throws Exception {
+        double[] first;
+        try (Arena arena = Arena.open()) {
+            first = Matrix.ones(3, 3).buffer();
+        }
+        try (Arena arena = Arena.open()) {
+            assertSame(first, Matrix.zeros(3, 3).buffer());
+            assertNotSame(first, Matrix.zeros(3, 3).buffer());
+        }
+        assertNotSame(first, Matrix.zeros(3, 3).buffer());
+    }
+
+    @Test
+    public void keep() throws Exception {
+        Matrix kept;
+        try (Arena outer = Arena.open()) {
+            try (Arena inner = Arena.open()) {
+                kept = outer.keep(Matrix.ones(2, 2).times(Matrix.ones(2, 2)));
+            }
+            try (Arena inner = Arena.open()) {
+                assertNotSame(kept.buffer(), Matrix.zeros(2, 2).buffer());
+            }
+        }
+        assertEquals(2d, kept.get(1, 1), 0);
+        Vector v;
+        try (Arena arena = Arena.open()) {
+            v = arena.keep(new Vector(4, 3));
+        }
+        assertNotSame(v.buffer(), new Vector(4).buffer());
+        assertEquals(3d, v.get(3), 0);
+    }
+
+    @Test
+    public void debug() throws Exception {
+        Arena.setDebug(true);
+        try {
+            Matrix dangling;
+            Matrix kept;
+            Vector vector;
+            try (Arena arena = Arena.open()) {
+                dangling = Matrix.ones(2, 2);
+                kept = arena.keep(Matrix.ones(2, 2).times(2d));
+                vector = new Vector(3, 1d);
+            }
+            assertEquals(2d, kept.get(1, 1), 0);
+            try {
+                dangling.get(0, 0);
+                fail("A recycled matrix was read.");
+            } catch (IllegalStateException expected) {
+            }
+            try {
+                dangling.selectRows(new int[] { 1 }).times(kept);
+                fail("A view of a recycled matrix was read.");
+            } catch (IllegalStateException expected) {
+            }
+            try {
+                vector.get(0);
+                fail("A recycled vector was read.");
+            } catch (IllegalStateException expected) {
+            }
+
+            /* The new owner of a recycled array can still read it. */
+            try (Arena arena = Arena.open()) {
+                Matrix reused = Matrix.zeros(2, 2);
+                assertEquals(0d, reused.get(1, 1), 0);
+            }
+        } finally {
+            Arena.setDebug(false);
+        }
+    }
+
+    @Test
+    public void debugTensors() throws Exception {
+        Arena.setDebug(true);
+        try {
+            Tensor dangling;
+            MutableTensor view;
+            Tensor kept;
+            try (Arena arena = Arena.open()) {
+                dangling = Tensor.ones(2, 3);
+                view = MutableTensor.zeros(2, 3).slice(0, 1);
+                kept = arena.keep(Tensor.ones(2, 3).map(x -> 2 * x));
+            }
+            assertEquals(2d, kept.get(1, 2), 0);
+            try {
+                dangling.get(0, 0);
+                fail("A recycled tensor was read.");
+            } catch (IllegalStateException expected) {
+            }
+            try {
+                dangling.plus(kept);
+                fail("A recycled tensor was read.");
+            } catch (IllegalStateException expected) {
+            }
+            try {
+                view.fill(1);
+                fail("A view of a recycled tensor was written.");
+            } catch (IllegalStateException expected) {
+            }
+        } finally {
+            Arena.setDebug(false);
+        }
+    }
+}
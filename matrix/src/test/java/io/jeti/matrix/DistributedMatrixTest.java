@@ -0,0 +1,93 @@
+package io.jeti.matrix;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class DistributedMatrixTest {
+
+    @Test
+    public void summa() throws Exception {
+        final Matrix A = Matrix.randn(300, 270, 1);
+        final Matrix B = Matrix.randn(270, 13, 2);
+        Matrix expected = A.times(B);
+        double sum = 0;
+        double squares = 0;
+        for (int r = 0; r < expected.rows(); r++) {
+            for (int c = 0; c < expected.cols(); c++) {
+                sum += expected.get(r, c);
+                squares += expected.get(r, c) * expected.get(r, c);
+            }
+        }
+
+        final int gridRows = 2;
+        final int gridCols = 3;
+        LoopbackTransport[] transports = LoopbackTransport.create(gridRows * gridCols);
+        ExecutorService executor = Executors.newFixedThreadPool(transports.length);
+        try {
+            List<Future<double[]>> results = new ArrayList<>();
+            for (final LoopbackTransport transport : transports) {
+                results.add(executor.submit(new Callable<double[]>() {
+                    @Override
+                    public double[] call() throws Exception {
+                        DistributedMatrix a = DistributedMatrix.partition(transport, A, gridRows,
+                                gridCols);
+                        DistributedMatrix b = DistributedMatrix.partition(transport, B, gridRows,
+                                gridCols);
+                        DistributedMatrix c = a.times(b);
+                        double[] full = c.gather().toArray();
+                        double[] result = new double[full.length + 2];
+                        System.arraycopy(full, 0, result, 0, full.length);
+                        result[full.length] = c.sum();
+                        result[full.length + 1] = c.norm();
+                        return result;
+                    }
+                }));
+            }
+            for (Future<double[]> future : results) {
+                double[] result = future.get();
+                int n = expected.size();
+                for (int i = 0; i < n; i++) {
+                    assertEquals(expected.get(i / 13, i % 13), result[i], 1e-10);
+                }
+                assertEquals(sum, result[n], 1e-8);
+                assertEquals(Math.sqrt(squares), result[n + 1], 1e-8);
+            }
+            /* Every message was received, so no queue is left behind. */
+            assertEquals(0, transports[0].queues());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void receiveTimesOut() throws Exception {
+        LoopbackTransport[] transports = LoopbackTransport.create(2, 10, TimeUnit.MILLISECONDS);
+        transports[0].send(1, 7, new double[] { 1, 2 }, 1, 1);
+        assertEquals(2d, transports[1].receive(0, 7)[0], 0);
+        try {
+            transports[1].receive(0, 7);
+            fail("The receive should time out.");
+        } catch (IOException expected) {
+        }
+        assertEquals(0, transports[1].queues());
+    }
+
+    @Test
+    public void bounds() throws Exception {
+        int[] bounds = DistributedMatrix.bounds(10, 3);
+        assertEquals(0, bounds[0]);
+        assertEquals(3, bounds[1]);
+        assertEquals(6, bounds[2]);
+        assertEquals(10, bounds[3]);
+    }
+}
@@ -0,0 +1,57 @@
+package io.jeti.matrix;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class MatrixFunctionsTest {
+
+    private static void assertClose(Matrix expected, Matrix actual, double tol) {
+        for (int r = 0; r < expected.rows(); r++) {
+            for (int c = 0; c < expected.cols(); c++) {
+                assertEquals(expected.get(r, c), actual.get(r, c), tol);
+            }
+        }
+    }
+
+    @Test
+    public void expmRotation() throws Exception {
+        /* exp([0 -t; t 0]) is a rotation by t, for every Pade degree. */
+        for (double t : new double[] { 1e-3, 0.1, 0.8, 2, 5, 40 }) {
+            Matrix E = new Matrix(new double[][] { { 0, -t }, { t, 0 } }).expm();
+            Matrix R = new Matrix(new double[][] { { Math.cos(t), -Math.sin(t) },
+                    { Math.sin(t), Math.cos(t) } });
+            assertClose(R, E, 1e-12);
+        }
+    }
+
+    @Test
+    public void expmDiagonal() throws Exception {
+        Matrix E = new Matrix(new double[][] { { 1, 0, 0 }, { 0, -2, 0 }, { 0, 0, 3 } }).expm();
+        assertEquals(Math.E, E.get(0, 0), 1e-14);
+        assertEquals(Math.exp(-2), E.get(1, 1), 1e-14);
+        assertEquals(Math.exp(3), E.get(2, 2), 1e-12);
+    }
+
+    @Test
+    public void expmLarge() throws Exception {
+        /* Too large for the thread-local scratch. */
+        int n = 240;
+        Matrix E = new Matrix(n, n, (row, col) -> row == col ? 1e-2 * row : 0d).expm();
+        assertEquals(Math.exp(1e-2 * (n - 1)), E.get(n - 1, n - 1), 1e-12);
+        assertEquals(0, E.get(0, n - 1), 0);
+    }
+
+    @Test
+    public void sqrtmAndLogm() throws Exception {
+        Matrix R = Matrix.randn(5, 5, 3);
+        Matrix A = new Matrix(5, 5, (row, col) -> R.T().times(R).get(row, col)
+                + (row == col ? 5 : 0));
+        Matrix S = A.sqrtm();
+        assertClose(A, S.times(S), 1e-10);
+        Matrix L = A.logm();
+        assertClose(A, L.expm(), 1e-9);
+        Matrix B = new Matrix(new double[][] { { 0.5, 0.2 }, { -0.1, 0.3 } });
+        assertClose(B, B.expm().logm(), 1e-12);
+    }
+}
@@ -2,6 +2,8 @@ package io.jeti.matrix;
 
 import io.jeti.linalg.matrix.Mat;
 import io.jeti.linalg.matrix.utils.tests.MatTest;
+import java.nio.DoubleBuffer;
+import org.junit.Assert;
 
 public class MatrixTest extends MatTest {
 
@@ -14,4 +16,165 @@ public class MatrixTest extends MatTest {
     public void asd() throws Exception {
         newInstance();
     }
-}
\ No newline at end of file
+
+    @org.junit.Test
+    public void bulk() throws Exception {
+        double[] data = { 1, 2, 3, 4, 5, 6 };
+        Matrix A = new Matrix(2, 3, data);
+        data[0] = 10;
+        Assert.assertEquals(1d, A.get(0, 0), 0);
+        Assert.assertEquals(6d, A.get(1, 2), 0);
+        Assert.assertEquals(10d, Matrix.wrap(2, 3, data).get(0, 0), 0);
+        Assert.assertEquals(5d, new Matrix(new double[][] { { 1, 2 }, { 4, 5 } }).get(1, 1), 0);
+        Assert.assertEquals(3d, new Matrix(3, 1, DoubleBuffer.wrap(data, 1, 5)).get(1, 0), 0);
+        Assert.assertEquals(4d, new Matrix(2, 2, new float[] { 1, 2, 3, 4 }).get(1, 1), 0);
+        Assert.assertArrayEquals(new double[] { 1, 2, 3, 4, 5, 6 }, A.toArray(), 0);
+        double[] dest = new double[8];
+        A.copyInto(dest, 2);
+        Assert.assertEquals(6d, dest[7], 0);
+    }
+
+    @org.junit.Test
+    public void bulkChecksTheShape() throws Exception {
+        try {
+            new Matrix(2, 2, new float[] { 1, 2, 3 });
+            Assert.fail("A short float array was read past its end.");
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage().contains("needs 4 elements, but there were 3"));
+        }
+        try {
+            new MutableMatrix(2, 3, new double[8], 3);
+            Assert.fail("An array was read past its end.");
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage().contains("needs 6 elements, but there were 5"));
+        }
+        try {
+            new Matrix(new double[0][]);
+            Assert.fail("An empty array was copied.");
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage().contains("at least one row"));
+        }
+        try {
+            new MutableMatrix(new double[][] { { 1, 2 }, { 3 } });
+            Assert.fail("A ragged array was copied.");
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage().contains("Row 1 has 1 elements"));
+        }
+    }
+
+    @org.junit.Test
+    public void stridedCopy() throws Exception {
+        Matrix A = new Matrix(8, 9, (row, col) -> 10 * row + col);
+        Matrix view = A.get(1, 7, 2, 0, 8, 2).get(1, 2, 1, 1, 3, 1);
+        double[] expected = new double[view.size()];
+        for (int r = 0; r < view.rows(); r++) {
+            for (int c = 0; c < view.cols(); c++) {
+                expected[r * view.cols() + c] = view.get(r, c);
+            }
+        }
+        Assert.assertArrayEquals(expected, view.toArray(), 0);
+    }
+
+    @org.junit.Test
+    public void elementwise() throws Exception {
+        Matrix A = new Matrix(300, 200, (row, col) -> row - col);
+        Matrix B = Matrix.ones(300, 200);
+        Matrix C = A.zipWith(B, A, (a, b, c) -> a * b + c);
+        Assert.assertEquals(2d * (7 - 3), C.get(7, 3), 0);
+        Assert.assertEquals(4d, A.map(x -> -x).get(3, 7), 0);
+        Matrix view = A.get(1, 7, 2, 0, 8, 2);
+        Assert.assertEquals(view.get(1, 2) + 1, view.zipWith(view, (a, b) -> a + 1).get(1, 2), 0);
+
+        MutableMatrix M = new MutableMatrix(4, 5, (row, col) -> row * col);
+        MutableMatrix strided = M.get(0, 2, 2, 1, 3, 2);
+        strided.mapInPlace(x -> x + 100);
+        Assert.assertEquals(100d, M.get(0, 1), 0);
+        Assert.assertEquals(1d, M.get(1, 1), 0);
+        Assert.assertEquals(0d, M.get(0, 2), 0);
+        M.zipWithInPlace(MutableMatrix.ones(4, 5), (a, b) -> a - b);
+        Assert.assertEquals(3d * 4 - 1, M.get(3, 4), 0);
+    }
+
+    @org.junit.Test
+    public void indexViews() throws Exception {
+        Matrix A = new Matrix(6, 5, (row, col) -> 10 * row + col);
+        int[] permutation = { 5, 0, 3, 1, 4, 2 };
+        Matrix P = A.selectRows(permutation);
+        Assert.assertEquals(51d, P.get(0, 1), 0);
+        Assert.assertEquals(24d, P.get(5, 4), 0);
+        Matrix masked = A.selectCols(new boolean[] { true, false, false, true, false });
+        Assert.assertEquals(2, masked.cols());
+        Assert.assertEquals(43d, masked.get(4, 1), 0);
+
+        /* Index views compose with each other and with the stride views. */
+        Matrix both = P.selectCols(new int[] { 4, 0 });
+        Assert.assertEquals(4d, both.get(1, 0), 0);
+        Matrix strided = P.get(0, 3, 2, 0, 3, 2);
+        Assert.assertEquals(32d, strided.get(1, 1), 0);
+        Assert.assertEquals(20d, A.get(0, 3, 2, 0, 3, 2).selectRows(new int[] { 1 }).get(0, 0),
+                0);
+        for (Matrix view : new Matrix[] { P, masked, both, strided }) {
+            double[] expected = new double[view.size()];
+            for (int r = 0; r < view.rows(); r++) {
+                for (int c = 0; c < view.cols(); c++) {
+                    expected[r * view.cols() + c] = view.get(r, c);
+                }
+            }
+            Assert.assertArrayEquals(expected, view.toArray(), 0);
+        }
+
+        /* A mini-batch goes straight into the product. */
+        Matrix W = new Matrix(5, 3, (row, col) -> row - 2 * col);
+        Matrix batch = A.selectRows(new int[] { 4, 4, 1 });
+        Matrix product = batch.times(W.selectCols(new int[] { 2, 0 }));
+        for (int r = 0; r < 3; r++) {
+            for (int c = 0; c < 2; c++) {
+                double sum = 0;
+                for (int i = 0; i < 5; i++) {
+                    sum += batch.get(r, i) * W.get(i, c == 0 ? 2 : 0);
+                }
+                Assert.assertEquals(sum, product.get(r, c), 0);
+            }
+        }
+
+        MutableMatrix M = new MutableMatrix(3, 3, (row, col) -> row);
+        MutableMatrix rows = M.selectRows(new int[] { 2, 0 });
+        rows.mapInPlace(x -> x + 10);
+        rows.set(1, 2, -1);
+        Assert.assertEquals(12d, M.get(2, 0), 0);
+        Assert.assertEquals(1d, M.get(1, 0), 0);
+        Assert.assertEquals(-1d, M.get(0, 2), 0);
+        Assert.assertEquals(12d * 3, rows.times(MutableMatrix.ones(3, 1)).get(0, 0), 0);
+    }
+
+    @org.junit.Test
+    public void equality() throws Exception {
+        double[] data = { 1, 2, 3, 4, 5, 6 };
+        Matrix A = Matrix.wrap(2, 3, data);
+        MutableMatrix B = new MutableMatrix(2, 3, data);
+        Assert.assertTrue(A.equals(B) && B.equals(A));
+        Assert.assertEquals(A.hashCode(), B.hashCode());
+        Assert.assertNotEquals(A, Matrix.wrap(3, 2, data));
+
+        /* A column view against a dense copy of it. */
+        Matrix column = A.selectCols(new int[] { 1 });
+        Matrix copy = Matrix.wrap(2, 1, new double[] { 2, 5 });
+        Assert.assertEquals(copy, column);
+        Assert.assertEquals(copy.hashCode(), column.hashCode());
+
+        Matrix near = Matrix.wrap(2, 3, new double[] { 1, 2, 3, 4, 5, 6 + 1e-9 });
+        Assert.assertNotEquals(A, near);
+        Assert.assertTrue(A.approxEquals(near, 1e-8, 0));
+        Assert.assertTrue(A.approxEquals(near, 0, 1e-9));
+        Assert.assertFalse(A.approxEquals(near, 1e-10, 1e-11));
+        Assert.assertTrue(Matrix.wrap(1, 1, new double[] { Double.NaN })
+                .equals(Matrix.wrap(1, 1, new double[] { Double.NaN })));
+
+        /* Wrapped arrays may change, so their hash codes are not cached. */
+        int before = A.hashCode();
+        data[5] = 6 + 1e-9;
+        Assert.assertNotEquals(before, A.hashCode());
+        Assert.assertEquals(near.hashCode(), A.hashCode());
+        Assert.assertEquals(near, A);
+    }
+}
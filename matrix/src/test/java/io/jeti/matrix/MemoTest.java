@@ -0,0 +1,126 @@
+package io.jeti.matrix;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class MemoTest {
+
+    @Test
+    public void disabledByDefault() throws Exception {
+        Memo.clear();
+        Matrix A = Matrix.randn(4, 4, 1);
+        assertFalse(Memo.isEnabled());
+        assertNotSame(A.lu(), A.lu());
+        assertEquals(0, Memo.getHits() + Memo.getMisses());
+    }
+
+    @Test
+    public void norms() throws Exception {
+        Matrix A = Matrix.wrap(2, 3, new double[] { 1, -2, 3, -4, 5, -6 });
+        assertEquals(9, A.norm1(), 0);
+        assertEquals(15, A.normInf(), 0);
+        assertEquals(Math.sqrt(91), A.normFrobenius(), 0);
+
+        /* An index view is gathered into a primitive array first. */
+        Matrix B = A.select(new int[] { 1 }, new int[] { 2, 0 });
+        assertEquals(6, B.norm1(), 0);
+        assertEquals(10, B.normInf(), 0);
+        assertEquals(Math.sqrt(52), B.normFrobenius(), 0);
+    }
+
+    @Test
+    public void hitsAndEviction() throws Exception {
+        Memo.clear();
+        Memo.setCapacity(40);
+        try {
+            Matrix A = Matrix.randn(4, 4, 1);
+            Matrix B = Matrix.randn(4, 4, 2);
+            LU lu = A.lu();
+            assertSame(lu, A.lu());
+            assertNotSame(lu, B.lu());
+            assertEquals(1, Memo.getHits());
+            assertEquals(2, Memo.getMisses());
+            assertEquals(32, Memo.getRetained());
+
+            /* The product pushes out the least recently used entry, A.lu(). */
+            Matrix product = A.times(B);
+            assertSame(product, A.times(B));
+            assertEquals(32, Memo.getRetained());
+            assertNotSame(lu, A.lu());
+        } finally {
+            Memo.setCapacity(0);
+            Memo.clear();
+        }
+    }
+
+    @Test
+    public void arenaResultsAreNotCached() throws Exception {
+        Memo.clear();
+        Memo.setCapacity(1000);
+        try {
+            Matrix A = Matrix.randn(4, 4, 1);
+            try (Arena arena = Arena.open()) {
+                assertNotSame(A.inverse(), A.inverse());
+            }
+            assertEquals(0, Memo.getRetained());
+        } finally {
+            Memo.setCapacity(0);
+            Memo.clear();
+        }
+    }
+
+    @Test
+    public void wrappedMatricesAreNotCached() throws Exception {
+        Memo.clear();
+        Memo.setCapacity(1000);
+        try {
+            double[] data = { 3, 0, 0, 4 };
+            Matrix A = Matrix.wrap(2, 2, data);
+            assertEquals(5, A.normFrobenius(), 0);
+            data[0] = 0;
+            assertEquals(4, A.normFrobenius(), 0);
+            assertEquals(0, Memo.getRetained());
+        } finally {
+            Memo.setCapacity(0);
+            Memo.clear();
+        }
+    }
+
+    @Test
+    public void lu() throws Exception {
+        Matrix A = Matrix.wrap(3, 3, new double[] { 0, 2, 1, 1, 1, 1, 4, 3, 2 });
+        LU lu = A.lu();
+        assertEquals(3, lu.determinant(), 1e-12);
+        Vector x = lu.solve(Vector.wrap(new double[] { 5, 5, 13 }));
+        assertEquals(1, x.get(0), 1e-12);
+        assertEquals(1, x.get(1), 1e-12);
+        assertEquals(3, x.get(2), 1e-12);
+        Matrix identity = A.times(A.inverse());
+        for (int r = 0; r < 3; r++) {
+            for (int c = 0; c < 3; c++) {
+                assertEquals(r == c ? 1 : 0, identity.get(r, c), 1e-12);
+            }
+        }
+        assertTrue(Matrix.wrap(2, 2, new double[] { 1, 2, 2, 4 }).lu().isSingular());
+    }
+
+    @Test
+    public void transposeTimes() throws Exception {
+        Matrix A = Matrix.randn(7, 3, 1);
+        Matrix B = Matrix.randn(7, 5, 2);
+        Matrix expected = A.T().times(B);
+        Matrix actual = A.transposeTimes(B);
+        for (int r = 0; r < 3; r++) {
+            for (int c = 0; c < 5; c++) {
+                assertEquals(expected.get(r, c), actual.get(r, c), 1e-12);
+            }
+        }
+        Matrix column = A.selectCols(new int[] { 1 });
+        assertEquals(expected.get(1, 2), column.transposeTimes(B).get(0, 2), 1e-12);
+    }
+}
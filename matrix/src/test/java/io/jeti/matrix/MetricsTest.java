@@ -0,0 +1,136 @@
+package io.jeti.matrix;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.jeti.matrix.Metrics.Operation;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.junit.Test;
+
+public class MetricsTest {
+
+    /**
+     * Counts the operations and the elements they allocated, per kind.
+     */
+    private static final class Counter implements Metrics.Listener {
+
+        final AtomicLongArray counts   = new AtomicLongArray(Operation.values().length);
+        final AtomicLongArray elements = new AtomicLongArray(Operation.values().length);
+
+        @Override
+        public void onOperation(Operation operation, Class<?> type, int rows, int cols,
+                long elements, long nanos) {
+            this.counts.incrementAndGet(operation.ordinal());
+            this.elements.addAndGet(operation.ordinal(), elements);
+        }
+
+        long count(Operation operation) {
+            return counts.get(operation.ordinal());
+        }
+
+        long elements(Operation operation) {
+            return elements.get(operation.ordinal());
+        }
+    }
+
+    @Test
+    public void listener() throws Exception {
+        Counter counter = new Counter();
+        Metrics.addListener(counter);
+        try {
+            assertTrue(Metrics.isEnabled());
+            Matrix A = Matrix.ones(3, 4);
+            Matrix B = Matrix.ones(4, 5);
+            A.times(B);
+            new Vector(7);
+            assertEquals(1, counter.count(Operation.TIMES));
+            assertEquals(4, counter.count(Operation.CONSTRUCT));
+            assertEquals(12 + 20 + 15 + 7, counter.elements(Operation.CONSTRUCT));
+        } finally {
+            Metrics.removeListener(counter);
+        }
+        assertFalse(Metrics.isEnabled());
+        Matrix.ones(2, 2);
+        assertEquals(4, counter.count(Operation.CONSTRUCT));
+    }
+
+    @Test
+    public void arithmetic() throws Exception {
+        Counter counter = new Counter();
+        Metrics.addListener(counter);
+        try {
+            MutableMatrix A = MutableMatrix.ones(2, 3);
+            A.map(x -> 2 * x);
+            A.zipWith(A, (x, y) -> x + y);
+            new Vector(3, 1d).map(x -> -x);
+            Tensor.ones(2, 2).zipWith(Tensor.ones(2), (x, y) -> x * y);
+            assertEquals(4, counter.count(Operation.ELEMENTWISE));
+
+            A.mapInPlace(x -> x + 1).plusInPlace(A).minusInPlace(A).scaleInPlace(2).setTo(A);
+            new MutableVector(3, 1d).scaleInPlace(2);
+            MutableTensor.zeros(2, 2).fill(1);
+            assertEquals(7, counter.count(Operation.IN_PLACE));
+            assertEquals(0, counter.elements(Operation.IN_PLACE));
+
+            new MutableVector(2).setProduct(A, new MutableVector(3, 1d));
+            assertEquals(1, counter.count(Operation.TIMES));
+        } finally {
+            Metrics.removeListener(counter);
+        }
+    }
+
+    @Test
+    public void productsAreNotCountedTwice() throws Exception {
+        Matrix A = Matrix.randn(150, 150, 1);
+        MutableMatrix B = MutableMatrix.randn(150, 150, 2);
+        int[] reversed = new int[150];
+        for (int i = 0; i < reversed.length; i++) {
+            reversed[i] = reversed.length - 1 - i;
+        }
+        final long[] nanos = new long[Operation.values().length];
+        Metrics.Listener listener = (operation, type, rows, cols, elements, time) -> {
+            nanos[operation.ordinal()] += time;
+        };
+        Metrics.addListener(listener);
+        try {
+            A.transposeTimes(A);
+            A.times(A.selectRows(reversed));
+            B.times(B);
+        } finally {
+            Metrics.removeListener(listener);
+        }
+        /* Adopting the products takes far less time than computing them. */
+        assertTrue(nanos[Operation.CONSTRUCT.ordinal()] < nanos[Operation.TIMES.ordinal()] / 2);
+    }
+
+    @Test
+    public void footprint() throws Exception {
+        Counter counter = new Counter();
+        Metrics.addListener(counter);
+        try {
+            /* Structured matrices count their packed storage, views nothing. */
+            Matrix eye = Matrix.eye(100);
+            new SymmetricPackedMatrix(4, (row, col) -> 1d);
+            Matrix.wrap(2, 3, new double[6]);
+            eye.selectRows(new int[] { 1, 2 });
+            assertEquals(3, counter.count(Operation.CONSTRUCT));
+            assertEquals(100 + 10, counter.elements(Operation.CONSTRUCT));
+
+            /* The product is reported with its own class. */
+            Metrics.Listener types = (operation, type, rows, cols, elements, nanos) -> {
+                if (operation == Operation.TIMES) {
+                    assertEquals(Matrix.class, type);
+                }
+            };
+            Metrics.addListener(types);
+            try {
+                eye.times(Matrix.ones(100, 2));
+            } finally {
+                Metrics.removeListener(types);
+            }
+        } finally {
+            Metrics.removeListener(counter);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package io.jeti.matrix;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class OnlineStatisticsTest {
+
+    private static final double TOL = 1e-10;
+
+    @Test
+    public void matchesBatch() throws Exception {
+        Matrix X = Matrix.randn(20, 3).times(5);
+        OnlineStatistics stats = new OnlineStatistics(3);
+        stats.add(new Matrix(7, 3, (row, col) -> X.get(row, col)));
+        stats.add(new Vector(3, index -> X.get(7, index)));
+        stats.add(new Matrix(12, 3, (row, col) -> X.get(8 + row, col)));
+        assertEquals(20, stats.count());
+
+        Matrix gram = X.T().times(X);
+        for (int c = 0; c < 3; c++) {
+            double mean = 0;
+            for (int r = 0; r < 20; r++) {
+                mean += X.get(r, c) / 20;
+            }
+            assertEquals(mean, stats.mean().get(c), TOL);
+        }
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                double cov = 0;
+                for (int r = 0; r < 20; r++) {
+                    cov += (X.get(r, i) - stats.mean().get(i))
+                            * (X.get(r, j) - stats.mean().get(j));
+                }
+                assertEquals(cov / 19, stats.covariance().get(i, j), TOL);
+                assertEquals(gram.get(i, j), stats.gram().get(i, j), TOL);
+            }
+        }
+    }
+
+    @Test
+    public void propagatesNaN() throws Exception {
+        /* 0 * Inf is NaN, so zeros must not be skipped. */
+        OnlineStatistics stats = new OnlineStatistics(2);
+        stats.add(new Vector(new double[] { Double.POSITIVE_INFINITY, 0 }));
+        assertTrue(Double.isNaN(stats.gram().get(1, 0)));
+        assertEquals(Double.POSITIVE_INFINITY, stats.gram().get(0, 0), 0);
+    }
+
+    @Test
+    public void choleskyUpdateDowndate() throws Exception {
+        Matrix R = Matrix.randn(6, 4);
+        Matrix A = R.T().times(R);
+        Matrix spd = new Matrix(4, 4, (row, col) -> A.get(row, col) + (row == col ? 4 : 0));
+        Vector x = Vector.randn(4);
+        Cholesky cholesky = new Cholesky(spd);
+        cholesky.update(x);
+        Matrix updated = new Matrix(4, 4,
+                (row, col) -> spd.get(row, col) + x.get(row) * x.get(col));
+        Matrix L = cholesky.factor();
+        Matrix LLT = L.times(L.T());
+        for (int i = 0; i < 4; i++) {
+            for (int j = 0; j < 4; j++) {
+                assertEquals(updated.get(i, j), LLT.get(i, j), TOL);
+            }
+        }
+        cholesky.downdate(x);
+        Matrix back = cholesky.factor().times(cholesky.factor().T());
+        for (int i = 0; i < 4; i++) {
+            for (int j = 0; j < 4; j++) {
+                assertEquals(spd.get(i, j), back.get(i, j), TOL);
+            }
+        }
+        Vector y = cholesky.solve(x);
+        for (int i = 0; i < 4; i++) {
+            double sum = 0;
+            for (int j = 0; j < 4; j++) {
+                sum += spd.get(i, j) * y.get(j);
+            }
+            assertEquals(x.get(i), sum, TOL);
+        }
+    }
+}
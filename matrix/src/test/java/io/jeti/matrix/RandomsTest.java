@@ -0,0 +1,56 @@
+package io.jeti.matrix;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.SplittableRandom;
+import org.junit.Test;
+
+public class RandomsTest {
+
+    @Test
+    public void reproducible() throws Exception {
+        /* Big enough to be filled in parallel. */
+        assertArrayEquals(Matrix.randn(300, 300, 42).toArray(),
+                Matrix.randn(300, 300, 42).toArray(), 0);
+        assertArrayEquals(Vector.rand(100, 7).toArray(), MutableVector.rand(100, 7).toArray(), 0);
+        assertTrue(Matrix.rand(2, 2, 1).get(0, 0) != Matrix.rand(2, 2, 2).get(0, 0));
+    }
+
+    @Test
+    public void splitMix() throws Exception {
+        /* The same sequences as SplittableRandom, which older Androids lack. */
+        SplittableRandom expected = new SplittableRandom(42).split();
+        Randoms.SplitMix actual = new Randoms.SplitMix(42).split();
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(expected.nextLong(), actual.nextLong());
+            assertEquals(expected.nextDouble(), actual.nextDouble(), 0);
+        }
+        SplittableRandom first = new SplittableRandom(7).split();
+        double[] uniform = Randoms.uniform(Randoms.CHUNK + 1, 7);
+        assertEquals(first.nextDouble(), uniform[0], 0);
+    }
+
+    @Test
+    public void moments() throws Exception {
+        double[] uniform = Vector.rand(200000, 3).toArray();
+        double[] gaussian = Vector.randn(200000, 3).toArray();
+        double mean = 0, meanSquare = 0, meanFourth = 0, tail = 0, uniformMean = 0;
+        for (int i = 0; i < gaussian.length; i++) {
+            double square = gaussian[i] * gaussian[i];
+            mean += gaussian[i] / gaussian.length;
+            meanSquare += square / gaussian.length;
+            meanFourth += square * square / gaussian.length;
+            tail += Math.abs(gaussian[i]) > 2 ? 1d / gaussian.length : 0;
+            uniformMean += uniform[i] / uniform.length;
+            assertTrue(0 <= uniform[i] && uniform[i] < 1);
+        }
+        assertEquals(0, mean, 0.01);
+        assertEquals(1, meanSquare, 0.02);
+        assertEquals(3, meanFourth, 0.1);
+        /* P(|x| > 2) for a standard normal. */
+        assertEquals(0.0455, tail, 0.002);
+        assertEquals(0.5, uniformMean, 0.01);
+    }
+}
@@ -0,0 +1,47 @@
+package io.jeti.matrix;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class StrassenTest {
+
+    @Test
+    public void padding() throws Exception {
+        assertEquals(0, Strassen.levels(16, 16, 16, 16));
+        assertEquals(1, Strassen.levels(33, 33, 33, 32));
+        assertEquals(3, Strassen.levels(85, 85, 85, 16));
+        assertEquals(88, Strassen.padded(85, 3));
+        /* The shortest dimension limits the depth, and nothing is squared. */
+        assertEquals(1, Strassen.levels(1000, 40, 1000, 32));
+        assertEquals(1000, Strassen.padded(1000, 1));
+        assertEquals(40, Strassen.padded(40, 1));
+    }
+
+    @Test
+    public void matchesClassical() throws Exception {
+        Matrix A = Matrix.randn(70, 45);
+        Matrix B = Matrix.randn(45, 61);
+        Matrix expected = A.times(B);
+        Matrix actual = A.timesStrassen(B, 8);
+        assertEquals(70, actual.rows());
+        assertEquals(61, actual.cols());
+        for (int r = 0; r < expected.rows(); r++) {
+            for (int c = 0; c < expected.cols(); c++) {
+                assertEquals(expected.get(r, c), actual.get(r, c), 1e-10);
+            }
+        }
+    }
+
+    @Test
+    public void rectangular() throws Exception {
+        Matrix A = Matrix.randn(130, 20, 1);
+        Matrix B = Matrix.randn(20, 67, 2);
+        assertTrue(A.times(B).approxEquals(A.timesStrassen(B, 8), 1e-10, 1e-10));
+        /* Operands which need no padding are read in place. */
+        Matrix C = Matrix.randn(40, 32, 3);
+        Matrix D = Matrix.randn(32, 48, 4);
+        assertTrue(C.times(D).approxEquals(C.timesStrassen(D, 8), 1e-10, 1e-10));
+    }
+}
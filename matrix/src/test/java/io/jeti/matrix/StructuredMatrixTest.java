@@ -0,0 +1,85 @@
+package io.jeti.matrix;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class StructuredMatrixTest {
+
+    private static final double TOL = 1e-12;
+
+    /** Compare against the dense product of dense copies. */
+    private static void assertProduct(Matrix A, Matrix B, Matrix AB) {
+        Matrix denseA = new Matrix(A.rows(), A.cols(), A::get);
+        Matrix denseB = new Matrix(B.rows(), B.cols(), B::get);
+        Matrix expected = denseA.times(denseB);
+        assertEquals(expected.rows(), AB.rows());
+        assertEquals(expected.cols(), AB.cols());
+        for (int r = 0; r < expected.rows(); r++) {
+            for (int c = 0; c < expected.cols(); c++) {
+                assertEquals(expected.get(r, c), AB.get(r, c), TOL);
+            }
+        }
+    }
+
+    @Test
+    public void diagonal() throws Exception {
+        DiagonalMatrix D = new DiagonalMatrix(new Number[] { 1, 2, 3 });
+        Matrix A = Matrix.randn(3, 4);
+        Matrix C = Matrix.randn(5, 3);
+        assertEquals(0d, D.get(0, 1), 0);
+        assertEquals(3d, D.get(2, 2), 0);
+        assertProduct(D, A, D.times(A));
+        assertProduct(C, D, C.times(D));
+        assertTrue(D.times(D) instanceof DiagonalMatrix);
+        assertProduct(D, D, D.times(D));
+        assertTrue(Matrix.eye(4) instanceof DiagonalMatrix);
+    }
+
+    @Test
+    public void banded() throws Exception {
+        BandedMatrix T = BandedMatrix.tridiagonal(6, -1, 2, -1);
+        BandedMatrix B = new BandedMatrix(6, 5, 2, 0, (row, col) -> row + 10 * col + 1);
+        Matrix A = Matrix.randn(6, 3);
+        Matrix C = Matrix.randn(2, 6);
+        assertEquals(0d, T.get(0, 2), 0);
+        assertEquals(-1d, T.get(3, 2), 0);
+        assertEquals(0d, B.get(0, 1), 0);
+        assertEquals(0d, B.get(4, 1), 0);
+        assertProduct(T, A, T.times(A));
+        assertProduct(C, T, C.times(T));
+        assertProduct(T, B, T.times(B));
+        assertTrue(T.times(B) instanceof BandedMatrix);
+    }
+
+    @Test
+    public void triangular() throws Exception {
+        Matrix A = Matrix.randn(5, 5);
+        TriangularMatrix L = TriangularMatrix.lower(A);
+        TriangularMatrix U = TriangularMatrix.upper(A);
+        Matrix B = Matrix.randn(5, 2);
+        assertEquals(0d, L.get(1, 3), 0);
+        assertEquals(0d, U.get(3, 1), 0);
+        assertEquals(A.get(1, 3), U.get(1, 3), 0);
+        assertEquals(A.get(3, 1), L.get(3, 1), 0);
+        assertEquals(A.get(3, 1), L.T().get(1, 3), 0);
+        assertProduct(L, B, L.times(B));
+        assertProduct(U, B, U.times(B));
+        assertProduct(B.T(), U, B.T().times(U));
+        assertProduct(L, U, L.times(U));
+        assertProduct(U, U, U.times(U));
+        assertTrue(U.times(U) instanceof TriangularMatrix);
+    }
+
+    @Test
+    public void symmetric() throws Exception {
+        Matrix A = Matrix.randn(4, 4);
+        SymmetricPackedMatrix S = SymmetricPackedMatrix.lower(A);
+        Matrix B = Matrix.randn(4, 3);
+        assertEquals(A.get(2, 1), S.get(1, 2), 0);
+        assertEquals(S.get(2, 1), S.get(1, 2), 0);
+        assertProduct(S, B, S.times(B));
+        assertProduct(B.T(), S, B.T().times(S));
+    }
+}
@@ -0,0 +1,121 @@
+package io.jeti.matrix;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+public class TensorTest {
+
+    private static Tensor iota(int... shape) {
+        double[] data = new double[Strided.size(shape)];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = i;
+        }
+        return Tensor.wrap(data, shape);
+    }
+
+    @Test
+    public void views() throws Exception {
+        Tensor t = iota(2, 3, 4);
+        assertEquals(23d, t.get(1, 2, 3), 0);
+        assertEquals(24, t.size());
+
+        Tensor slice = t.slice(2, 1, 4, 2);
+        assertArrayEquals(new int[] { 2, 3, 2 }, slice.shape());
+        assertEquals(15d, slice.get(1, 0, 1), 0);
+        Tensor batch = t.slice(0, 1);
+        assertEquals(2, batch.rank());
+        assertEquals(16d, batch.get(1, 0), 0);
+
+        Tensor permuted = t.permute(2, 0, 1);
+        assertEquals(t.get(1, 2, 3), permuted.get(3, 1, 2), 0);
+        assertArrayEquals(new double[] { 0, 12, 4, 16, 8, 20 },
+                t.slice(2, 0).transpose().toArray(), 0);
+
+        /* Reshaping contiguous data shares it, and anything else is copied. */
+        Tensor reshaped = t.reshape(6, -1);
+        assertSame(t.buffer(), reshaped.buffer());
+        assertEquals(9d, reshaped.get(2, 1), 0);
+        Tensor copied = permuted.reshape(24);
+        assertEquals(t.get(0, 1, 0), copied.get(1), 0);
+
+        Tensor broadcast = iota(3, 1).broadcastTo(2, 3, 4);
+        assertEquals(2d, broadcast.get(1, 2, 3), 0);
+    }
+
+    @Test
+    public void broadcastsAreReadOnly() throws Exception {
+        MutableTensor zeros = MutableTensor.zeros(1, 3);
+        MutableTensor broadcast = zeros.broadcastTo(4, 3);
+        assertEquals(0d, broadcast.get(3, 2), 0);
+        try {
+            broadcast.mapInPlace(x -> x + 1);
+            fail("A broadcast view was written.");
+        } catch (IllegalStateException expected) {
+        }
+        try {
+            broadcast.slice(1, 0, 2, 1).fill(1);
+            fail("A view of a broadcast view was written.");
+        } catch (IllegalStateException expected) {
+        }
+        try {
+            broadcast.set(new int[] { 0, 0 }, 1);
+            fail("A broadcast element was set.");
+        } catch (IllegalStateException expected) {
+        }
+        assertArrayEquals(new double[3], zeros.toArray(), 0);
+
+        /* A single copy along the broadcast axis is writable again. */
+        broadcast.slice(0, 2).mapInPlace(x -> x + 1);
+        assertArrayEquals(new double[] { 1, 1, 1 }, zeros.toArray(), 0);
+        assertEquals(2d, broadcast.plus(zeros).get(3, 0), 0);
+    }
+
+    @Test
+    public void elementwise() throws Exception {
+        Tensor t = iota(2, 3, 4);
+        Tensor row = Tensor.wrap(new double[] { 10, 20, 30, 40 }, 4);
+        Tensor sum = t.plus(row);
+        assertEquals(23d + 40, sum.get(1, 2, 3), 0);
+        Tensor column = Tensor.wrap(new double[] { 1, 2, 3 }, 3, 1);
+        Tensor product = t.permute(0, 1, 2).slice(2, 0, 4, 1).multiply(column);
+        assertEquals(23d * 3, product.get(1, 2, 3), 0);
+        assertEquals(2d * 2, t.slice(2, 1, 3, 1).map(x -> 2 * x).get(0, 0, 1), 0);
+
+        MutableTensor m = new MutableTensor(new int[] { 2, 2 }, index -> index[0] - index[1]);
+        m.slice(1, 1).mapInPlace(x -> 100 * x);
+        m.set(new int[] { 0, 0 }, 7);
+        assertArrayEquals(new double[] { 7, -100, 1, 0 }, m.toArray(), 0);
+        m.zipWithInPlace(MutableTensor.ones(2), (a, b) -> a + b);
+        assertArrayEquals(new double[] { 8, -99, 2, 1 }, m.toArray(), 0);
+    }
+
+    @Test
+    public void contractions() throws Exception {
+        Matrix A = Matrix.randn(4, 5, 1);
+        Matrix B = Matrix.randn(5, 3, 2);
+        Matrix C = A.times(B);
+        Tensor product = Tensor.of(A).tensordot(Tensor.of(B), 1);
+        assertArrayEquals(C.toArray(), product.toArray(), 1e-12);
+        Tensor viaTranspose = Tensor.of(A).transpose().tensordot(Tensor.of(B), new int[] { 0 },
+                new int[] { 0 });
+        assertArrayEquals(C.toArray(), viaTranspose.toArray(), 1e-12);
+
+        /* A batch of 2 x 2 products, and one matrix broadcast over the batch. */
+        Tensor batch = iota(3, 2, 2, 4);
+        Tensor weights = iota(4, 3);
+        Tensor out = batch.matmul(weights);
+        assertArrayEquals(new int[] { 3, 2, 2, 3 }, out.shape());
+        for (int b = 0; b < 3; b++) {
+            for (int c = 0; c < 2; c++) {
+                Matrix expected = batch.slice(0, b).slice(0, c).toMatrix()
+                        .times(weights.toMatrix());
+                assertArrayEquals(expected.toArray(), out.slice(0, b).slice(0, c).toArray(), 0);
+            }
+        }
+        assertEquals(iota(5).tensordot(iota(5), 1).get(0), 30d, 0);
+    }
+}
@@ -0,0 +1,63 @@
+package io.jeti.matrix;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.file.Path;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TiledMatrixTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void times() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        Matrix A = Matrix.randn(23, 17);
+        Matrix B = Matrix.randn(17, 11);
+        Matrix expected = A.times(B);
+        int tile = 5;
+        long budget = 8L * tile * tile * Double.BYTES;
+        try (TiledMatrix a = TiledMatrix.from(dir.resolve("a"), A, tile);
+                TiledMatrix b = TiledMatrix.from(dir.resolve("b"), B, tile);
+                TiledMatrix c = a.times(b, dir.resolve("c"), budget)) {
+            assertEquals(A, a.toMatrix());
+            assertEquals(23, c.rows());
+            assertEquals(11, c.cols());
+            assertTrue(expected.approxEquals(c.toMatrix(), 1e-12, 1e-12));
+        }
+        try (TiledMatrix c = TiledMatrix.open(dir.resolve("c"))) {
+            assertEquals(expected.get(7, 9), c.toMatrix().get(7, 9), 1e-12);
+        }
+    }
+
+    @Test
+    public void productMustNotOverwriteAnOperand() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        Matrix A = Matrix.randn(6, 6, 1);
+        try (TiledMatrix a = TiledMatrix.from(dir.resolve("a"), A, 4)) {
+            try {
+                a.times(a, dir.resolve(".").resolve("a"), 1L << 20);
+                fail("The product overwrote an operand.");
+            } catch (IllegalArgumentException e) {
+                assertEquals(A, a.toMatrix());
+            }
+        }
+    }
+
+    @Test
+    public void tiles() throws Exception {
+        try (TiledMatrix a = TiledMatrix.create(folder.newFile("a").toPath(), 3, 4, 2)) {
+            assertArrayEquals(new double[4], a.readTile(1, 1), 0);
+            a.writeTile(1, 1, new double[] { 1, 2, 0, 0 });
+            assertArrayEquals(new double[] { 1, 2, 0, 0 }, a.readTile(1, 1), 0);
+            assertEquals(2d, a.toMatrix().get(2, 3), 0);
+            assertEquals(0d, a.toMatrix().get(1, 3), 0);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package io.jeti.matrix;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import io.jeti.matrix.Tuning.Variant;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Collections;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TuningTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void select() throws Exception {
+        try {
+            Tuning.setBlockSize(32);
+            Tuning.setParallelThreshold(1L << 20);
+            assertEquals(Variant.GATHER, Tuning.select(10, 10, 10, false, true));
+            assertEquals(Variant.NAIVE, Tuning.select(100, 32, 32, true, true));
+            assertEquals(Variant.BLOCKED, Tuning.select(10, 33, 10, true, true));
+            assertEquals(Variant.PARALLEL, Tuning.select(128, 128, 64, true, true));
+            assertEquals(Variant.NAIVE, Tuning.select(1, 32, 32, true, true));
+
+            Tuning.setStrassenThreshold(64);
+            assertEquals(Variant.STRASSEN, Tuning.select(128, 128, 64, true, true));
+            assertEquals(Variant.PARALLEL, Tuning.select(128, 128, 64, true, false));
+            assertEquals(Variant.PARALLEL, Tuning.select(1000, 128, 64, true, true));
+        } finally {
+            Tuning.reset();
+        }
+    }
+
+    @Test
+    public void variantsAgree() throws Exception {
+        Matrix A = Matrix.randn(70, 45, 1);
+        Matrix B = Matrix.randn(45, 37, 2);
+        MutableMatrix C = MutableMatrix.randn(70, 45, 1);
+        MutableMatrix D = MutableMatrix.randn(45, 37, 2);
+        try {
+            Tuning.setParallelThreshold(Long.MAX_VALUE);
+            Tuning.setBlockSize(1000);
+            Matrix naive = A.times(B);
+            MutableMatrix mutableNaive = C.times(D);
+            Tuning.setBlockSize(8);
+            assertEquals(naive, A.times(B));
+            assertEquals(mutableNaive, C.times(D));
+            Tuning.setParallelThreshold(1);
+            assertEquals(naive, A.times(B));
+            assertEquals(mutableNaive, C.times(D));
+
+            /* An index view goes through its gather offsets. */
+            Matrix rows = A.selectRows(new int[] { 3, 1 });
+            assertEquals(naive.selectRows(new int[] { 3, 1 }), rows.times(B));
+
+            Tuning.setStrassenThreshold(16);
+            assertTrue(naive.approxEquals(A.times(B), 1e-12, 1e-12));
+        } finally {
+            Tuning.reset();
+        }
+    }
+
+    @Test
+    public void persistence() throws Exception {
+        Path file = Files.createTempFile("tuning", ".properties");
+        try {
+            Tuning.setBlockSize(48);
+            Tuning.setParallelThreshold(12345);
+            Tuning.setStrassenThreshold(256);
+            TuningFile.save(file);
+            Tuning.reset();
+            assertTrue(TuningFile.load(file));
+            assertEquals(48, Tuning.getBlockSize());
+            assertEquals(12345, Tuning.getParallelThreshold());
+            assertEquals(256, Tuning.getStrassenThreshold());
+
+            /* A file from a host with a different core count is ignored. */
+            Tuning.reset();
+            int processors = Runtime.getRuntime().availableProcessors();
+            String text = new String(Files.readAllBytes(file), "ISO-8859-1");
+            text = text.replace("processors=" + processors, "processors=" + (processors + 1));
+            Files.write(file, Collections.singletonList(text));
+            assertFalse(TuningFile.load(file));
+            assertEquals(Tuning.DEFAULT_BLOCK_SIZE, Tuning.getBlockSize());
+
+            Files.delete(file);
+            assertFalse(TuningFile.load(file));
+        } finally {
+            Tuning.reset();
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void startup() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("tuning.properties");
+        try {
+            IOException missing = TuningFile.loadStartup(file.toString());
+            assertTrue(missing instanceof NoSuchFileException);
+
+            Files.write(file, Collections.singletonList("processors=many"));
+            IOException malformed = TuningFile.loadStartup(file.toString());
+            assertTrue(malformed.getMessage().contains("Malformed"));
+            assertEquals(Tuning.DEFAULT_BLOCK_SIZE, Tuning.getBlockSize());
+
+            Tuning.setBlockSize(40);
+            TuningFile.save(file);
+            Tuning.reset();
+            assertNull(TuningFile.loadStartup(file.toString()));
+            assertEquals(40, Tuning.getBlockSize());
+
+            /* A file from a host with a different core count is reported. */
+            Tuning.reset();
+            int processors = Runtime.getRuntime().availableProcessors();
+            String text = new String(Files.readAllBytes(file), "ISO-8859-1");
+            text = text.replace("processors=" + processors, "processors=" + (processors + 1));
+            Files.write(file, Collections.singletonList(text));
+            IOException foreign = TuningFile.loadStartup(file.toString());
+            assertTrue(foreign.getMessage().contains("different number of cores"));
+            assertEquals(Tuning.DEFAULT_BLOCK_SIZE, Tuning.getBlockSize());
+        } finally {
+            Tuning.reset();
+        }
+    }
+
+    @Test
+    public void loadOrCalibrate() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("tuning.properties");
+        try {
+            /* The first run calibrates and saves, the second only loads. */
+            TuningFile.loadOrCalibrate(file);
+            assertTrue(Files.exists(file));
+            int block = Tuning.getBlockSize();
+            long threshold = Tuning.getParallelThreshold();
+            assertTrue(block >= 16 && block <= 384);
+            assertTrue(threshold >= 1);
+            assertEquals(0, Tuning.getStrassenThreshold());
+
+            Tuning.reset();
+            TuningFile.loadOrCalibrate(file);
+            assertEquals(block, Tuning.getBlockSize());
+            assertEquals(threshold, Tuning.getParallelThreshold());
+
+            /* The calibrated parameters still multiply correctly. */
+            Matrix A = Matrix.randn(50, 40, 1);
+            Matrix B = Matrix.randn(40, 30, 2);
+            Matrix expected = A.times(B);
+            Tuning.calibrate();
+            assertEquals(expected, A.times(B));
+        } finally {
+            Tuning.reset();
+        }
+    }
+}
@@ -2,6 +2,7 @@ package io.jeti.matrix;
 
 import io.jeti.linalg.matrix.Vec;
 import io.jeti.linalg.matrix.utils.tests.VecTest;
+import org.junit.Assert;
 
 public class VectorTest extends VecTest {
 
@@ -9,4 +10,75 @@ public class VectorTest extends VecTest {
     public Vec getInstance() {
         return new Vector(1);
     }
+
+    @org.junit.Test
+    public void bulk() throws Exception {
+        double[] data = { 1, 2, 3, 4, 5, 6 };
+        Vector v = new Vector(data, 1, 4);
+        Assert.assertEquals(4, v.size());
+        Assert.assertEquals(5d, v.get(3), 0);
+        Assert.assertArrayEquals(new double[] { 2, 3, 4, 5 }, v.toArray(), 0);
+        Vector view = Vector.wrap(data).get(1, 5, 2);
+        double[] expected = new double[view.size()];
+        for (int i = 0; i < view.size(); i++) {
+            expected[i] = view.get(i);
+        }
+        Assert.assertArrayEquals(expected, view.toArray(), 0);
+    }
+
+    @org.junit.Test
+    public void bulkChecksTheLength() throws Exception {
+        try {
+            new Vector(new double[5], 2, 4);
+            Assert.fail("An array was read past its end.");
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage().contains("but there were 3"));
+        }
+        try {
+            new MutableVector(new double[5], 6, 1);
+            Assert.fail("An array was read from past its end.");
+        } catch (IndexOutOfBoundsException e) {
+            Assert.assertTrue(e.getMessage().contains("offset 6"));
+        }
+    }
+
+    @org.junit.Test
+    public void elementwise() throws Exception {
+        Vector v = new Vector(100000, index -> index);
+        Assert.assertEquals(2d * 99999, v.map(x -> 2 * x).get(99999), 0);
+        Assert.assertEquals(3d, v.zipWith(v, v, (a, b, c) -> a + b + c).get(1), 0);
+        MutableVector m = new MutableVector(6, index -> index);
+        m.get(1, 5, 2).mapInPlace(x -> -x);
+        Assert.assertEquals(-3d, m.get(3), 0);
+        Assert.assertEquals(2d, m.get(2), 0);
+        m.zipWithInPlace(MutableVector.ones(6), (a, b) -> a + b);
+        Assert.assertEquals(3d, m.get(2), 0);
+    }
+
+    @org.junit.Test
+    public void indexViews() throws Exception {
+        Vector v = new Vector(8, index -> 10 * index);
+        Vector selected = v.select(new int[] { 7, 2, 2 });
+        Assert.assertArrayEquals(new double[] { 70, 20, 20 }, selected.toArray(), 0);
+        Vector masked = v.get(0, 7, 2).select(new boolean[] { false, true, true, false });
+        Assert.assertArrayEquals(new double[] { 20, 40 }, masked.toArray(), 0);
+
+        MutableVector m = new MutableVector(5, index -> index);
+        m.select(new int[] { 4, 1 }).mapInPlace(x -> -x);
+        m.select(new boolean[] { true, false, false, false, false }).set(0, 9);
+        Assert.assertArrayEquals(new double[] { 9, -1, 2, 3, -4 }, m.toArray(), 0);
+    }
+
+    @org.junit.Test
+    public void equality() throws Exception {
+        double[] data = { 1, 2, 3, 4 };
+        Vector x = Vector.wrap(data);
+        MutableVector y = new MutableVector(data);
+        Assert.assertTrue(x.equals(y) && y.equals(x));
+        Assert.assertEquals(x.hashCode(), y.hashCode());
+        Assert.assertEquals(Vector.wrap(new double[] { 4, 2 }), x.select(new int[] { 3, 1 }));
+        Assert.assertNotEquals(x, Vector.wrap(new double[] { 1, 2, 3 }));
+        Assert.assertTrue(x.approxEquals(Vector.wrap(new double[] { 1, 2, 3, 4.001 }), 0.01, 0));
+        Assert.assertFalse(x.approxEquals(Vector.wrap(new double[] { 1, 2, 3, 5 }), 0.01, 0.1));
+    }
 }
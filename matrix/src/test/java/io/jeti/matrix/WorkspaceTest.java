@@ -0,0 +1,113 @@
+package io.jeti.matrix;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import org.junit.Test;
+
+public class WorkspaceTest {
+
+    @Test
+    public void reusesAcrossFrames() throws Exception {
+        Workspace workspace = new Workspace();
+        MutableMatrix A = workspace.matrix(2, 3);
+        MutableVector x = workspace.vector(3);
+        workspace.reset();
+        assertSame(A, workspace.matrix(2, 3));
+        assertSame(x, workspace.vector(3));
+        assertNotSame(A, workspace.matrix(2, 3));
+        workspace.reset();
+        assertNotSame(A, workspace.matrix(3, 2));
+        assertEquals(3, workspace.size());
+    }
+
+    @Test
+    public void operations() throws Exception {
+        MutableMatrix A = new MutableMatrix(new double[][] { { 1, 2 }, { 3, 4 } });
+        MutableMatrix B = new MutableMatrix(new double[][] { { 0, 1 }, { 1, 0 } });
+        MutableMatrix C = new MutableMatrix(2, 2).setProduct(A, B);
+        assertEquals(2d, C.get(0, 0), 0);
+        assertEquals(3d, C.get(1, 1), 0);
+        C.plusInPlace(A).scaleInPlace(2).minusInPlace(B);
+        assertEquals(6d, C.get(0, 0), 0);
+        assertEquals(5d, C.get(0, 1), 0);
+
+        /* Views take the general path. */
+        MutableMatrix D = new MutableMatrix(3, 3, 0).get(1, 2, 1, 1, 2, 1);
+        D.setProduct(A, B);
+        assertEquals(C.get(1, 1) / 2 + B.get(1, 1) / 2 - A.get(1, 1), D.get(1, 1), 0);
+
+        MutableVector x = MutableVector.wrap(new double[] { 1, -1 });
+        MutableVector y = new MutableVector(2).setProduct(A, x).plusInPlace(3, x);
+        assertEquals(2d, y.get(0), 0);
+        assertEquals(-4d, y.get(1), 0);
+        assertEquals(-2d, new MutableVector(2).setTo(x).scaleInPlace(-2).get(0), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void productAliasing() throws Exception {
+        MutableMatrix A = MutableMatrix.ones(2, 2);
+        A.setProduct(A, A);
+    }
+
+    @Test
+    public void contiguousViews() throws Exception {
+        MutableMatrix M = MutableMatrix.ones(4, 3);
+        /* A view which is contiguous in the array of M. */
+        MutableMatrix rows = M.get(1, 2, 1, 0, 2, 1);
+        rows.scaleInPlace(2).plusInPlace(MutableMatrix.ones(rows.rows(), rows.cols()));
+        int changed = 0;
+        for (double value : M.toArray()) {
+            changed += value == 3 ? 1 : 0;
+        }
+        assertEquals(rows.size(), changed);
+        assertEquals(1d, M.get(0, 0), 0);
+        MutableMatrix product = MutableMatrix.zeros(rows.rows(), rows.cols()).setProduct(rows,
+                MutableMatrix.I(rows.cols()));
+        assertEquals(rows, product);
+    }
+
+    /**
+     * A frame of a typical control loop (propagate a covariance and a state)
+     * must not allocate once the workspace is warm.
+     */
+    @Test
+    public void zeroAllocationsPerFrame() throws Exception {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        long id = Thread.currentThread().getId();
+
+        MutableMatrix F = MutableMatrix.rand(6, 6, 1);
+        MutableMatrix Q = MutableMatrix.rand(6, 6, 2);
+        MutableMatrix P = MutableMatrix.rand(6, 6, 3);
+        MutableVector x = MutableVector.rand(6, 4);
+        Workspace workspace = new Workspace();
+        int frames = 10000;
+        for (int i = 0; i < frames; i++) {
+            frame(workspace, F, Q, P, x);
+        }
+
+        long baseline = threads.getThreadAllocatedBytes(id);
+        baseline = threads.getThreadAllocatedBytes(id) - baseline;
+        long before = threads.getThreadAllocatedBytes(id);
+        for (int i = 0; i < frames; i++) {
+            frame(workspace, F, Q, P, x);
+        }
+        long allocated = threads.getThreadAllocatedBytes(id) - before - baseline;
+        assertEquals(0, allocated);
+    }
+
+    private static void frame(Workspace workspace, MutableMatrix F, MutableMatrix Q,
+            MutableMatrix P, MutableVector x) {
+        workspace.reset();
+        MutableMatrix FP = workspace.matrix(6, 6).setProduct(F, P);
+        MutableMatrix FPF = workspace.matrix(6, 6).setProduct(FP, F).plusInPlace(Q);
+        P.setTo(FPF).scaleInPlace(0.5);
+        MutableVector Fx = workspace.vector(6).setProduct(F, x).scaleInPlace(0.1);
+        x.plusInPlace(Fx);
+    }
+}